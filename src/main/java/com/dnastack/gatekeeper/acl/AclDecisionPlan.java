@@ -0,0 +1,278 @@
+package com.dnastack.gatekeeper.acl;
+
+import com.dnastack.gatekeeper.authorizer.TokenAuthorizer.AuthorizationDecision;
+import com.dnastack.gatekeeper.config.GatekeeperConfig;
+import com.dnastack.gatekeeper.config.GatekeeperConfig.AccessControlItem;
+import com.dnastack.gatekeeper.token.InboundTokens;
+import lombok.Getter;
+import lombok.Value;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static java.lang.String.format;
+
+/**
+ * A gateway's ACL, compiled once when its filter is created. Evaluating the plan gives the same outcome as walking the
+ * ACL in order, keeping the last allowed item and stopping at the first denied one. Items whose authorizer always makes
+ * the same decision are resolved at compile time, and items that can never affect the outcome are dropped.
+ */
+public final class AclDecisionPlan {
+
+    /**
+     * The item whose outbound config applies, its decision, and the hints to report.
+     */
+    @Value
+    public static class Outcome {
+        AccessControlItem selectedItem;
+        AuthorizationDecision decision;
+        DecisionHints hints;
+    }
+
+    @Value
+    public static class Description {
+        String gatewayId;
+        List<StepDescription> steps;
+        /**
+         * Items that can never affect the outcome, because a later item always overrides them or an earlier one always
+         * denies.
+         */
+        List<String> elidedItemIds;
+        /**
+         * Set when the outcome doesn't depend on the request at all.
+         */
+        Outcome constantOutcome;
+        /**
+         * The outcome for requests without credentials.
+         */
+        Outcome anonymousOutcome;
+    }
+
+    @Value
+    public static class StepDescription {
+        String itemId;
+        String method;
+        /**
+         * CONSTANT, or how the authorizer is called (see {@link Gatekeeper.Mode}).
+         */
+        String mode;
+        AuthorizationDecision constantDecision;
+        /**
+         * The earlier item whose decision this item reuses, because both share the same authorizer.
+         */
+        String reusesDecisionOf;
+    }
+
+    @Value
+    private static class Step {
+        AccessControlItem item;
+        /**
+         * Null for constant steps.
+         */
+        Gatekeeper gatekeeper;
+        AuthorizationDecision constantDecision;
+        /**
+         * Index of an earlier step with the same authorizer and mode, or -1. That step is always evaluated and allowed
+         * before this one is reached, so its decision applies as is.
+         */
+        int reusedStep;
+    }
+
+    private final String gatewayId;
+    private final Step[] steps;
+    private final List<String> elidedItemIds;
+    private final Outcome constantOutcome;
+    private final Mono<Outcome> constantOutcomeMono;
+    @Getter
+    private final Outcome anonymousOutcome;
+    private final Mono<Outcome> anonymousOutcomeMono;
+    private final boolean reusesDecisions;
+
+    private AclDecisionPlan(String gatewayId, Step[] steps, List<String> elidedItemIds) {
+        this.gatewayId = gatewayId;
+        this.steps = steps;
+        this.elidedItemIds = elidedItemIds;
+        this.constantOutcome = fold(steps, Step::getConstantDecision);
+        this.constantOutcomeMono = constantOutcome == null ? null : Mono.just(constantOutcome);
+        // Without credentials, every authorizer's decision only depends on the authorizer itself
+        this.anonymousOutcome = fold(steps, step -> step.getConstantDecision() != null
+            ? step.getConstantDecision()
+            : step.getGatekeeper().determineAccessGrant(null));
+        this.anonymousOutcomeMono = Mono.just(anonymousOutcome);
+        boolean reusesDecisions = false;
+        for (Step step : steps) {
+            reusesDecisions |= step.getReusedStep() >= 0;
+        }
+        this.reusesDecisions = reusesDecisions;
+    }
+
+    /**
+     * @param gatekeeperFactory Creates the gatekeeper for each ACL item.
+     */
+    public static AclDecisionPlan compile(GatekeeperConfig.Gateway gateway, Function<AccessControlItem, Gatekeeper> gatekeeperFactory) {
+        if (gateway.getAcl() == null || gateway.getAcl().isEmpty()) {
+            throw new IllegalStateException(format("Unable to process ACL for gateway [%s]. Check that ACL is defined.", gateway.getId()));
+        }
+
+        final List<Step> steps = new ArrayList<>(gateway.getAcl().size());
+        final List<String> elidedItemIds = new ArrayList<>();
+        for (AccessControlItem item : gateway.getAcl()) {
+            // Created even when unreachable, so that misconfigured items still fail at startup
+            final Gatekeeper gatekeeper = gatekeeperFactory.apply(item);
+            if (isConstantDenial(steps)) {
+                elidedItemIds.add(item.getId());
+                continue;
+            }
+
+            final AuthorizationDecision constantDecision = gatekeeper.getTokenAuthorizer().getConstantDecision();
+            final Step step = constantDecision != null
+                ? new Step(item, null, constantDecision, -1)
+                : new Step(item, gatekeeper, null, indexOfSameAuthorizer(steps, gatekeeper));
+            // An allowed constant item is always overridden by an allowed constant item right after it
+            if (constantDecision != null && constantDecision.isAllowed() && isConstantAllowance(steps)) {
+                elidedItemIds.add(steps.remove(steps.size() - 1).getItem().getId());
+            }
+            steps.add(step);
+        }
+        return new AclDecisionPlan(gateway.getId(), steps.toArray(Step[]::new), List.copyOf(elidedItemIds));
+    }
+
+    private static int indexOfSameAuthorizer(List<Step> steps, Gatekeeper gatekeeper) {
+        for (int i = 0; i < steps.size(); i++) {
+            final Gatekeeper other = steps.get(i).getGatekeeper();
+            if (other != null && other.getTokenAuthorizer() == gatekeeper.getTokenAuthorizer() && other.getMode() == gatekeeper.getMode()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isConstantDenial(List<Step> steps) {
+        return !steps.isEmpty() && steps.get(steps.size() - 1).getConstantDecision() != null
+            && !steps.get(steps.size() - 1).getConstantDecision().isAllowed();
+    }
+
+    private static boolean isConstantAllowance(List<Step> steps) {
+        return !steps.isEmpty() && steps.get(steps.size() - 1).getConstantDecision() != null
+            && steps.get(steps.size() - 1).getConstantDecision().isAllowed();
+    }
+
+    /**
+     * Walks the steps with decisions known ahead of time.
+     *
+     * @param decisionOf The decision of a step, or null if it can only be made per request.
+     * @return The outcome, or null if some step reached has no known decision.
+     */
+    private static Outcome fold(Step[] steps, Function<Step, AuthorizationDecision> decisionOf) {
+        Step lastAllowed = null;
+        AuthorizationDecision lastAllowedDecision = null;
+        for (Step step : steps) {
+            final AuthorizationDecision decision = decisionOf.apply(step);
+            if (decision == null) {
+                return null;
+            }
+            if (!decision.isAllowed()) {
+                return outcome(lastAllowed, lastAllowedDecision, step, decision);
+            }
+            lastAllowed = step;
+            lastAllowedDecision = decision;
+        }
+        return outcome(lastAllowed, lastAllowedDecision, null, null);
+    }
+
+    /**
+     * @param tokens The credentials of the request, or null if it has none.
+     */
+    public Mono<Outcome> evaluate(InboundTokens tokens) {
+        if (constantOutcomeMono != null) {
+            return constantOutcomeMono;
+        }
+        if (tokens == null) {
+            return anonymousOutcomeMono;
+        }
+        try {
+            return evaluate(tokens, 0, null, null, reusesDecisions ? new AuthorizationDecision[steps.length] : null);
+        } catch (RuntimeException e) {
+            return Mono.error(e);
+        }
+    }
+
+    /**
+     * @param decisions Decisions made so far in this evaluation, by step index. Only kept when some step reuses the
+     *                  decision of another.
+     */
+    private Mono<Outcome> evaluate(InboundTokens tokens,
+                                   int from,
+                                   Step lastAllowed,
+                                   AuthorizationDecision lastAllowedDecision,
+                                   AuthorizationDecision[] decisions) {
+        for (int i = from; i < steps.length; i++) {
+            final Step step = steps[i];
+            if (step.getConstantDecision() != null) {
+                if (!step.getConstantDecision().isAllowed()) {
+                    return Mono.just(outcome(lastAllowed, lastAllowedDecision, step, step.getConstantDecision()));
+                }
+                lastAllowed = step;
+                lastAllowedDecision = step.getConstantDecision();
+                continue;
+            }
+            if (step.getReusedStep() >= 0) {
+                lastAllowed = step;
+                lastAllowedDecision = decisions[step.getReusedStep()];
+                decisions[i] = lastAllowedDecision;
+                continue;
+            }
+            // Synchronous authorizers are called in place, without building a reactive chain around them
+            if (step.getGatekeeper().getMode() == Gatekeeper.Mode.SYNCHRONOUS) {
+                final AuthorizationDecision decision = step.getGatekeeper().determineAccessGrant(tokens);
+                if (decisions != null) {
+                    decisions[i] = decision;
+                }
+                if (!decision.isAllowed()) {
+                    return Mono.just(outcome(lastAllowed, lastAllowedDecision, step, decision));
+                }
+                lastAllowed = step;
+                lastAllowedDecision = decision;
+                continue;
+            }
+
+            final int index = i;
+            final Step previousAllowed = lastAllowed;
+            final AuthorizationDecision previousAllowedDecision = lastAllowedDecision;
+            return step.getGatekeeper()
+                       .determineAccessGrantReactive(tokens)
+                       .flatMap(decision -> {
+                           if (!decision.isAllowed()) {
+                               return Mono.just(outcome(previousAllowed, previousAllowedDecision, step, decision));
+                           }
+                           if (decisions != null) {
+                               decisions[index] = decision;
+                           }
+                           return evaluate(tokens, index + 1, step, decision, decisions);
+                       });
+        }
+        return Mono.just(outcome(lastAllowed, lastAllowedDecision, null, null));
+    }
+
+    private static Outcome outcome(Step lastAllowed, AuthorizationDecision lastAllowedDecision, Step denied, AuthorizationDecision deniedDecision) {
+        if (lastAllowed != null) {
+            final AuthorizationDecision hintSource = denied != null ? deniedDecision : lastAllowedDecision;
+            return new Outcome(lastAllowed.getItem(), lastAllowedDecision, DecisionHints.of(hintSource.getDecisionInfos()));
+        }
+        return new Outcome(denied.getItem(), deniedDecision, DecisionHints.of(deniedDecision.getDecisionInfos()));
+    }
+
+    public Description describe() {
+        final List<StepDescription> stepDescriptions = new ArrayList<>(steps.length);
+        for (Step step : steps) {
+            stepDescriptions.add(new StepDescription(step.getItem().getId(),
+                                                     step.getItem().getAuthorization().getMethod(),
+                                                     step.getGatekeeper() == null ? "CONSTANT" : step.getGatekeeper().getMode().name(),
+                                                     step.getConstantDecision(),
+                                                     step.getReusedStep() < 0 ? null : steps[step.getReusedStep()].getItem().getId()));
+        }
+        return new Description(gatewayId, List.copyOf(stepDescriptions), elidedItemIds, constantOutcome, anonymousOutcome);
+    }
+}
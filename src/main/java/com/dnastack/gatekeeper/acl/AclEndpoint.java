@@ -0,0 +1,43 @@
+package com.dnastack.gatekeeper.acl;
+
+import com.dnastack.gatekeeper.routing.GatewayRouteLocator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Shows how each gateway's ACL was compiled. Expose it with management.endpoints.web.exposure.include=acl.
+ * Gateways whose filters are created lazily only show up after their first request.
+ */
+@Component
+@Endpoint(id = "acl")
+public class AclEndpoint {
+
+    private final GatewayRouteLocator gatewayRouteLocator;
+
+    @Autowired
+    public AclEndpoint(GatewayRouteLocator gatewayRouteLocator) {
+        this.gatewayRouteLocator = gatewayRouteLocator;
+    }
+
+    @ReadOperation
+    public Map<String, AclDecisionPlan.Description> plans() {
+        final Map<String, AclDecisionPlan.Description> descriptions = new TreeMap<>();
+        gatewayRouteLocator.getPlans().forEach((gatewayId, plan) -> descriptions.put(gatewayId, plan.describe()));
+        return descriptions;
+    }
+
+    /**
+     * @return Null, which is reported as not found, for unknown gateways.
+     */
+    @ReadOperation
+    public AclDecisionPlan.Description plan(@Selector String gatewayId) {
+        final AclDecisionPlan plan = gatewayRouteLocator.getPlans().get(gatewayId);
+        return plan == null ? null : plan.describe();
+    }
+}
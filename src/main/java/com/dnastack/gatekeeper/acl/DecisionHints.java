@@ -0,0 +1,84 @@
+package com.dnastack.gatekeeper.acl;
+
+import com.dnastack.gatekeeper.authorizer.TokenAuthorizer.DecisionInfo;
+import com.dnastack.gatekeeper.authorizer.TokenAuthorizer.StandardDecisions;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Value;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * What a set of decision infos means for the response: the X-Gatekeeper-Access-Decision headers to add, and whether the
+ * client has to be challenged for credentials. Precomputed for the common case of a single standard decision.
+ */
+@Value
+public class DecisionHints {
+
+    private static final int INVALID_CREDENTIAL = 1;
+    private static final int AUTHENTICATION_CHALLENGE = 1 << 1;
+    private static final DecisionHints NONE = compute(List.of());
+    private static final Map<StandardDecisions, DecisionHints> STANDARD = new EnumMap<>(StandardDecisions.class);
+
+    static {
+        for (StandardDecisions decision : StandardDecisions.values()) {
+            STANDARD.put(decision, compute(List.of(decision)));
+        }
+    }
+
+    List<DecisionInfo> decisionInfos;
+    List<String> headerValues;
+    @Getter(AccessLevel.NONE)
+    int flags;
+
+    /**
+     * The credentials were expired or malformed.
+     */
+    public boolean isInvalidCredential() {
+        return (flags & INVALID_CREDENTIAL) != 0;
+    }
+
+    /**
+     * Credentials are missing, expired or malformed, so the client should be asked to (re)authenticate.
+     */
+    public boolean isAuthenticationChallenge() {
+        return (flags & AUTHENTICATION_CHALLENGE) != 0;
+    }
+
+    public static DecisionHints of(List<DecisionInfo> decisionInfos) {
+        if (decisionInfos.isEmpty()) {
+            return NONE;
+        }
+        if (decisionInfos.size() == 1 && decisionInfos.get(0) instanceof StandardDecisions) {
+            return STANDARD.get((StandardDecisions) decisionInfos.get(0));
+        }
+        return compute(decisionInfos);
+    }
+
+    private static DecisionHints compute(List<DecisionInfo> decisionInfos) {
+        int flags = 0;
+        for (DecisionInfo decisionInfo : decisionInfos) {
+            if (decisionInfo instanceof StandardDecisions) {
+                flags |= flagsOf((StandardDecisions) decisionInfo);
+            }
+        }
+        return new DecisionHints(List.copyOf(decisionInfos),
+                                 decisionInfos.stream().map(DecisionInfo::getHeaderValue).collect(Collectors.toUnmodifiableList()),
+                                 flags);
+    }
+
+    private static int flagsOf(StandardDecisions decision) {
+        switch (decision) {
+            case EXPIRED_CREDENTIALS:
+            case MALFORMED_CREDENTIALS:
+                return INVALID_CREDENTIAL | AUTHENTICATION_CHALLENGE;
+            case REQUIRES_CREDENTIALS:
+                return AUTHENTICATION_CHALLENGE;
+            default:
+                return 0;
+        }
+    }
+}
@@ -1,45 +1,123 @@
 package com.dnastack.gatekeeper.acl;
 
+import brave.Tracing;
+import brave.propagation.TraceContext;
+import com.dnastack.gatekeeper.authorizer.ReactiveTokenAuthorizer;
 import com.dnastack.gatekeeper.authorizer.TokenAuthorizer;
 import com.dnastack.gatekeeper.token.InboundTokens;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
-import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.Optional;
-import java.util.UUID;
 
 @Slf4j
-@AllArgsConstructor
 public class Gatekeeper {
 
-    private TokenAuthorizer tokenAuthorizer;
+    public enum Mode {
+        /**
+         * Called on the server thread.
+         */
+        SYNCHRONOUS,
+        /**
+         * Called on a bounded elastic worker.
+         */
+        BLOCKING,
+        /**
+         * Subscribed to.
+         */
+        REACTIVE
+    }
+
+    @Getter
+    private final TokenAuthorizer tokenAuthorizer;
+    private final boolean blocking;
+
+    public Gatekeeper(TokenAuthorizer tokenAuthorizer) {
+        this(tokenAuthorizer, tokenAuthorizer.isBlocking());
+    }
+
+    /**
+     * @param blocking Whether the authorizer must be kept off the server thread. Ignored for reactive authorizers.
+     */
+    public Gatekeeper(TokenAuthorizer tokenAuthorizer, boolean blocking) {
+        this.tokenAuthorizer = tokenAuthorizer;
+        this.blocking = blocking && !(tokenAuthorizer instanceof ReactiveTokenAuthorizer);
+    }
+
+    public Mode getMode() {
+        if (tokenAuthorizer instanceof ReactiveTokenAuthorizer) {
+            return Mode.REACTIVE;
+        }
+        return blocking ? Mode.BLOCKING : Mode.SYNCHRONOUS;
+    }
 
     public TokenAuthorizer.AuthorizationDecision determineAccessGrant(InboundTokens tokens) {
-        final String internalTraceId = UUID.randomUUID().toString();
+        return determineAccessGrant(tokens, traceId());
+    }
 
+    private TokenAuthorizer.AuthorizationDecision determineAccessGrant(InboundTokens tokens, String traceId) {
         if (tokens == null) {
             return tokenAuthorizer.handleNoToken();
         }
 
-        log.debug("R/{}: Access Claims: {}", internalTraceId, extractClaimsOf(tokens.getAccessToken()));
-        log.debug("R/{}: ID Claims: {}", internalTraceId, extractClaimsOf(tokens.getIdToken()));
-
+        logClaims(tokens, traceId);
         try {
-            log.debug("R/{}: Auth token accepted", internalTraceId);
             return tokenAuthorizer.handleTokens(tokens);
-        } catch (ExpiredJwtException ex) {
-            log.info("R/{}: Auth token expired: {}", internalTraceId, ex.getMessage());
-            return tokenAuthorizer.handleExpiredToken();
         } catch (JwtException | IllegalArgumentException ex) {
-            // An IAE exception is thrown when we are using the HS algorithm but the token is signed with RSA
-            log.info("R/{}: Auth token rejected: {}", internalTraceId, ex.getMessage());
-            return tokenAuthorizer.handleInvalidToken();
+            return handleRejectedToken(ex, traceId);
         }
     }
 
-    private String extractClaimsOf(String token) {
+    /**
+     * Same decision as {@link #determineAccessGrant(InboundTokens)}, without holding the calling thread on I/O.
+     * Reactive authorizers are subscribed to, blocking authorizers are run on a bounded elastic worker, and all others
+     * are called in place.
+     */
+    public Mono<TokenAuthorizer.AuthorizationDecision> determineAccessGrantReactive(InboundTokens tokens) {
+        // Captured here, since the decision may be made on another thread
+        final String traceId = traceId();
+        if (tokens == null || !(tokenAuthorizer instanceof ReactiveTokenAuthorizer)) {
+            final Mono<TokenAuthorizer.AuthorizationDecision> decision = Mono.fromSupplier(() -> determineAccessGrant(tokens, traceId));
+            return blocking && tokens != null ? decision.subscribeOn(Schedulers.boundedElastic()) : decision;
+        }
+        logClaims(tokens, traceId);
+        return Mono.defer(() -> ((ReactiveTokenAuthorizer) tokenAuthorizer).handleTokensReactive(tokens))
+                   .onErrorResume(ex -> ex instanceof JwtException || ex instanceof IllegalArgumentException,
+                                  ex -> Mono.just(handleRejectedToken((RuntimeException) ex, traceId)));
+    }
+
+    private TokenAuthorizer.AuthorizationDecision handleRejectedToken(RuntimeException ex, String traceId) {
+        if (ex instanceof ExpiredJwtException) {
+            log.info("R/{}: Auth token expired: {}", traceId, ex.getMessage());
+            return tokenAuthorizer.handleExpiredToken();
+        }
+        // An IAE exception is thrown when we are using the HS algorithm but the token is signed with RSA
+        log.info("R/{}: Auth token rejected: {}", traceId, ex.getMessage());
+        return tokenAuthorizer.handleInvalidToken();
+    }
+
+    private static void logClaims(InboundTokens tokens, String traceId) {
+        if (log.isDebugEnabled()) {
+            log.debug("R/{}: Access Claims: {}", traceId, extractClaimsOf(tokens.getAccessToken()));
+            log.debug("R/{}: ID Claims: {}", traceId, extractClaimsOf(tokens.getIdToken()));
+        }
+    }
+
+    /**
+     * The id of the trace the current request belongs to, so that these log lines can be correlated with the rest of
+     * the request.
+     */
+    private static String traceId() {
+        final Tracing tracing = Tracing.current();
+        final TraceContext context = tracing == null ? null : tracing.currentTraceContext().get();
+        return context == null ? "-" : context.traceIdString();
+    }
+
+    private static String extractClaimsOf(String token) {
         return Optional.ofNullable(token).flatMap(t -> Optional.of(t.split("\\.")[0])).orElse(null);
     }
 
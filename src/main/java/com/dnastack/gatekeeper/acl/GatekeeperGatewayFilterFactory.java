@@ -2,23 +2,25 @@ package com.dnastack.gatekeeper.acl;
 
 import com.dnastack.gatekeeper.authorizer.TokenAuthorizer;
 import com.dnastack.gatekeeper.authorizer.TokenAuthorizer.AuthorizationDecision;
-import com.dnastack.gatekeeper.authorizer.TokenAuthorizer.StandardDecisions;
+import com.dnastack.gatekeeper.cache.RequestCollapser;
+import com.dnastack.gatekeeper.cache.ResponseCache;
 import com.dnastack.gatekeeper.challenge.AuthenticationChallengeHandler;
 import com.dnastack.gatekeeper.challenge.AuthorizationFailureHandler;
 import com.dnastack.gatekeeper.challenge.LoginRedirectAuthenticationChallengeHandler;
 import com.dnastack.gatekeeper.challenge.NonInteractiveAuthenticationChallengeHandler;
 import com.dnastack.gatekeeper.config.GatekeeperConfig;
 import com.dnastack.gatekeeper.config.GatekeeperConfig.AuthorizationFailureConfig;
-import com.dnastack.gatekeeper.config.JsonDefinedFactory;
+import com.dnastack.gatekeeper.config.JsonDefinedRegistry;
 import com.dnastack.gatekeeper.config.TokenAuthorizationConfig;
 import com.dnastack.gatekeeper.token.InboundTokens;
 import com.dnastack.gatekeeper.token.TokenParser;
+import com.dnastack.gatekeeper.util.PathTemplate;
 import com.dnastack.gatekeeper.util.WebFluxUtil;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Data;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
@@ -30,13 +32,12 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.regex.Matcher;
+import java.util.Set;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static java.lang.String.format;
 
@@ -44,24 +45,31 @@ import static java.lang.String.format;
 @Slf4j
 public class GatekeeperGatewayFilterFactory extends AbstractGatewayFilterFactory<GatekeeperConfig.Gateway> {
 
-    public static final Pattern PATH_VARIABLE_PATTERN = Pattern.compile("\\{([a-zA-Z]*)\\}");
+    public static final Pattern PATH_VARIABLE_PATTERN = PathTemplate.VARIABLE_PATTERN;
     private static final AuthorizationFailureConfig FALLBACK_AUTHORIZATION_HANDLER_CONFIG = AuthorizationFailureConfig.builder()
         .method("text/plain-failure-handler")
         .args(Map.of())
         .build();
+    private static final String PRESERVE_AUTHORIZATION_AUTHENTICATOR = "preserve-authorization-client-authenticator";
 
     @Autowired
     private TokenParser tokenParser;
 
     @Autowired
-    private BeanFactory beanFactory;
+    private JsonDefinedRegistry jsonDefinedRegistry;
+
+    @Autowired
+    private ResponseCache responseCache;
+
+    @Autowired
+    private RequestCollapser requestCollapser;
 
     public GatekeeperGatewayFilterFactory() {
         super(GatekeeperConfig.Gateway.class);
     }
 
-    private static void setAccessDecisionHints(ServerHttpResponse response, List<TokenAuthorizer.DecisionInfo> decisionInfos) {
-        decisionInfos.forEach(decisionInfo -> setAccessDecisionHint(response, decisionInfo.getHeaderValue()));
+    private static void setAccessDecisionHints(ServerHttpResponse response, List<String> headerValues) {
+        headerValues.forEach(headerValue -> setAccessDecisionHint(response, headerValue));
     }
 
     private static void setAccessDecisionHint(ServerHttpResponse response, String decision) {
@@ -70,20 +78,135 @@ public class GatekeeperGatewayFilterFactory extends AbstractGatewayFilterFactory
     }
 
     @Override
-    public GatewayFilter apply(GatekeeperConfig.Gateway config) {
+    public GatekeeperFilter apply(GatekeeperConfig.Gateway config) {
         if (config.getAcl().isEmpty()) {
             throw new IllegalArgumentException(format("Gateway [%s] must have a non-empty ACL", config.getId()));
         }
 
-        final Map<String, TokenAuthorizer> authorizersByAclItemId =
-                config.getAcl()
-                      .stream()
-                      .map(accessControlItem -> Map.entry(accessControlItem.getId(), createTokenAuthorizer(accessControlItem.getAuthorization())))
-                      .collect(Collectors.toConcurrentMap(Map.Entry::getKey, Map.Entry::getValue));
+        validateResponseCaching(config);
+        validateRequestCollapsing(config);
+        final AclDecisionPlan plan = AclDecisionPlan.compile(config, accessControlItem -> createGatekeeper(accessControlItem.getAuthorization()));
+        final Map<GatekeeperConfig.AccessControlItem, PathTemplate> outboundTemplates = compileOutboundTemplates(config);
         final AuthenticationChallengeHandler authenticationChallengeHandler = createUnauthenticatedTokenHandler(config);
 
         final AuthorizationFailureHandler authorizationFailureHandler = createAuthorizationFailureHandler(config);
-        return (exchange, chain) -> doFilter(config, authorizersByAclItemId, authenticationChallengeHandler, authorizationFailureHandler, exchange, chain);
+        return new GatekeeperFilter(config, plan, outboundTemplates, authenticationChallengeHandler, authorizationFailureHandler);
+    }
+
+    /**
+     * Checks what can be checked about a gateway without creating any of its authorizers or handlers, so that invalid
+     * config is still caught at startup when filters are only created on first use.
+     *
+     * @throws IllegalArgumentException if the gateway is invalid.
+     */
+    public void validate(GatekeeperConfig.Gateway config) {
+        if (config.getAcl() == null || config.getAcl().isEmpty()) {
+            throw new IllegalArgumentException(format("Gateway [%s] must have a non-empty ACL", config.getId()));
+        }
+        for (GatekeeperConfig.AccessControlItem accessControlItem : config.getAcl()) {
+            final String method = Optional.ofNullable(accessControlItem.getAuthorization())
+                                          .map(TokenAuthorizationConfig::getMethod)
+                                          .orElse(null);
+            if (method == null || !jsonDefinedRegistry.isDefined(method)) {
+                throw new IllegalArgumentException(format("Unknown authorization method [%s] in gateway/acl [%s/%s]",
+                                                          method,
+                                                          config.getId(),
+                                                          accessControlItem.getId()));
+            }
+        }
+        final AuthorizationFailureConfig authorizationFailureConfig = config.getOutbound().getAuthorizationFailure();
+        if (authorizationFailureConfig != null && !jsonDefinedRegistry.isDefined(authorizationFailureConfig.getMethod())) {
+            throw new IllegalArgumentException(format("Unknown authorization failure method [%s] in gateway [%s]",
+                                                      authorizationFailureConfig.getMethod(),
+                                                      config.getId()));
+        }
+        validateResponseCaching(config);
+        validateRequestCollapsing(config);
+        compileOutboundTemplates(config);
+    }
+
+    /**
+     * Only responses to anonymous requests can be shared between users, so caching is limited to public items of
+     * gateways that don't forward the user's credentials upstream.
+     */
+    static void validateResponseCaching(GatekeeperConfig.Gateway config) {
+        final String outboundAuthentication = outboundAuthenticationMethod(config);
+        for (GatekeeperConfig.AccessControlItem accessControlItem : config.getAcl()) {
+            if (accessControlItem.getCache() == null) {
+                continue;
+            }
+            final String method = Optional.ofNullable(accessControlItem.getAuthorization())
+                                          .map(TokenAuthorizationConfig::getMethod)
+                                          .orElse(null);
+            if (!ResponseCache.PUBLIC_AUTHORIZER.equals(method)) {
+                throw new IllegalArgumentException(format("Response caching in gateway/acl [%s/%s] requires authorization method [%s]",
+                                                          config.getId(),
+                                                          accessControlItem.getId(),
+                                                          ResponseCache.PUBLIC_AUTHORIZER));
+            }
+            if (PRESERVE_AUTHORIZATION_AUTHENTICATOR.equals(outboundAuthentication)) {
+                throw new IllegalArgumentException(format("Response caching in gateway/acl [%s/%s] can't be used with outbound authentication [%s]",
+                                                          config.getId(),
+                                                          accessControlItem.getId(),
+                                                          outboundAuthentication));
+            }
+        }
+    }
+
+    /**
+     * Collapsed requests share one upstream response, which must not depend on the credentials of one user.
+     */
+    static void validateRequestCollapsing(GatekeeperConfig.Gateway config) {
+        if (config.getCollapsing() != null && PRESERVE_AUTHORIZATION_AUTHENTICATOR.equals(outboundAuthenticationMethod(config))) {
+            throw new IllegalArgumentException(format("Request collapsing in gateway [%s] can't be used with outbound authentication [%s]",
+                                                      config.getId(),
+                                                      PRESERVE_AUTHORIZATION_AUTHENTICATOR));
+        }
+    }
+
+    private static String outboundAuthenticationMethod(GatekeeperConfig.Gateway config) {
+        return Optional.ofNullable(config.getOutbound())
+                       .map(GatekeeperConfig.BaseOutboundRequestConfig::getAuthentication)
+                       .map(GatekeeperConfig.OutboundAuthentication::getMethod)
+                       .orElse(null);
+    }
+
+    /**
+     * Guards a single gateway. Named so that routes can be searched for the gatekeeper filter of each gateway.
+     */
+    public class GatekeeperFilter implements GatewayFilter {
+        @Getter
+        private final GatekeeperConfig.Gateway gateway;
+        @Getter
+        private final AclDecisionPlan plan;
+        private final Map<GatekeeperConfig.AccessControlItem, PathTemplate> outboundTemplates;
+        private final AuthenticationChallengeHandler authenticationChallengeHandler;
+        private final AuthorizationFailureHandler authorizationFailureHandler;
+        /**
+         * Outbound path for requests without credentials, when it doesn't depend on the request. Null otherwise.
+         */
+        private final String anonymousOutboundPath;
+
+        private GatekeeperFilter(GatekeeperConfig.Gateway gateway,
+                                 AclDecisionPlan plan,
+                                 Map<GatekeeperConfig.AccessControlItem, PathTemplate> outboundTemplates,
+                                 AuthenticationChallengeHandler authenticationChallengeHandler,
+                                 AuthorizationFailureHandler authorizationFailureHandler) {
+            this.gateway = gateway;
+            this.plan = plan;
+            this.outboundTemplates = outboundTemplates;
+            this.authenticationChallengeHandler = authenticationChallengeHandler;
+            this.authorizationFailureHandler = authorizationFailureHandler;
+            this.anonymousOutboundPath = staticOutboundPath(outboundTemplates.get(plan.getAnonymousOutcome().getSelectedItem()));
+        }
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+            if (!InboundTokens.mayCarryTokens(exchange.getRequest())) {
+                return applyOutcome(gateway, outboundTemplates, authenticationChallengeHandler, authorizationFailureHandler, exchange, chain, plan.getAnonymousOutcome(), anonymousOutboundPath);
+            }
+            return doFilter(gateway, plan, outboundTemplates, authenticationChallengeHandler, authorizationFailureHandler, exchange, chain);
+        }
     }
 
     private AuthorizationFailureHandler createAuthorizationFailureHandler(GatekeeperConfig.Gateway config) {
@@ -91,11 +214,12 @@ public class GatekeeperGatewayFilterFactory extends AbstractGatewayFilterFactory
             .getAuthorizationFailure() : FALLBACK_AUTHORIZATION_HANDLER_CONFIG;
         final String failureHandlerBeanName = authorizationFailureConfig.getMethod();
         final Map<String, Object> failureHandlerArgs = authorizationFailureConfig.getArgs();
-        return JsonDefinedFactory.createFactoryInstance(beanFactory, failureHandlerBeanName, failureHandlerArgs);
+        return jsonDefinedRegistry.getOrCreate(failureHandlerBeanName, failureHandlerArgs);
     }
 
-    private TokenAuthorizer createTokenAuthorizer(TokenAuthorizationConfig config) {
-        return JsonDefinedFactory.createFactoryInstance(beanFactory, config.getMethod(), config.getArgs());
+    private Gatekeeper createGatekeeper(TokenAuthorizationConfig config) {
+        final TokenAuthorizer tokenAuthorizer = jsonDefinedRegistry.getOrCreate(config.getMethod(), config.getArgs());
+        return new Gatekeeper(tokenAuthorizer, Optional.ofNullable(config.getBlocking()).orElse(tokenAuthorizer.isBlocking()));
     }
 
     private AuthenticationChallengeHandler createUnauthenticatedTokenHandler(GatekeeperConfig.Gateway config) {
@@ -126,7 +250,8 @@ public class GatekeeperGatewayFilterFactory extends AbstractGatewayFilterFactory
 
     private Mono<Void> doFilter(
         GatekeeperConfig.Gateway config,
-        Map<String, TokenAuthorizer> authorizersByAclItemId,
+        AclDecisionPlan plan,
+        Map<GatekeeperConfig.AccessControlItem, PathTemplate> outboundTemplates,
         AuthenticationChallengeHandler authenticationChallengeHandler,
         AuthorizationFailureHandler authorizationFailureHandler,
         ServerWebExchange exchange,
@@ -141,115 +266,138 @@ public class GatekeeperGatewayFilterFactory extends AbstractGatewayFilterFactory
             return WebFluxUtil.rewriteResponse(response, e.getStatus(), e.getMessage());
         }
 
-        final AuthorizationDecision accessDecision;
-        final GatekeeperConfig.AccessControlItem selectedAccessControlItem;
-        final List<TokenAuthorizer.DecisionInfo> authHints;
-        {
-            Map.Entry<GatekeeperConfig.AccessControlItem, AuthorizationDecision> lastSuccessfulAuth = null, firstFailedAuth = null;
-            for (GatekeeperConfig.AccessControlItem accessControlItem : config.getAcl()) {
-                final TokenAuthorizer tokenAuthorizer = authorizersByAclItemId.get(accessControlItem.getId());
-                if (tokenAuthorizer == null) {
-                    throw new IllegalStateException(format("Uninitialized authorizer for gateway/accessItem [%s/%s]",
-                                                           config.getId(),
-                                                           accessControlItem.getId()));
-                }
-                Gatekeeper gatekeeper = new Gatekeeper(tokenAuthorizer);
-                AuthorizationDecision curDecision = gatekeeper.determineAccessGrant(foundTokens.orElse(null));
-                if (curDecision.isAllowed()) {
-                    lastSuccessfulAuth = Map.entry(accessControlItem, curDecision);
-                } else {
-                    firstFailedAuth = Map.entry(accessControlItem, curDecision);
-                    break;
-                }
-            }
-            if (lastSuccessfulAuth == null && firstFailedAuth == null) {
-                throw new IllegalStateException(format("Unable to process ACL for gateway [%s]. Check that ACL is defined.", config.getId()));
-            } else if (lastSuccessfulAuth != null) {
-                accessDecision = lastSuccessfulAuth.getValue();
-                authHints = Optional.ofNullable(firstFailedAuth)
-                                    .map(Map.Entry::getValue)
-                                    .orElse(lastSuccessfulAuth.getValue())
-                                    .getDecisionInfos();
-                selectedAccessControlItem = lastSuccessfulAuth.getKey();
-            } else {
-                accessDecision = firstFailedAuth.getValue();
-                authHints = firstFailedAuth.getValue().getDecisionInfos();
-                selectedAccessControlItem = firstFailedAuth.getKey();
-            }
-        }
+        return plan.evaluate(foundTokens.orElse(null))
+                   .flatMap(outcome -> applyOutcome(config, outboundTemplates, authenticationChallengeHandler, authorizationFailureHandler, exchange, chain, outcome, null));
+    }
+
+    private Mono<Void> applyOutcome(
+        GatekeeperConfig.Gateway config,
+        Map<GatekeeperConfig.AccessControlItem, PathTemplate> outboundTemplates,
+        AuthenticationChallengeHandler authenticationChallengeHandler,
+        AuthorizationFailureHandler authorizationFailureHandler,
+        ServerWebExchange exchange,
+        GatewayFilterChain chain,
+        AclDecisionPlan.Outcome outcome,
+        String outboundPath
+    ) {
+        final ServerHttpRequest request = exchange.getRequest();
+        final ServerHttpResponse response = exchange.getResponse();
+        final AuthorizationDecision accessDecision = outcome.getDecision();
+        final GatekeeperConfig.AccessControlItem selectedAccessControlItem = outcome.getSelectedItem();
+        final DecisionHints authHints = outcome.getHints();
 
         // Add headers with decision info here before it's forgotten.
-        setAccessDecisionHints(response, authHints);
+        setAccessDecisionHints(response, authHints.getHeaderValues());
 
-        if (!accessDecision.isAllowed() || isInvalidCredential(authHints)) {
-            log.debug("Not responding with content for values [allowed={}], [authHints={}]", accessDecision.isAllowed(), authHints);
-            if (shouldDoAuthenticationChallenge(authHints)) {
+        if (!accessDecision.isAllowed() || authHints.isInvalidCredential()) {
+            log.debug("Not responding with content for values [allowed={}], [authHints={}]", accessDecision.isAllowed(), authHints.getDecisionInfos());
+            if (authHints.isAuthenticationChallenge()) {
                 return doFullAuthChallenge(authenticationChallengeHandler, exchange, response);
             } else {
                 return authorizationFailureHandler.handleFailure(exchange, selectedAccessControlItem);
             }
         } else {
-            if (shouldDoAuthenticationChallenge(authHints)) {
+            if (authHints.isAuthenticationChallenge()) {
                 authenticationChallengeHandler.addHeaders(response);
             }
 
-            final String outboundPath = computeOutboundPath(config, selectedAccessControlItem, ServerWebExchangeUtils.getUriTemplateVariables(exchange));
-            final ServerHttpRequest newRequest = request.mutate().path(outboundPath).build();
+            final String path = outboundPath != null
+                ? outboundPath
+                : renderOutboundPath(config, selectedAccessControlItem, outboundTemplates.get(selectedAccessControlItem), ServerWebExchangeUtils.getUriTemplateVariables(exchange));
+            final ServerHttpRequest newRequest = request.mutate().path(path).build();
+            final ServerWebExchange newExchange = exchange.mutate().request(newRequest).build();
+
+            final GatekeeperConfig.RequestCollapsing collapsing = config.getCollapsing();
+            final GatewayFilterChain upstream = collapsing == null
+                ? chain
+                : e -> requestCollapser.filter(e, chain, config.getId(), selectedAccessControlItem.getId(), collapsing);
 
-            return chain.filter(exchange.mutate().request(newRequest).build());
+            final GatekeeperConfig.ResponseCaching caching = selectedAccessControlItem.getCache();
+            if (caching != null) {
+                return responseCache.filter(newExchange, upstream, ResponseCache.keyOf(config.getId(), selectedAccessControlItem, newRequest), caching);
+            }
+            return upstream.filter(newExchange);
         }
 
     }
 
     /**
-     * Converts patterns like /foo/{bar}/{baz} to paths based on bound variables from Spring Cloud Gateway Path Route Predicate Factory.
+     * Parses the outbound path of each ACL item once, and checks that every variable it uses is captured by the inbound
+     * path. Items without an outbound path are left out, and fail when they are selected.
      */
-    static String computeOutboundPath(GatekeeperConfig.Gateway config, GatekeeperConfig.AccessControlItem accessControlItem, Map<String, String> boundVariables) {
-        final String outboundExpression = Optional.of(accessControlItem)
-                                                  .map(GatekeeperConfig.AccessControlItem::getOutbound)
-                                                  .map(GatekeeperConfig.OutboundRequestConfig::getPath)
-                                                  .orElseThrow(() -> new IllegalArgumentException(format("gateway/acl item [%s/%s] is missing outbound path",
-                                                                                                         config.getId(),
-                                                                                                         accessControlItem.getId())));
-        final Matcher pathVariableMatcher = PATH_VARIABLE_PATTERN.matcher(outboundExpression);
-        final StringBuilder sb = new StringBuilder();
-        while (pathVariableMatcher.find()) {
-            final String variableName = pathVariableMatcher.group(1);
-            final String variableValue = boundVariables.get(variableName);
-            if (variableValue == null) {
-                throw new IllegalArgumentException(format("Missing variable [%s] used in gateway/acl [%s/%s]",
-                                                          variableName,
-                                                          config.getId(),
-                                                          accessControlItem.getId()));
+    static Map<GatekeeperConfig.AccessControlItem, PathTemplate> compileOutboundTemplates(GatekeeperConfig.Gateway config) {
+        final Set<String> inboundVariables = Optional.ofNullable(config.getInbound())
+                                                     .map(GatekeeperConfig.InboundPredicate::getPath)
+                                                     .map(PathTemplate::pathPatternVariableNames)
+                                                     .orElse(null);
+        final Map<GatekeeperConfig.AccessControlItem, PathTemplate> templates = new IdentityHashMap<>();
+        for (GatekeeperConfig.AccessControlItem accessControlItem : config.getAcl()) {
+            final PathTemplate template = outboundTemplate(accessControlItem);
+            if (template == null) {
+                continue;
             }
-
-            pathVariableMatcher.appendReplacement(sb, variableValue);
+            if (inboundVariables != null) {
+                for (String variableName : template.getVariableNames()) {
+                    if (!inboundVariables.contains(variableName)) {
+                        throw new IllegalArgumentException(format("Missing variable [%s] used in gateway/acl [%s/%s]",
+                                                                  variableName,
+                                                                  config.getId(),
+                                                                  accessControlItem.getId()));
+                    }
+                }
+            }
+            templates.put(accessControlItem, template);
         }
-        pathVariableMatcher.appendTail(sb);
+        return templates;
+    }
 
-        if (sb.length() < 1 || sb.charAt(0) != '/') {
-            sb.insert(0, '/');
-        }
+    /**
+     * Converts patterns like /foo/{bar}/{baz} to paths based on bound variables from Spring Cloud Gateway Path Route Predicate Factory.
+     */
+    static String computeOutboundPath(GatekeeperConfig.Gateway config, GatekeeperConfig.AccessControlItem accessControlItem, Map<String, String> boundVariables) {
+        return renderOutboundPath(config, accessControlItem, outboundTemplate(accessControlItem), boundVariables);
+    }
 
-        return sb.toString();
+    /**
+     * The outbound path of the given item if it has no path variables, or null if it has to be computed per request.
+     */
+    static String computeStaticOutboundPath(GatekeeperConfig.Gateway config, GatekeeperConfig.AccessControlItem accessControlItem) {
+        return staticOutboundPath(outboundTemplate(accessControlItem));
     }
 
-    private Mono<Void> doFullAuthChallenge(AuthenticationChallengeHandler authenticationChallengeHandler, ServerWebExchange exchange, ServerHttpResponse response) {
-        authenticationChallengeHandler.addHeaders(response);
-        return authenticationChallengeHandler.handleBody(exchange);
+    private static String staticOutboundPath(PathTemplate template) {
+        return template != null && template.isLiteral() ? template.renderAbsolute(Map.of()) : null;
     }
 
-    private boolean isInvalidCredential(List<TokenAuthorizer.DecisionInfo> decisionInfos) {
-        return Stream.of(StandardDecisions.EXPIRED_CREDENTIALS,
-                         StandardDecisions.MALFORMED_CREDENTIALS)
-                     .anyMatch(decisionInfos::contains);
+    /**
+     * @return The parsed outbound path of the given item, or null if it has none.
+     */
+    private static PathTemplate outboundTemplate(GatekeeperConfig.AccessControlItem accessControlItem) {
+        return Optional.ofNullable(accessControlItem.getOutbound())
+                       .map(GatekeeperConfig.OutboundRequestConfig::getPath)
+                       .map(PathTemplate::parse)
+                       .orElse(null);
+    }
+
+    private static String renderOutboundPath(GatekeeperConfig.Gateway config,
+                                             GatekeeperConfig.AccessControlItem accessControlItem,
+                                             PathTemplate template,
+                                             Map<String, String> boundVariables) {
+        if (template == null) {
+            throw new IllegalArgumentException(format("gateway/acl item [%s/%s] is missing outbound path",
+                                                      config.getId(),
+                                                      accessControlItem.getId()));
+        }
+        try {
+            return template.renderAbsolute(boundVariables);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(format("%s used in gateway/acl [%s/%s]", e.getMessage(), config.getId(), accessControlItem.getId()), e);
+        }
     }
 
-    private boolean shouldDoAuthenticationChallenge(List<TokenAuthorizer.DecisionInfo> decisionInfos) {
-        return Stream.of(StandardDecisions.REQUIRES_CREDENTIALS,
-                         StandardDecisions.EXPIRED_CREDENTIALS,
-                         StandardDecisions.MALFORMED_CREDENTIALS)
-                     .anyMatch(decisionInfos::contains);
+    private Mono<Void> doFullAuthChallenge(AuthenticationChallengeHandler authenticationChallengeHandler, ServerWebExchange exchange, ServerHttpResponse response) {
+        authenticationChallengeHandler.addHeaders(response);
+        return authenticationChallengeHandler.handleBody(exchange);
     }
 
     @Data
@@ -0,0 +1,141 @@
+package com.dnastack.gatekeeper.authorizer;
+
+import com.dnastack.gatekeeper.config.Account;
+import com.dnastack.gatekeeper.token.ClaimProjection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Claim shapes shared by authorizers. Each is decoded at most once per verified token, straight from the maps and lists
+ * the JWT parser produced, without another round trip through Jackson.
+ */
+public final class ClaimProjections {
+
+    private ClaimProjections() {
+    }
+
+    /**
+     * OAuth scopes, from either the space-separated "scope" claim (the draft standard) or the "scopes" list (what DAM
+     * returns). "scope" wins when both are present.
+     */
+    public static final ClaimProjection<Set<String>> SCOPES = ClaimProjection.of(Set.of("scope", "scopes"), claims -> {
+        final Object scope = claims.get("scope");
+        if (scope instanceof String && !((String) scope).isEmpty()) {
+            return Set.of(distinct(((String) scope).split("\\s+")));
+        }
+        final Object scopes = claims.get("scopes");
+        if (scopes instanceof Collection) {
+            return Set.copyOf(stringsOf((Collection<?>) scopes));
+        }
+        return Set.of();
+    });
+
+    /**
+     * Entries of ga4gh.ControlledAccessGrants.
+     *
+     * @throws IllegalArgumentException if the claim is present but not shaped like a list of grants, so that the token
+     *                                  is reported as malformed.
+     */
+    public static final ClaimProjection<List<Ga4ghClaim>> GA4GH_CONTROLLED_ACCESS_GRANTS = ClaimProjection.of(Set.of("ga4gh"), claims -> {
+        final Map<?, ?> ga4gh = mapOf("ga4gh", claims.get("ga4gh"));
+        final Collection<?> grants = ga4gh == null ? null : collectionOf("ga4gh.ControlledAccessGrants", ga4gh.get("ControlledAccessGrants"));
+        if (grants == null) {
+            return List.of();
+        }
+        final List<Ga4ghClaim> result = new ArrayList<>();
+        for (Object grant : grants) {
+            final Map<?, ?> fields = mapOf("ga4gh.ControlledAccessGrants entry", grant);
+            if (fields != null) {
+                final Ga4ghClaim claim = new Ga4ghClaim();
+                claim.setValue(stringOf("value", fields.get("value")));
+                claim.setSource(stringOf("source", fields.get("source")));
+                claim.setBy(stringOf("by", fields.get("by")));
+                claim.setAsserted(longOf("asserted", fields.get("asserted")));
+                claim.setExpires(longOf("expires", fields.get("expires")));
+                result.add(claim);
+            }
+        }
+        return List.copyOf(result);
+    });
+
+    /**
+     * Linked accounts, from the "accounts" claim.
+     *
+     * @throws IllegalArgumentException if the claim is present but not shaped like a list of accounts, so that the
+     *                                  token is reported as malformed.
+     */
+    public static final ClaimProjection<List<Account>> ACCOUNTS = ClaimProjection.of(Set.of("accounts"), claims -> {
+        final Collection<?> accounts = collectionOf("accounts", claims.get("accounts"));
+        if (accounts == null) {
+            return List.of();
+        }
+        final List<Account> result = new ArrayList<>();
+        for (Object account : accounts) {
+            final Map<?, ?> fields = mapOf("accounts entry", account);
+            if (fields != null) {
+                final Account decoded = new Account();
+                decoded.setAccountId(stringOf("accountId", fields.get("accountId")));
+                decoded.setIssuer(stringOf("issuer", fields.get("issuer")));
+                decoded.setEmail(stringOf("email", fields.get("email")));
+                result.add(decoded);
+            }
+        }
+        return List.copyOf(result);
+    });
+
+    private static String[] distinct(String[] values) {
+        return Arrays.stream(values).distinct().toArray(String[]::new);
+    }
+
+    private static List<String> stringsOf(Collection<?> values) {
+        final List<String> result = new ArrayList<>(values.size());
+        for (Object value : values) {
+            if (value != null) {
+                result.add(value.toString());
+            }
+        }
+        return result;
+    }
+
+    private static Map<?, ?> mapOf(String name, Object value) {
+        if (value != null && !(value instanceof Map)) {
+            throw new IllegalArgumentException(name + " claim must be an object");
+        }
+        return (Map<?, ?>) value;
+    }
+
+    private static Collection<?> collectionOf(String name, Object value) {
+        if (value != null && !(value instanceof Collection)) {
+            throw new IllegalArgumentException(name + " claim must be an array");
+        }
+        return (Collection<?>) value;
+    }
+
+    private static String stringOf(String name, Object value) {
+        if (value instanceof Map || value instanceof Collection) {
+            throw new IllegalArgumentException(name + " claim must be a string");
+        }
+        return value == null ? null : value.toString();
+    }
+
+    private static Long longOf(String name, Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Long.parseLong((String) value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(name + " claim must be a number", e);
+            }
+        }
+        throw new IllegalArgumentException(name + " claim must be a number");
+    }
+}
@@ -3,10 +3,11 @@ package com.dnastack.gatekeeper.authorizer;
 import com.dnastack.gatekeeper.config.Account;
 import com.dnastack.gatekeeper.config.JsonDefinedFactory;
 import com.dnastack.gatekeeper.token.InboundTokens;
+import com.dnastack.gatekeeper.token.RequiredClaims;
 import com.dnastack.gatekeeper.token.TokenParser;
+import com.dnastack.gatekeeper.token.VerifiedToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import io.jsonwebtoken.Claims;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -24,31 +25,30 @@ import static java.util.stream.Collectors.toList;
 @RequiredArgsConstructor
 public class EmailTokenAuthorizer implements TokenAuthorizer {
 
-    public static final TypeReference<List<Account>> LIST_OF_ACCOUNT_TYPE = new TypeReference<>() {
-
-    };
-
     public static final String GOOGLE_ISSUER_URL = "https://accounts.google.com";
+    private static final AuthorizationDecision WHITELISTED = AuthorizationDecision.builder()
+                                                                                  .decisionInfo(StandardDecisions.ACCESS_GRANTED)
+                                                                                  .build();
 
     private final List<String> emailWhitelist;
-    private final ObjectMapper objectMapper;
     private final TokenParser tokenParser;
 
+    @Override
+    public boolean isBlocking() {
+        return tokenParser.mayBlock();
+    }
+
     @Override
     public AuthorizationDecision handleTokens(InboundTokens tokens) {
         // In the beacon network, sometimes ID tokens are used in place of access tokens
-        final Claims claims = tokenParser.parseAndValidateJws(Optional.ofNullable(tokens.getIdToken()).orElse(tokens.getAccessToken())).getBody();
+        final VerifiedToken token = tokenParser.parseAndValidate(tokens, Optional.ofNullable(tokens.getIdToken()).orElse(tokens.getAccessToken()));
 
-        Stream<String> googleEmails = extractGoogleEmailAddresses(claims);
+        Stream<String> googleEmails = extractGoogleEmailAddresses(token);
         final boolean hasWhitelistedEmailAddress = googleEmails.anyMatch(this::isWhitelisted);
         if (hasWhitelistedEmailAddress) {
-            return AuthorizationDecision.builder()
-                                        .decisionInfo(StandardDecisions.ACCESS_GRANTED)
-                                        .build();
+            return WHITELISTED;
         } else {
-            return AuthorizationDecision.builder()
-                                        .decisionInfo(StandardDecisions.INSUFFICIENT_CREDENTIALS)
-                                        .build();
+            return AuthorizationDecision.INSUFFICIENT_CREDENTIALS;
         }
     }
 
@@ -65,9 +65,8 @@ public class EmailTokenAuthorizer implements TokenAuthorizer {
         return GOOGLE_ISSUER_URL.equals(account.getIssuer());
     }
 
-    private Stream<String> extractGoogleEmailAddresses(Claims claims) {
-        final List<Account> accounts = objectMapper.convertValue(claims.get("accounts", List.class),
-                                                                                                LIST_OF_ACCOUNT_TYPE);
+    private Stream<String> extractGoogleEmailAddresses(VerifiedToken token) {
+        final List<Account> accounts = token.project(ClaimProjections.ACCOUNTS);
         return accounts.stream()
                 .filter(this::issuedByGoogle)
                 .flatMap(this::accountEmail);
@@ -78,11 +77,13 @@ public class EmailTokenAuthorizer implements TokenAuthorizer {
     public static class EmailTokenAuthorizerFactory extends JsonDefinedFactory<EmailTokenAuthorizerFactory.Config, TokenAuthorizer> {
 
         private final TokenParser tokenParser;
+        private final RequiredClaims requiredClaims;
 
         @Autowired
-        public EmailTokenAuthorizerFactory(ObjectMapper objectMapper, TokenParser tokenParser) {
+        public EmailTokenAuthorizerFactory(ObjectMapper objectMapper, TokenParser tokenParser, RequiredClaims requiredClaims) {
             super(objectMapper, log);
             this.tokenParser = tokenParser;
+            this.requiredClaims = requiredClaims;
         }
 
         @Override
@@ -92,7 +93,8 @@ public class EmailTokenAuthorizer implements TokenAuthorizer {
 
         @Override
         protected TokenAuthorizer create(Config config) {
-            return new EmailTokenAuthorizer(config.whitelistItems(), objectMapper, tokenParser);
+            requiredClaims.require(ClaimProjections.ACCOUNTS);
+            return new EmailTokenAuthorizer(config.whitelistItems(), tokenParser);
         }
 
         @Data
@@ -2,11 +2,11 @@ package com.dnastack.gatekeeper.authorizer;
 
 import com.dnastack.gatekeeper.config.JsonDefinedFactory;
 import com.dnastack.gatekeeper.token.InboundTokens;
+import com.dnastack.gatekeeper.token.RequiredClaims;
 import com.dnastack.gatekeeper.token.TokenParser;
-import com.fasterxml.jackson.annotation.JsonProperty;
+import com.dnastack.gatekeeper.token.VerifiedToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import io.jsonwebtoken.Claims;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,46 +16,37 @@ import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Stream;
 
 @Slf4j
 public class Ga4ghControlledAccessGrantTokenAuthorizer implements TokenAuthorizer {
 
     private final GrantConfig grant;
-    private final ObjectMapper objectMapper;
     private final TokenParser tokenParser;
 
-    public Ga4ghControlledAccessGrantTokenAuthorizer(GrantConfig grant, ObjectMapper objectMapper, TokenParser tokenParser) {
+    public Ga4ghControlledAccessGrantTokenAuthorizer(GrantConfig grant, TokenParser tokenParser) {
         this.grant = grant;
-        this.objectMapper = objectMapper;
         this.tokenParser = tokenParser;
         Objects.requireNonNull(this.grant, "Must specify ControlledAccessGrant config");
         Objects.requireNonNull(this.grant.getValue(), "Must specify required ControlledAccessGrants value");
         Objects.requireNonNull(this.grant.getSource(), "Must specify required ControlledAccessGrants source");
     }
 
+    @Override
+    public boolean isBlocking() {
+        return tokenParser.mayBlock();
+    }
+
     @Override
     public AuthorizationDecision handleTokens(InboundTokens tokens) {
         // In the beacon network, sometimes ID tokens are used in place of access tokens
-        final Claims claims = tokenParser.parseAndValidateJws(Optional.ofNullable(tokens.getIdToken()).orElse(tokens.getAccessToken())).getBody();
-
-        final Ga4ghControlledAccessGrants controlledAccessGrants = objectMapper.convertValue(claims.get("ga4gh"), Ga4ghControlledAccessGrants.class);
-        final Stream<Ga4ghClaim> givenControlledAccessGrants = Optional.ofNullable(controlledAccessGrants)
-                                                                       .map(Ga4ghControlledAccessGrants::getControlledAccessGrants)
-                                                                       .stream()
-                                                                       .flatMap(List::stream)
-                                                                       .filter(Objects::nonNull);
-
-        if (givenControlledAccessGrants.anyMatch(this::matches)) {
-            return AuthorizationDecision.builder()
-                                        .allowed(true)
-                                        .decisionInfo(StandardDecisions.ACCESS_GRANTED)
-                                        .build();
+        final VerifiedToken token = tokenParser.parseAndValidate(tokens, Optional.ofNullable(tokens.getIdToken()).orElse(tokens.getAccessToken()));
+
+        final List<Ga4ghClaim> givenControlledAccessGrants = token.project(ClaimProjections.GA4GH_CONTROLLED_ACCESS_GRANTS);
+
+        if (givenControlledAccessGrants.stream().anyMatch(this::matches)) {
+            return AuthorizationDecision.ACCESS_GRANTED;
         } else {
-            return AuthorizationDecision.builder()
-                                        .allowed(false)
-                                        .decisionInfo(StandardDecisions.INSUFFICIENT_CREDENTIALS)
-                                        .build();
+            return AuthorizationDecision.INSUFFICIENT_CREDENTIALS;
         }
     }
 
@@ -90,11 +81,13 @@ public class Ga4ghControlledAccessGrantTokenAuthorizer implements TokenAuthorize
     public static class ScopeTokenAuthorizerFactory extends JsonDefinedFactory<GrantConfig, TokenAuthorizer> {
 
         private final TokenParser tokenParser;
+        private final RequiredClaims requiredClaims;
 
         @Autowired
-        public ScopeTokenAuthorizerFactory(ObjectMapper objectMapper, TokenParser tokenParser) {
+        public ScopeTokenAuthorizerFactory(ObjectMapper objectMapper, TokenParser tokenParser, RequiredClaims requiredClaims) {
             super(objectMapper, log);
             this.tokenParser = tokenParser;
+            this.requiredClaims = requiredClaims;
         }
 
         @Override
@@ -104,17 +97,12 @@ public class Ga4ghControlledAccessGrantTokenAuthorizer implements TokenAuthorize
 
         @Override
         protected TokenAuthorizer create(Ga4ghControlledAccessGrantTokenAuthorizer.GrantConfig grantConfig) {
-            return new Ga4ghControlledAccessGrantTokenAuthorizer(grantConfig, objectMapper, tokenParser);
+            requiredClaims.require(ClaimProjections.GA4GH_CONTROLLED_ACCESS_GRANTS);
+            return new Ga4ghControlledAccessGrantTokenAuthorizer(grantConfig, tokenParser);
         }
 
     }
 
-    @Data
-    static class Ga4ghControlledAccessGrants {
-        @JsonProperty("ControlledAccessGrants")
-        private List<Ga4ghClaim> controlledAccessGrants;
-    }
-
     @Data
     static class GrantConfig {
         private String value;
@@ -2,51 +2,150 @@ package com.dnastack.gatekeeper.authorizer;
 
 import com.dnastack.auth.PermissionChecker;
 import com.dnastack.gatekeeper.config.JsonDefinedFactory;
+import com.dnastack.gatekeeper.policy.PolicyConfig;
+import com.dnastack.gatekeeper.policy.PolicyDecisionCache;
+import com.dnastack.gatekeeper.policy.PolicyEvaluationQueue;
+import com.dnastack.gatekeeper.policy.WalletGrants;
 import com.dnastack.gatekeeper.token.InboundTokens;
+import com.dnastack.gatekeeper.token.RejectedTokenException;
+import com.dnastack.gatekeeper.token.RequiredClaims;
+import com.dnastack.gatekeeper.token.TokenFingerprint;
+import com.dnastack.gatekeeper.token.TokenParser;
+import com.dnastack.gatekeeper.token.TokenPrecheck;
+import com.dnastack.gatekeeper.token.VerifiedToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
 import lombok.Data;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.parameters.P;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
 
 import java.util.*;
 
 import static java.util.stream.Collectors.toList;
 
 @Slf4j
-@RequiredArgsConstructor
-public class PolicyTokenAuthorizer implements TokenAuthorizer {
+public class PolicyTokenAuthorizer implements ReactiveTokenAuthorizer {
 
     private final PolicyTokenAuthorizerFactory.Config config;
     private final PermissionChecker permissionChecker;
+    private final PolicyDecisionCache decisionCache;
+    private final TokenPrecheck tokenPrecheck;
+    private final boolean grantsFromTokenActions;
+    private final TokenParser tokenParser;
+    private final PolicyEvaluationQueue evaluationQueue;
+    private final String requiredResource;
+    private final Set<String> requiredActions;
+    private final List<String> requiredScopes;
+
+    public PolicyTokenAuthorizer(PolicyTokenAuthorizerFactory.Config config,
+                                 PermissionChecker permissionChecker,
+                                 PolicyDecisionCache decisionCache,
+                                 TokenPrecheck tokenPrecheck,
+                                 PolicyConfig.TokenActions tokenActions,
+                                 TokenParser tokenParser,
+                                 PolicyEvaluationQueue evaluationQueue) {
+        this.config = config;
+        this.permissionChecker = permissionChecker;
+        this.decisionCache = decisionCache;
+        this.tokenPrecheck = tokenPrecheck;
+        this.grantsFromTokenActions = tokenActions.isEnabled();
+        this.tokenParser = tokenParser;
+        this.evaluationQueue = evaluationQueue;
+        this.requiredResource = config.getResource();
+        this.requiredActions = Set.copyOf(config.actionList());
+        this.requiredScopes = List.copyOf(config.scopeList());
+    }
 
     @Override
     public AuthorizationDecision handleTokens(InboundTokens tokens) {
-        final String requiredResource = config.getResource();
-        final Set<String> requiredActions = new HashSet<>(config.actionList());
-        final List<String> requiredScopes = config.scopeList();
+        final PolicyDecisionCache.Key decisionKey = decisionKey(tokens);
+        if (decisionKey != null && decisionCache.isGranted(decisionKey)) {
+            return AuthorizationDecision.ACCESS_GRANTED;
+        }
+        if (isGrantedByTokenActions(tokens)) {
+            return AuthorizationDecision.ACCESS_GRANTED;
+        }
+        return evaluate(tokens, decisionKey);
+    }
+
+    /**
+     * Evaluates the policy on a worker thread, since the permission checker blocks on the wallet. Decisions already
+     * cached for this token, or granted by the token's own actions, are returned without leaving the calling thread.
+     * Concurrent requests needing the same decision wait on a single evaluation.
+     */
+    @Override
+    public Mono<AuthorizationDecision> handleTokensReactive(InboundTokens tokens) {
+        final PolicyDecisionCache.Key decisionKey = decisionKey(tokens);
+        if (decisionKey != null && decisionCache.isGranted(decisionKey)) {
+            return Mono.just(AuthorizationDecision.ACCESS_GRANTED);
+        }
+        if (isGrantedByTokenActions(tokens)) {
+            return Mono.just(AuthorizationDecision.ACCESS_GRANTED);
+        }
+        return evaluationQueue.submit(decisionKey, () -> evaluate(tokens, decisionKey));
+    }
+
+    /**
+     * Checks the token's signature along with its own "scope" and "actions" claims in-process. This can only grant:
+     * the wallet's policies may grant what the token doesn't carry, and the wallet may accept tokens this gatekeeper
+     * can't verify, so every other request is left to the wallet.
+     */
+    private boolean isGrantedByTokenActions(InboundTokens tokens) {
+        if (!grantsFromTokenActions || tokens.getAccessToken() == null) {
+            return false;
+        }
+
+        final VerifiedToken token;
+        try {
+            token = tokenParser.parseAndValidate(tokens, tokens.getAccessToken());
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Leaving token to the wallet: {}", e.getMessage());
+            return false;
+        }
+        final WalletGrants grants = token.project(WalletGrants.PROJECTION);
+        return grants.getActions() != null
+            && grants.getScopes() != null
+            && grants.getScopes().containsAll(requiredScopes)
+            && grants.getActions().permits(requiredResource, requiredActions);
+    }
 
+    private AuthorizationDecision evaluate(InboundTokens tokens, PolicyDecisionCache.Key decisionKey) {
         try {
             permissionChecker.checkPermissions(tokens.getAccessToken(), requiredScopes, Map.of(requiredResource, requiredActions));
-            return AuthorizationDecision.builder()
-                .allowed(true)
-                .decisionInfo(StandardDecisions.ACCESS_GRANTED)
-                .build();
         } catch (Exception exception){
             if (exception instanceof ExpiredJwtException || exception.getCause() instanceof ExpiredJwtException){
                 return handleExpiredToken();
             } else {
-                return AuthorizationDecision.builder()
-                    .allowed(false)
-                    .decisionInfo(StandardDecisions.INSUFFICIENT_CREDENTIALS)
-                    .build();
+                return AuthorizationDecision.INSUFFICIENT_CREDENTIALS;
             }
         }
+        if (decisionKey != null && decisionCache.isEnabled()) {
+            rememberGrant(decisionKey, tokens.getAccessToken());
+        }
+        return AuthorizationDecision.ACCESS_GRANTED;
+    }
+
+    private PolicyDecisionCache.Key decisionKey(InboundTokens tokens) {
+        final String accessToken = tokens.getAccessToken();
+        if (accessToken == null) {
+            return null;
+        }
+        return new PolicyDecisionCache.Key(TokenFingerprint.of(accessToken), requiredResource, requiredActions, requiredScopes);
+    }
+
+    private void rememberGrant(PolicyDecisionCache.Key decisionKey, String accessToken) {
+        final Long expiration;
+        try {
+            expiration = tokenPrecheck.inspect(accessToken).getExpiration();
+        } catch (RejectedTokenException e) {
+            log.debug("Not caching policy decision for unreadable token: {}", e.getMessage());
+            return;
+        }
+        decisionCache.putGranted(decisionKey, expiration);
     }
 
     @Slf4j
@@ -54,11 +153,30 @@ public class PolicyTokenAuthorizer implements TokenAuthorizer {
     public static class PolicyTokenAuthorizerFactory extends JsonDefinedFactory<PolicyTokenAuthorizerFactory.Config, TokenAuthorizer> {
 
         private final PermissionChecker permissionChecker;
+        private final PolicyDecisionCache decisionCache;
+        private final TokenPrecheck tokenPrecheck;
+        private final PolicyConfig policyConfig;
+        private final TokenParser tokenParser;
+        private final RequiredClaims requiredClaims;
+        private final PolicyEvaluationQueue evaluationQueue;
 
         @Autowired
-        public PolicyTokenAuthorizerFactory(ObjectMapper objectMapper, PermissionChecker permissionChecker) {
+        public PolicyTokenAuthorizerFactory(ObjectMapper objectMapper,
+                                            PermissionChecker permissionChecker,
+                                            PolicyDecisionCache decisionCache,
+                                            TokenPrecheck tokenPrecheck,
+                                            PolicyConfig policyConfig,
+                                            TokenParser tokenParser,
+                                            RequiredClaims requiredClaims,
+                                            PolicyEvaluationQueue evaluationQueue) {
             super(objectMapper, log);
             this.permissionChecker = permissionChecker;
+            this.decisionCache = decisionCache;
+            this.tokenPrecheck = tokenPrecheck;
+            this.policyConfig = policyConfig;
+            this.tokenParser = tokenParser;
+            this.requiredClaims = requiredClaims;
+            this.evaluationQueue = evaluationQueue;
         }
 
         @Override
@@ -71,7 +189,10 @@ public class PolicyTokenAuthorizer implements TokenAuthorizer {
             Objects.requireNonNull(config.getScopes(), "Must defined 'scopes' for wallet-policy-authorizer");
             Objects.requireNonNull(config.getResource(), "Must defined 'resource' for wallet-policy-authorizer");
             Objects.requireNonNull(config.getActions(), "Must defined 'actions' for wallet-policy-authorizer");
-            return new PolicyTokenAuthorizer(config, permissionChecker);
+            if (policyConfig.getTokenActions().isEnabled()) {
+                requiredClaims.require(WalletGrants.PROJECTION);
+            }
+            return new PolicyTokenAuthorizer(config, permissionChecker, decisionCache, tokenPrecheck, policyConfig.getTokenActions(), tokenParser, evaluationQueue);
         }
 
         @Data
@@ -10,11 +10,18 @@ import org.springframework.stereotype.Component;
 
 public class PublicAuthorizer implements TokenAuthorizer {
 
+    private static final AuthorizationDecision ALLOWED = AuthorizationDecision.builder()
+                                                                              .allowed(true)
+                                                                              .build();
+
+    @Override
+    public AuthorizationDecision getConstantDecision() {
+        return ALLOWED;
+    }
+
     @Override
     public AuthorizationDecision handleNoToken() {
-        return AuthorizationDecision.builder()
-                                    .allowed(true)
-                                    .build();
+        return ALLOWED;
     }
 
     @Override
@@ -0,0 +1,19 @@
+package com.dnastack.gatekeeper.authorizer;
+
+import com.dnastack.gatekeeper.token.InboundTokens;
+import reactor.core.publisher.Mono;
+
+/**
+ * An authorizer whose decisions may wait on I/O. Gatekeeper subscribes to {@link #handleTokensReactive(InboundTokens)}
+ * instead of calling {@link #handleTokens(InboundTokens)}, so that no server thread is held while a decision is pending.
+ * <p>
+ * Synchronous authorizers don't need to implement this. Those that declare themselves {@link #isBlocking() blocking}
+ * are moved onto a worker pool instead.
+ */
+public interface ReactiveTokenAuthorizer extends TokenAuthorizer {
+
+    /**
+     * Same contract as {@link #handleTokens(InboundTokens)}, with token problems signalled as errors.
+     */
+    Mono<AuthorizationDecision> handleTokensReactive(InboundTokens tokens);
+}
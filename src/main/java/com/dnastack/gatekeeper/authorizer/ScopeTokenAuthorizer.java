@@ -2,16 +2,16 @@ package com.dnastack.gatekeeper.authorizer;
 
 import com.dnastack.gatekeeper.config.JsonDefinedFactory;
 import com.dnastack.gatekeeper.token.InboundTokens;
+import com.dnastack.gatekeeper.token.RequiredClaims;
 import com.dnastack.gatekeeper.token.TokenParser;
+import com.dnastack.gatekeeper.token.VerifiedToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import io.jsonwebtoken.Claims;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
 
 import java.util.*;
 
@@ -21,53 +21,26 @@ import static java.util.stream.Collectors.toList;
 @RequiredArgsConstructor
 public class ScopeTokenAuthorizer implements TokenAuthorizer {
 
-    private final List<String> requiredScopeList;
+    private final Set<String> requiredScopes;
     private final TokenParser tokenParser;
 
+    @Override
+    public boolean isBlocking() {
+        return tokenParser.mayBlock();
+    }
+
     @Override
     public AuthorizationDecision handleTokens(InboundTokens tokens) {
         // In the beacon network, sometimes ID tokens are used in place of access tokens
-        final Claims claims = tokenParser.parseAndValidateJws(Optional.ofNullable(tokens.getAccessToken()).orElse(tokens.getIdToken())).getBody();
-
-        //1. Get the list of scopes from authtoken
-        //2. Make sure that it contains all the scopes that are there in REQUIRED_SCOPE env variable
-
-        /**
-         * "scope" & "scopes" are both acceptable identifiers for OAuth scopes.
-         * "scope" is the draft standard.
-         * "scopes" is what DAM returns currently.
-         * Hence, we check for both of them.
-         */
-
-        String scope = (String) claims.get("scope");
-        List<String> scopeList = (List<String>) claims.get("scopes");
-        List<String> authTokenScopes;
-
-        if (!StringUtils.isEmpty(scope)) {
-            authTokenScopes =  Arrays.asList(scope.split("\\s+"));
-        } else {
-            if (scopeList != null) {
-                authTokenScopes = scopeList;
-            } else {
-                authTokenScopes = List.of();
-            }
-        }
-
-        List<String> requiredScopes = requiredScopeList;
+        final VerifiedToken token = tokenParser.parseAndValidate(tokens, Optional.ofNullable(tokens.getAccessToken()).orElse(tokens.getIdToken()));
 
-        Set<String> authTokenScopesSet = new HashSet<String>(authTokenScopes);
-        Set<String> requiredScopesSet = new HashSet<String>(requiredScopes);
+        // Make sure the token has all the scopes that are there in REQUIRED_SCOPE env variable
+        final Set<String> authTokenScopes = token.project(ClaimProjections.SCOPES);
 
-        if (authTokenScopesSet.containsAll(requiredScopesSet)) {
-            return AuthorizationDecision.builder()
-                                        .allowed(true)
-                                        .decisionInfo(StandardDecisions.ACCESS_GRANTED)
-                                        .build();
+        if (authTokenScopes.containsAll(requiredScopes)) {
+            return AuthorizationDecision.ACCESS_GRANTED;
         } else {
-            return AuthorizationDecision.builder()
-                                        .allowed(false)
-                                        .decisionInfo(StandardDecisions.INSUFFICIENT_CREDENTIALS)
-                                        .build();
+            return AuthorizationDecision.INSUFFICIENT_CREDENTIALS;
         }
     }
 
@@ -76,11 +49,13 @@ public class ScopeTokenAuthorizer implements TokenAuthorizer {
     public static class ScopeTokenAuthorizerFactory extends JsonDefinedFactory<ScopeTokenAuthorizerFactory.Config, TokenAuthorizer> {
 
         private final TokenParser tokenParser;
+        private final RequiredClaims requiredClaims;
 
         @Autowired
-        public ScopeTokenAuthorizerFactory(ObjectMapper objectMapper, TokenParser tokenParser) {
+        public ScopeTokenAuthorizerFactory(ObjectMapper objectMapper, TokenParser tokenParser, RequiredClaims requiredClaims) {
             super(objectMapper, log);
             this.tokenParser = tokenParser;
+            this.requiredClaims = requiredClaims;
         }
 
         @Override
@@ -90,7 +65,8 @@ public class ScopeTokenAuthorizer implements TokenAuthorizer {
 
         @Override
         protected TokenAuthorizer create(Config config) {
-            return new ScopeTokenAuthorizer(config.scopeList(), tokenParser);
+            requiredClaims.require(ClaimProjections.SCOPES);
+            return new ScopeTokenAuthorizer(Set.copyOf(config.scopeList()), tokenParser);
         }
 
         @Data
@@ -15,9 +15,22 @@ public interface TokenAuthorizer {
     @Builder
     @Value
     class AuthorizationDecision {
+        /*
+         * Shared decisions for the standard outcomes, so that authorizers don't create one per request.
+         */
+        public static final AuthorizationDecision ACCESS_GRANTED = standard(true, StandardDecisions.ACCESS_GRANTED);
+        public static final AuthorizationDecision INSUFFICIENT_CREDENTIALS = standard(false, StandardDecisions.INSUFFICIENT_CREDENTIALS);
+        public static final AuthorizationDecision REQUIRES_CREDENTIALS = standard(false, StandardDecisions.REQUIRES_CREDENTIALS);
+        public static final AuthorizationDecision EXPIRED_CREDENTIALS = standard(false, StandardDecisions.EXPIRED_CREDENTIALS);
+        public static final AuthorizationDecision MALFORMED_CREDENTIALS = standard(false, StandardDecisions.MALFORMED_CREDENTIALS);
+
         boolean allowed;
         @Singular
         List<DecisionInfo> decisionInfos;
+
+        private static AuthorizationDecision standard(boolean allowed, StandardDecisions decisionInfo) {
+            return builder().allowed(allowed).decisionInfo(decisionInfo).build();
+        }
     }
 
     interface DecisionInfo {
@@ -60,24 +73,31 @@ public interface TokenAuthorizer {
     }
 
     default AuthorizationDecision handleNoToken() {
-        return AuthorizationDecision.builder()
-                                    .allowed(false)
-                                    .decisionInfo(StandardDecisions.REQUIRES_CREDENTIALS)
-                                    .build();
+        return AuthorizationDecision.REQUIRES_CREDENTIALS;
     }
 
     default AuthorizationDecision handleExpiredToken() {
-        return AuthorizationDecision.builder()
-                                    .allowed(false)
-                                    .decisionInfo(StandardDecisions.EXPIRED_CREDENTIALS)
-                                    .build();
+        return AuthorizationDecision.EXPIRED_CREDENTIALS;
     }
 
     default AuthorizationDecision handleInvalidToken() {
-        return AuthorizationDecision.builder()
-                                    .allowed(false)
-                                    .decisionInfo(StandardDecisions.MALFORMED_CREDENTIALS)
-                                    .build();
+        return AuthorizationDecision.MALFORMED_CREDENTIALS;
+    }
+
+    /**
+     * The decision this authorizer makes for every request, whatever tokens it carries, or null if it depends on them.
+     * ACL items with a constant decision are resolved once when the gateway starts instead of on every request.
+     */
+    default AuthorizationDecision getConstantDecision() {
+        return null;
+    }
+
+    /**
+     * Whether {@link #handleTokens(InboundTokens)} may block on I/O. Blocking authorizers are run on a bounded elastic
+     * worker instead of the server thread.
+     */
+    default boolean isBlocking() {
+        return false;
     }
 
     /**
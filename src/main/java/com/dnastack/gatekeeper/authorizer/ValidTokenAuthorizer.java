@@ -17,15 +17,17 @@ public class ValidTokenAuthorizer implements TokenAuthorizer {
 
     private final TokenParser tokenParser;
 
+    @Override
+    public boolean isBlocking() {
+        return tokenParser.mayBlock();
+    }
+
     @Override
     public AuthorizationDecision handleTokens(InboundTokens tokens) {
         // In the beacon network, sometimes ID tokens are used in place of access tokens
-        tokenParser.parseAndValidateJws(Optional.ofNullable(tokens.getAccessToken()).orElse(tokens.getIdToken()));
+        tokenParser.parseAndValidateJws(tokens, Optional.ofNullable(tokens.getAccessToken()).orElse(tokens.getIdToken()));
 
-        return AuthorizationDecision.builder()
-                                    .allowed(true)
-                                    .decisionInfo(StandardDecisions.ACCESS_GRANTED)
-                                    .build();
+        return AuthorizationDecision.ACCESS_GRANTED;
     }
 
     @Slf4j
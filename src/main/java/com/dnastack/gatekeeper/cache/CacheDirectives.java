@@ -0,0 +1,52 @@
+package com.dnastack.gatekeeper.cache;
+
+import org.springframework.http.HttpHeaders;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The directives of the Cache-Control headers of a request or response.
+ */
+final class CacheDirectives {
+
+    private final Map<String, String> directives;
+
+    private CacheDirectives(Map<String, String> directives) {
+        this.directives = directives;
+    }
+
+    static CacheDirectives of(HttpHeaders headers) {
+        final Map<String, String> directives = new HashMap<>();
+        for (String header : headers.getOrEmpty(HttpHeaders.CACHE_CONTROL)) {
+            for (String directive : header.split(",")) {
+                final int equals = directive.indexOf('=');
+                final String name = (equals < 0 ? directive : directive.substring(0, equals)).trim().toLowerCase(Locale.ROOT);
+                if (!name.isEmpty()) {
+                    directives.put(name, equals < 0 ? "" : directive.substring(equals + 1).trim().replace("\"", ""));
+                }
+            }
+        }
+        return new CacheDirectives(directives);
+    }
+
+    boolean has(String name) {
+        return directives.containsKey(name);
+    }
+
+    /**
+     * @return The value of a directive in seconds, or -1 if it is absent or not a number.
+     */
+    long seconds(String name) {
+        final String value = directives.get(name);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Math.max(0, Long.parseLong(value));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.dnastack.gatekeeper.cache;
+
+import lombok.Value;
+import org.springframework.http.HttpHeaders;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An upstream response body with the headers to replay it with. Stale entries are kept while they may still be served
+ * during a revalidation, or revalidated with their validators.
+ */
+@Value
+class CachedResponse {
+
+    // Rough per-entry overhead of the key, header map and cache bookkeeping
+    private static final long ENTRY_OVERHEAD_BYTES = 512;
+
+    HttpHeaders headers;
+    byte[] body;
+    long storedAtMillis;
+    long freshUntilMillis;
+    /**
+     * Until when the entry may be served stale while it is revalidated in the background.
+     */
+    long staleUntilMillis;
+    /**
+     * Until when the entry is kept at all.
+     */
+    long retainUntilMillis;
+
+    boolean isFresh(long nowMillis) {
+        return nowMillis < freshUntilMillis;
+    }
+
+    boolean isServableWhileStale(long nowMillis) {
+        return nowMillis < staleUntilMillis;
+    }
+
+    boolean hasValidators() {
+        return headers.getETag() != null || headers.getLastModified() >= 0;
+    }
+
+    long ageSeconds(long nowMillis) {
+        return Math.max(0, (nowMillis - storedAtMillis) / 1000);
+    }
+
+    long weight() {
+        long weight = ENTRY_OVERHEAD_BYTES + body.length;
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            weight += 2L * header.getKey().length();
+            for (String value : header.getValue()) {
+                weight += 2L * value.length();
+            }
+        }
+        return weight;
+    }
+}
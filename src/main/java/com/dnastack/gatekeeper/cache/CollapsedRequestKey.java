@@ -0,0 +1,21 @@
+package com.dnastack.gatekeeper.cache;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+class CollapsedRequestKey {
+    String gatewayId;
+    String accessControlItemId;
+    String method;
+    /**
+     * The outbound path, after the ACL item's path template was applied.
+     */
+    String path;
+    String rawQuery;
+    /**
+     * Values of the conditional and range headers, then of the configured vary headers.
+     */
+    List<List<String>> headerValues;
+}
@@ -0,0 +1,389 @@
+package com.dnastack.gatekeeper.cache;
+
+import com.dnastack.gatekeeper.config.GatekeeperConfig;
+import com.dnastack.gatekeeper.gateway.UpstreamResponseFilter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shares one upstream exchange between concurrent identical GET and HEAD requests. The first request goes upstream,
+ * and requests arriving while its response is in flight get the same status, headers and body, streamed as it arrives.
+ * <p>
+ * Requests only join while less than the configured buffer size of the body has been received, since the body is kept
+ * for late joiners. Responses that are specific to one client, with Set-Cookie or Cache-Control private, and streamed
+ * responses are not shared: requests waiting on them go upstream on their own.
+ * <p>
+ * Followers read at their own pace, but never fall more than the buffer size behind the upstream body. One that does
+ * goes upstream on its own if it hasn't started writing its response yet, and is cut off otherwise.
+ */
+@Component
+public class RequestCollapser implements MeterBinder {
+
+    public static final String COLLAPSED_HEADER = "X-Gatekeeper-Collapsed";
+
+    private static final List<String> CONDITIONAL_HEADERS = List.of(HttpHeaders.IF_NONE_MATCH,
+                                                                    HttpHeaders.IF_MODIFIED_SINCE,
+                                                                    HttpHeaders.IF_MATCH,
+                                                                    HttpHeaders.IF_UNMODIFIED_SINCE,
+                                                                    HttpHeaders.IF_RANGE,
+                                                                    HttpHeaders.RANGE);
+    private static final Set<String> UNSHARED_HEADERS = Set.of(HttpHeaders.CONNECTION.toLowerCase(Locale.ROOT),
+                                                               "keep-alive",
+                                                               HttpHeaders.TRANSFER_ENCODING.toLowerCase(Locale.ROOT),
+                                                               HttpHeaders.TE.toLowerCase(Locale.ROOT),
+                                                               HttpHeaders.TRAILER.toLowerCase(Locale.ROOT),
+                                                               HttpHeaders.UPGRADE.toLowerCase(Locale.ROOT),
+                                                               HttpHeaders.PROXY_AUTHENTICATE.toLowerCase(Locale.ROOT));
+
+    private final ConcurrentMap<CollapsedRequestKey, Flight> flights = new ConcurrentHashMap<>();
+    private final LongAdder leaders = new LongAdder();
+    private final LongAdder followers = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+    private final LongAdder laggards = new LongAdder();
+
+    /**
+     * Forwards the exchange along the chain, unless an identical request is already in flight.
+     *
+     * @param exchange An exchange whose request already has its outbound path, and that went through
+     *                 {@link UpstreamResponseFilter}.
+     */
+    public Mono<Void> filter(ServerWebExchange exchange,
+                             GatewayFilterChain chain,
+                             String gatewayId,
+                             String accessControlItemId,
+                             GatekeeperConfig.RequestCollapsing collapsing) {
+        final HttpMethod method = exchange.getRequest().getMethod();
+        if (method != HttpMethod.GET && method != HttpMethod.HEAD) {
+            return chain.filter(exchange);
+        }
+
+        final CollapsedRequestKey key = keyOf(gatewayId, accessControlItemId, collapsing, exchange.getRequest());
+        return Mono.defer(() -> {
+            final Flight created = new Flight(key, collapsing.getMaxBufferBytes());
+            final Flight inFlight = flights.putIfAbsent(key, created);
+            if (inFlight == null) {
+                return lead(created, exchange, chain);
+            }
+            final Follower follower = inFlight.join();
+            if (follower == null) {
+                return chain.filter(exchange);
+            }
+            return follow(follower, exchange, chain);
+        });
+    }
+
+    static CollapsedRequestKey keyOf(String gatewayId,
+                                     String accessControlItemId,
+                                     GatekeeperConfig.RequestCollapsing collapsing,
+                                     ServerHttpRequest request) {
+        final List<List<String>> headerValues = new ArrayList<>(CONDITIONAL_HEADERS.size() + collapsing.getVaryHeaders().size());
+        for (String header : CONDITIONAL_HEADERS) {
+            headerValues.add(request.getHeaders().getOrEmpty(header));
+        }
+        for (String header : collapsing.getVaryHeaders()) {
+            headerValues.add(request.getHeaders().getOrEmpty(header));
+        }
+        return new CollapsedRequestKey(gatewayId,
+                                       accessControlItemId,
+                                       request.getMethodValue(),
+                                       request.getPath().value(),
+                                       request.getURI().getRawQuery(),
+                                       headerValues);
+    }
+
+    private Mono<Void> lead(Flight flight, ServerWebExchange exchange, GatewayFilterChain chain) {
+        leaders.increment();
+        final Set<String> gatewayHeaderNames = new LinkedHashSet<>();
+        exchange.getResponse().getHeaders().keySet().forEach(name -> gatewayHeaderNames.add(name.toLowerCase(Locale.ROOT)));
+        // The chain completes once the upstream head arrives, so the flight is driven by the body written after it
+        UpstreamResponseFilter.intercept(exchange, delegate -> new LeaderResponse(delegate, flight, gatewayHeaderNames));
+        UpstreamResponseFilter.onTermination(exchange, () -> flight.fail(new CancellationException("Collapsed request ended before its response was written")));
+        return chain.filter(exchange);
+    }
+
+    private Mono<Void> follow(Follower follower, ServerWebExchange exchange, GatewayFilterChain chain) {
+        followers.increment();
+        final ServerHttpResponse response = exchange.getResponse();
+        return follower.head
+            .flatMap(head -> {
+                response.setRawStatusCode(head.status);
+                response.getHeaders().putAll(head.headers);
+                response.getHeaders().set(COLLAPSED_HEADER, "true");
+                return response.writeWith(follower.body.map(bytes -> response.bufferFactory().wrap(bytes)))
+                               .onErrorResume(NotShared.class, e -> {
+                                   if (response.isCommitted()) {
+                                       laggards.increment();
+                                       return Mono.error(new CancellationException("Collapsed request fell too far behind the upstream response"));
+                                   }
+                                   head.headers.keySet().forEach(response.getHeaders()::remove);
+                                   response.getHeaders().remove(COLLAPSED_HEADER);
+                                   return Mono.error(e);
+                               });
+            })
+            .onErrorResume(NotShared.class, e -> {
+                fallbacks.increment();
+                return chain.filter(exchange);
+            });
+    }
+
+    private static final class Head {
+        private final int status;
+        private final HttpHeaders headers;
+
+        private Head(int status, HttpHeaders headers) {
+            this.status = status;
+            this.headers = headers;
+        }
+    }
+
+    private static final class Follower {
+        private final Mono<Head> head;
+        private final Flux<byte[]> body;
+
+        private Follower(Mono<Head> head, Flux<byte[]> body) {
+            this.head = head;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Signals followers that the leader's response can't be shared, so they should go upstream themselves.
+     */
+    private static final class NotShared extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private NotShared() {
+            super("Response of collapsed request is not shared", null, false, false);
+        }
+    }
+
+    /**
+     * The body of one follower, buffered until its client reads it. Once more than the buffer size is waiting, the
+     * follower gets {@link NotShared} ahead of anything still buffered, and the buffer is dropped.
+     */
+    private static final class FollowerBody {
+        private final Sinks.Many<byte[]> chunks = Sinks.many().unicast().onBackpressureBuffer();
+        private final Sinks.One<Boolean> overflow = Sinks.one();
+        private final AtomicLong pendingBytes = new AtomicLong();
+        private volatile boolean overflowed;
+
+        /**
+         * @return False if the follower no longer takes chunks, because it fell too far behind or went away.
+         */
+        private boolean offer(byte[] chunk, long maxBufferBytes) {
+            final long pending = pendingBytes.addAndGet(chunk.length);
+            // A follower that read everything so far isn't behind, however large the chunk
+            if (pending > maxBufferBytes && pending > chunk.length) {
+                overflowed = true;
+                overflow.tryEmitValue(true);
+                return false;
+            }
+            return chunks.tryEmitNext(chunk).isSuccess();
+        }
+
+        private Flux<byte[]> asFlux() {
+            // Overflow is checked before the chunks are subscribed, so a follower that fell behind before it started
+            // reading doesn't start, and cancelling the chunks drops whatever they still buffer
+            return chunks.asFlux()
+                         .takeUntilOther(overflow.asMono())
+                         .concatWith(Mono.defer(() -> overflowed ? Mono.error(new NotShared()) : Mono.empty()))
+                         .doOnNext(chunk -> pendingBytes.addAndGet(-chunk.length));
+        }
+    }
+
+    /**
+     * One upstream exchange and the requests waiting on it. Followers get their own copy of the body received so far
+     * when they join, then every later chunk.
+     */
+    private final class Flight {
+        private final CollapsedRequestKey key;
+        private final long maxBufferBytes;
+        private final Sinks.One<Head> head = Sinks.one();
+        private final List<byte[]> received = new ArrayList<>();
+        private final List<FollowerBody> bodies = new ArrayList<>();
+        private long receivedBytes;
+        private boolean headPublished;
+        private boolean closed;
+
+        private Flight(CollapsedRequestKey key, long maxBufferBytes) {
+            this.key = key;
+            this.maxBufferBytes = maxBufferBytes;
+        }
+
+        /**
+         * @return A follower of this flight, or null if it no longer takes followers.
+         */
+        private synchronized Follower join() {
+            if (closed) {
+                return null;
+            }
+            final FollowerBody body = new FollowerBody();
+            received.forEach(chunk -> body.offer(chunk, maxBufferBytes));
+            bodies.add(body);
+            return new Follower(head.asMono(), body.asFlux());
+        }
+
+        /**
+         * Stops taking followers. Those that already joined are still served.
+         */
+        private synchronized void close() {
+            if (!closed) {
+                closed = true;
+                received.clear();
+                flights.remove(key, this);
+            }
+        }
+
+        private synchronized void publishHead(int status, HttpHeaders headers) {
+            headPublished = true;
+            head.tryEmitValue(new Head(status, headers));
+        }
+
+        private synchronized void abandon() {
+            close();
+            if (!headPublished) {
+                headPublished = true;
+                head.tryEmitError(new NotShared());
+                bodies.forEach(body -> body.chunks.tryEmitComplete());
+                bodies.clear();
+            }
+        }
+
+        private synchronized void next(byte[] chunk) {
+            if (!closed) {
+                receivedBytes += chunk.length;
+                if (receivedBytes > maxBufferBytes) {
+                    overflows.increment();
+                    close();
+                } else {
+                    received.add(chunk);
+                }
+            }
+            bodies.removeIf(body -> !body.offer(chunk, maxBufferBytes));
+        }
+
+        private synchronized void complete() {
+            abandon();
+            bodies.forEach(body -> body.chunks.tryEmitComplete());
+        }
+
+        private synchronized void fail(Throwable error) {
+            abandon();
+            bodies.forEach(body -> body.chunks.tryEmitError(error));
+        }
+    }
+
+    /**
+     * Publishes the upstream response to the followers of a flight as it is written to the leader's client.
+     */
+    private static final class LeaderResponse extends ServerHttpResponseDecorator {
+        private final Flight flight;
+        private final Set<String> gatewayHeaderNames;
+
+        private LeaderResponse(ServerHttpResponse delegate, Flight flight, Set<String> gatewayHeaderNames) {
+            super(delegate);
+            this.flight = flight;
+            this.gatewayHeaderNames = gatewayHeaderNames;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            final Integer status = getRawStatusCode();
+            final HttpHeaders headers = getHeaders();
+            if (status == null || headers.containsKey(HttpHeaders.SET_COOKIE) || CacheDirectives.of(headers).has("private")) {
+                flight.abandon();
+                return super.writeWith(body);
+            }
+            if (headers.getContentLength() > flight.maxBufferBytes) {
+                flight.close();
+            }
+            flight.publishHead(status, sharedHeaders());
+            return super.writeWith(Flux.from(body)
+                                       .doOnNext(buffer -> {
+                                           final ByteBuffer readable = buffer.asByteBuffer();
+                                           final byte[] chunk = new byte[readable.remaining()];
+                                           readable.get(chunk);
+                                           flight.next(chunk);
+                                       })
+                                       .doOnComplete(flight::complete)
+                                       .doOnError(flight::fail)
+                                       .doOnCancel(() -> flight.fail(new CancellationException("Collapsed request was cancelled"))));
+        }
+
+        @Override
+        public Mono<Void> setComplete() {
+            flight.abandon();
+            return super.setComplete();
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            flight.abandon();
+            return super.writeAndFlushWith(body);
+        }
+
+        /**
+         * The response headers set by upstream, leaving out those the gateway had already set for the client.
+         */
+        private HttpHeaders sharedHeaders() {
+            final HttpHeaders headers = new HttpHeaders();
+            getHeaders().forEach((name, values) -> {
+                final String lowerCaseName = name.toLowerCase(Locale.ROOT);
+                if (!UNSHARED_HEADERS.contains(lowerCaseName) && !gatewayHeaderNames.contains(lowerCaseName)) {
+                    headers.put(name, List.copyOf(values));
+                }
+            });
+            return HttpHeaders.readOnlyHttpHeaders(headers);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("gatekeeper.request.collapsing.leaders", leaders, LongAdder::sum)
+                       .description("Requests sent upstream that others could join")
+                       .register(registry);
+        FunctionCounter.builder("gatekeeper.request.collapsing.followers", followers, LongAdder::sum)
+                       .description("Requests that joined an identical request already in flight")
+                       .register(registry);
+        FunctionCounter.builder("gatekeeper.request.collapsing.fallbacks", fallbacks, LongAdder::sum)
+                       .description("Joined requests sent upstream on their own, since the response could not be shared")
+                       .register(registry);
+        FunctionCounter.builder("gatekeeper.request.collapsing.overflows", overflows, LongAdder::sum)
+                       .description("Upstream exchanges that stopped taking followers after exceeding the buffer size")
+                       .register(registry);
+        FunctionCounter.builder("gatekeeper.request.collapsing.laggards", laggards, LongAdder::sum)
+                       .description("Joined requests cut off for falling more than the buffer size behind the upstream response")
+                       .register(registry);
+        Gauge.builder("gatekeeper.request.collapsing.in.flight", flights, ConcurrentMap::size)
+             .description("Upstream exchanges currently taking followers")
+             .register(registry);
+    }
+}
@@ -0,0 +1,437 @@
+package com.dnastack.gatekeeper.cache;
+
+import com.dnastack.gatekeeper.config.GatekeeperConfig;
+import com.dnastack.gatekeeper.gateway.UpstreamResponseFilter;
+import com.dnastack.gatekeeper.util.BoundedExpiringCache;
+import com.dnastack.gatekeeper.util.SyntheticServerHttpRequest;
+import com.dnastack.gatekeeper.util.SyntheticServerHttpResponse;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.adapter.DefaultServerWebExchange;
+import org.springframework.web.server.i18n.AcceptHeaderLocaleContextResolver;
+import org.springframework.web.server.session.DefaultWebSessionManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ORIGINAL_REQUEST_URL_ATTR;
+
+/**
+ * A shared cache of upstream responses for ACL items with a cache config. Only GET requests are cached, and only
+ * complete 200 responses that upstream allows shared caches to store and whose Vary headers are all configured on the
+ * item. Client Cache-Control directives are ignored, so that clients can't push load onto upstream.
+ * <p>
+ * Stale entries are revalidated with If-None-Match or If-Modified-Since. Within the stale-while-revalidate window, the
+ * stale entry is served right away, and a single revalidation per entry runs in the background.
+ */
+@Slf4j
+@Component
+public class ResponseCache implements MeterBinder {
+
+    public static final String PUBLIC_AUTHORIZER = "public-authorizer";
+    public static final String CACHE_STATUS_HEADER = "X-Gatekeeper-Cache";
+
+    private static final Set<String> UNCACHED_HEADERS = Set.of(HttpHeaders.CONNECTION.toLowerCase(Locale.ROOT),
+                                                               "keep-alive",
+                                                               HttpHeaders.TRANSFER_ENCODING.toLowerCase(Locale.ROOT),
+                                                               HttpHeaders.TE.toLowerCase(Locale.ROOT),
+                                                               HttpHeaders.TRAILER.toLowerCase(Locale.ROOT),
+                                                               HttpHeaders.UPGRADE.toLowerCase(Locale.ROOT),
+                                                               HttpHeaders.PROXY_AUTHENTICATE.toLowerCase(Locale.ROOT),
+                                                               HttpHeaders.SET_COOKIE.toLowerCase(Locale.ROOT),
+                                                               HttpHeaders.CONTENT_LENGTH.toLowerCase(Locale.ROOT),
+                                                               HttpHeaders.AGE.toLowerCase(Locale.ROOT),
+                                                               CACHE_STATUS_HEADER.toLowerCase(Locale.ROOT));
+
+    private final ResponseCacheConfig config;
+    private final Clock clock;
+    private final BoundedExpiringCache<ResponseCacheKey, CachedResponse> cache;
+    private final Set<ResponseCacheKey> revalidating = ConcurrentHashMap.newKeySet();
+    private final LongAdder revalidations = new LongAdder();
+    private final ServerCodecConfigurer codecConfigurer = ServerCodecConfigurer.create();
+    private final UpstreamResponseFilter upstreamResponseFilter = new UpstreamResponseFilter();
+    private final GlobalFilter writeResponseFilter;
+
+    @Autowired
+    public ResponseCache(ResponseCacheConfig config, NettyWriteResponseFilter writeResponseFilter) {
+        this(config, writeResponseFilter, Clock.systemUTC());
+    }
+
+    /**
+     * @param writeResponseFilter Writes the upstream body of background revalidations.
+     */
+    ResponseCache(ResponseCacheConfig config, GlobalFilter writeResponseFilter, Clock clock) {
+        this.config = config;
+        this.writeResponseFilter = writeResponseFilter;
+        this.clock = clock;
+        this.cache = config.isEnabled()
+            ? new BoundedExpiringCache<>(config.getMaxEntries(), config.getMaxBytes(), clock)
+            : new BoundedExpiringCache<>(0, 0, clock);
+    }
+
+    public boolean isEnabled() {
+        return cache.isEnabled();
+    }
+
+    /**
+     * @return The key the given exchange is cached under. The request must already have its outbound path.
+     */
+    public static ResponseCacheKey keyOf(String gatewayId, GatekeeperConfig.AccessControlItem accessControlItem, ServerHttpRequest request) {
+        final List<String> varyHeaders = accessControlItem.getCache().getVaryHeaders();
+        final List<List<String>> varyValues = new ArrayList<>(varyHeaders.size());
+        for (String varyHeader : varyHeaders) {
+            varyValues.add(request.getHeaders().getOrEmpty(varyHeader));
+        }
+        return new ResponseCacheKey(gatewayId,
+                                    accessControlItem.getId(),
+                                    request.getPath().value(),
+                                    request.getURI().getRawQuery(),
+                                    varyValues);
+    }
+
+    /**
+     * Serves the exchange from cache, or forwards it along the chain and caches the response.
+     *
+     * @param exchange An exchange whose request already has its outbound path, and that went through
+     *                 {@link UpstreamResponseFilter}.
+     */
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain, ResponseCacheKey key, GatekeeperConfig.ResponseCaching caching) {
+        if (!isEnabled() || exchange.getRequest().getMethod() != HttpMethod.GET) {
+            return chain.filter(exchange);
+        }
+
+        final CachedResponse cached = cache.get(key);
+        final long now = clock.millis();
+        if (cached != null && cached.isFresh(now)) {
+            return serve(exchange.getRequest(), exchange.getResponse(), cached, "HIT", now);
+        }
+        if (cached != null && cached.isServableWhileStale(now)) {
+            if (revalidating.add(key)) {
+                revalidateInBackground(exchange, chain, key, cached, caching);
+            }
+            return serve(exchange.getRequest(), exchange.getResponse(), cached, "STALE", now);
+        }
+        return forward(exchange, chain, key, cached != null && cached.hasValidators() ? cached : null, caching);
+    }
+
+    private Mono<Void> serve(ServerHttpRequest request, ServerHttpResponse response, CachedResponse cached, String cacheStatus, long now) {
+        final HttpHeaders headers = response.getHeaders();
+        headers.putAll(cached.getHeaders());
+        headers.set(HttpHeaders.AGE, Long.toString(cached.ageSeconds(now)));
+        headers.set(CACHE_STATUS_HEADER, cacheStatus);
+
+        if (matchesClientValidators(request, cached)) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+        response.setStatusCode(HttpStatus.OK);
+        headers.setContentLength(cached.getBody().length);
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(cached.getBody())));
+    }
+
+    private static boolean matchesClientValidators(ServerHttpRequest request, CachedResponse cached) {
+        final String etag = cached.getHeaders().getETag();
+        final List<String> ifNoneMatch = request.getHeaders().getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            return etag != null && (ifNoneMatch.contains(etag) || ifNoneMatch.contains("*"));
+        }
+        final long lastModified = cached.getHeaders().getLastModified();
+        final long ifModifiedSince = dateMillis(request.getHeaders(), HttpHeaders.IF_MODIFIED_SINCE);
+        return lastModified >= 0 && ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    /**
+     * Sends a copy of the request through the rest of the chain, detached from the client exchange, and replaces the
+     * cached entry with the outcome.
+     */
+    private void revalidateInBackground(ServerWebExchange exchange,
+                                        GatewayFilterChain chain,
+                                        ResponseCacheKey key,
+                                        CachedResponse cached,
+                                        GatekeeperConfig.ResponseCaching caching) {
+        final ServerHttpRequest request = exchange.getRequest();
+        final HttpHeaders headers = new HttpHeaders();
+        headers.addAll(request.getHeaders());
+        final ServerWebExchange revalidation = new DefaultServerWebExchange(new SyntheticServerHttpRequest(request.getURI(), headers),
+                                                                            new SyntheticServerHttpResponse(),
+                                                                            new DefaultWebSessionManager(),
+                                                                            codecConfigurer,
+                                                                            new AcceptHeaderLocaleContextResolver());
+        revalidation.getAttributes().putAll(exchange.getAttributes());
+        // Gateway filters add to this set, which must not be shared with the client exchange
+        final Set<?> originalUrls = exchange.getAttribute(GATEWAY_ORIGINAL_REQUEST_URL_ATTR);
+        if (originalUrls != null) {
+            revalidation.getAttributes().put(GATEWAY_ORIGINAL_REQUEST_URL_ATTR, new LinkedHashSet<>(originalUrls));
+        }
+
+        revalidations.increment();
+        // The client exchange is past the write response filter, so the revalidation needs its own to consume the body
+        upstreamResponseFilter.filter(revalidation, e -> writeResponseFilter.filter(e, r -> forward(r, chain, key, cached.hasValidators() ? cached : null, caching)))
+            .doFinally(signal -> revalidating.remove(key))
+            .subscribe(null, e -> log.warn("Unable to revalidate cached response for [{}]: {}", key.getPath(), e.getMessage()));
+    }
+
+    /**
+     * @param revalidated The entry to revalidate, if it has validators. Null otherwise.
+     */
+    private Mono<Void> forward(ServerWebExchange exchange,
+                               GatewayFilterChain chain,
+                               ResponseCacheKey key,
+                               CachedResponse revalidated,
+                               GatekeeperConfig.ResponseCaching caching) {
+        // A copy, since mutating the request would also change the headers of the client request
+        final HttpHeaders headers = new HttpHeaders();
+        headers.addAll(exchange.getRequest().getHeaders());
+        // Client validators are checked here, so that upstream always sends a body that can be cached
+        headers.remove(HttpHeaders.IF_NONE_MATCH);
+        headers.remove(HttpHeaders.IF_MODIFIED_SINCE);
+        if (revalidated != null && revalidated.getHeaders().getETag() != null) {
+            headers.setIfNoneMatch(revalidated.getHeaders().getETag());
+        } else if (revalidated != null) {
+            headers.setIfModifiedSince(revalidated.getHeaders().getLastModified());
+        }
+        final ServerHttpRequest request = new ServerHttpRequestDecorator(exchange.getRequest()) {
+            @Override
+            public HttpHeaders getHeaders() {
+                return HttpHeaders.readOnlyHttpHeaders(headers);
+            }
+        };
+        final Set<String> gatewayHeaderNames = new LinkedHashSet<>();
+        exchange.getResponse().getHeaders().keySet().forEach(name -> gatewayHeaderNames.add(name.toLowerCase(Locale.ROOT)));
+        UpstreamResponseFilter.intercept(exchange, delegate -> new CachingResponse(delegate, exchange.getRequest(), key, revalidated, caching, gatewayHeaderNames));
+        return chain.filter(exchange.mutate().request(request).build());
+    }
+
+    /**
+     * Copies the upstream body into the cache as it is written to the client.
+     */
+    private class CachingResponse extends ServerHttpResponseDecorator {
+
+        private final ServerHttpRequest clientRequest;
+        private final ResponseCacheKey key;
+        private final CachedResponse revalidated;
+        private final GatekeeperConfig.ResponseCaching caching;
+        private final Set<String> gatewayHeaderNames;
+
+        private CachingResponse(ServerHttpResponse delegate,
+                                ServerHttpRequest clientRequest,
+                                ResponseCacheKey key,
+                                CachedResponse revalidated,
+                                GatekeeperConfig.ResponseCaching caching,
+                                Set<String> gatewayHeaderNames) {
+            super(delegate);
+            this.clientRequest = clientRequest;
+            this.key = key;
+            this.revalidated = revalidated;
+            this.caching = caching;
+            this.gatewayHeaderNames = gatewayHeaderNames;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            final HttpStatus status = getStatusCode();
+            if (revalidated != null && status == HttpStatus.NOT_MODIFIED) {
+                return Flux.from(body)
+                           .doOnNext(DataBufferUtils::release)
+                           .then(Mono.defer(() -> {
+                               final CachedResponse refreshed = refresh(revalidated, upstreamHeaders());
+                               cache.put(key, refreshed, refreshed.weight(), refreshed.getRetainUntilMillis());
+                               getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+                               return serve(clientRequest, getDelegate(), refreshed, "REVALIDATED", clock.millis());
+                           }));
+            }
+
+            getHeaders().set(CACHE_STATUS_HEADER, "MISS");
+            if (status != HttpStatus.OK || !isCacheable(getHeaders(), caching)) {
+                if (CacheDirectives.of(getHeaders()).has("no-store")) {
+                    cache.invalidate(key);
+                }
+                return super.writeWith(body);
+            }
+
+            final HttpHeaders headers = upstreamHeaders();
+            final ByteArrayOutputStream captured = new ByteArrayOutputStream();
+            final boolean[] overflowed = {false};
+            return super.writeWith(Flux.from(body)
+                                       .doOnNext(buffer -> {
+                                           final ByteBuffer readable = buffer.asByteBuffer();
+                                           if (overflowed[0] || captured.size() + readable.remaining() > config.getMaxEntryBytes()) {
+                                               overflowed[0] = true;
+                                               return;
+                                           }
+                                           final byte[] chunk = new byte[readable.remaining()];
+                                           readable.get(chunk);
+                                           captured.writeBytes(chunk);
+                                       })
+                                       .doOnComplete(() -> {
+                                           if (!overflowed[0]) {
+                                               final CachedResponse entry = entry(headers, captured.toByteArray(), caching);
+                                               cache.put(key, entry, entry.weight(), entry.getRetainUntilMillis());
+                                           }
+                                       }));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            if (revalidated != null && getStatusCode() == HttpStatus.NOT_MODIFIED) {
+                // Our own conditional request must never reach the client as a 304
+                return writeWith(Flux.from(body).concatMap(Flux::from));
+            }
+            // Streamed responses are never cached
+            getHeaders().set(CACHE_STATUS_HEADER, "MISS");
+            return super.writeAndFlushWith(body);
+        }
+
+        /**
+         * The response headers set by upstream, leaving out those the gateway had already set for the client.
+         */
+        private HttpHeaders upstreamHeaders() {
+            final HttpHeaders headers = new HttpHeaders();
+            getHeaders().forEach((name, values) -> {
+                final String lowerCaseName = name.toLowerCase(Locale.ROOT);
+                if (!UNCACHED_HEADERS.contains(lowerCaseName) && !gatewayHeaderNames.contains(lowerCaseName)) {
+                    headers.put(name, List.copyOf(values));
+                }
+            });
+            return headers;
+        }
+    }
+
+    private boolean isCacheable(HttpHeaders headers, GatekeeperConfig.ResponseCaching caching) {
+        final CacheDirectives directives = CacheDirectives.of(headers);
+        if (directives.has("no-store") || directives.has("private") || headers.containsKey(HttpHeaders.SET_COOKIE)) {
+            return false;
+        }
+        if (headers.getContentLength() > config.getMaxEntryBytes()) {
+            return false;
+        }
+        for (String vary : headers.getVary()) {
+            if (caching.getVaryHeaders().stream().noneMatch(vary::equalsIgnoreCase)) {
+                // Includes "*"
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private CachedResponse entry(HttpHeaders headers, byte[] body, GatekeeperConfig.ResponseCaching caching) {
+        final long now = clock.millis();
+        final CacheDirectives directives = CacheDirectives.of(headers);
+
+        long maxAge = directives.seconds("s-maxage");
+        if (maxAge < 0) {
+            maxAge = directives.seconds("max-age");
+        }
+        final long expires = dateMillis(headers, HttpHeaders.EXPIRES);
+        final long freshMillis;
+        if (directives.has("no-cache")) {
+            freshMillis = 0;
+        } else if (maxAge >= 0) {
+            final long age = headers.getFirst(HttpHeaders.AGE) == null ? 0 : parseSeconds(headers.getFirst(HttpHeaders.AGE));
+            freshMillis = (maxAge - age) * 1000;
+        } else if (expires >= 0) {
+            final long date = dateMillis(headers, HttpHeaders.DATE);
+            freshMillis = expires - (date >= 0 ? date : now);
+        } else {
+            freshMillis = caching.getDefaultMaxAge().toMillis();
+        }
+
+        final long staleMillis;
+        if (directives.has("no-cache") || directives.has("must-revalidate") || directives.has("proxy-revalidate")) {
+            staleMillis = 0;
+        } else if (directives.seconds("stale-while-revalidate") >= 0) {
+            staleMillis = directives.seconds("stale-while-revalidate") * 1000;
+        } else {
+            staleMillis = caching.getStaleWhileRevalidate().toMillis();
+        }
+
+        final long freshUntil = now + Math.max(0, freshMillis);
+        final long staleUntil = freshUntil + staleMillis;
+        final boolean hasValidators = headers.getETag() != null || headers.getLastModified() >= 0;
+        final long retainUntil = Math.max(staleUntil, hasValidators ? freshUntil + config.getRetention().toMillis() : freshUntil);
+        return new CachedResponse(HttpHeaders.readOnlyHttpHeaders(headers), body, now, freshUntil, staleUntil, retainUntil);
+    }
+
+    /**
+     * Applies the headers of a 304 response to a cached entry.
+     */
+    private CachedResponse refresh(CachedResponse cached, HttpHeaders notModifiedHeaders) {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.putAll(cached.getHeaders());
+        headers.putAll(notModifiedHeaders);
+        final GatekeeperConfig.ResponseCaching caching = new GatekeeperConfig.ResponseCaching();
+        caching.setDefaultMaxAge(Duration.ofMillis(Math.max(0, cached.getFreshUntilMillis() - cached.getStoredAtMillis())));
+        caching.setStaleWhileRevalidate(Duration.ofMillis(cached.getStaleUntilMillis() - cached.getFreshUntilMillis()));
+        return entry(headers, cached.getBody(), caching);
+    }
+
+    private static long dateMillis(HttpHeaders headers, String name) {
+        try {
+            return headers.getFirstDate(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private static long parseSeconds(String value) {
+        try {
+            return Math.max(0, Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("gatekeeper.response.cache.hits", cache, BoundedExpiringCache::hitCount)
+                       .description("Response cache lookups that found an entry, fresh or stale")
+                       .register(registry);
+        FunctionCounter.builder("gatekeeper.response.cache.misses", cache, BoundedExpiringCache::missCount)
+                       .description("Response cache lookups that found no entry")
+                       .register(registry);
+        FunctionCounter.builder("gatekeeper.response.cache.evictions", cache, BoundedExpiringCache::evictionCount)
+                       .description("Cached responses evicted to stay within size bounds")
+                       .register(registry);
+        FunctionCounter.builder("gatekeeper.response.cache.revalidations", revalidations, LongAdder::sum)
+                       .description("Stale cached responses revalidated in the background")
+                       .register(registry);
+        Gauge.builder("gatekeeper.response.cache.size", cache, BoundedExpiringCache::size)
+             .description("Responses currently cached")
+             .register(registry);
+        Gauge.builder("gatekeeper.response.cache.bytes", cache, BoundedExpiringCache::weight)
+             .description("Estimated memory held by cached responses")
+             .baseUnit("bytes")
+             .register(registry);
+    }
+}
@@ -0,0 +1,27 @@
+package com.dnastack.gatekeeper.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "gatekeeper.response-cache")
+@Data
+public class ResponseCacheConfig {
+    /**
+     * Turns off caching for all ACL items, regardless of their cache config.
+     */
+    private boolean enabled = true;
+    private long maxEntries = 1_000;
+    private long maxBytes = 32L * 1024 * 1024;
+    /**
+     * Responses with larger bodies are passed through without being cached.
+     */
+    private long maxEntryBytes = 1024 * 1024;
+    /**
+     * How long a stale response with an ETag or Last-Modified date is kept for conditional revalidation.
+     */
+    private Duration retention = Duration.ofMinutes(10);
+}
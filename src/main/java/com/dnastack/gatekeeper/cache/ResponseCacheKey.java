@@ -0,0 +1,20 @@
+package com.dnastack.gatekeeper.cache;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class ResponseCacheKey {
+    String gatewayId;
+    String accessControlItemId;
+    /**
+     * The outbound path, after the ACL item's path template was applied.
+     */
+    String path;
+    String rawQuery;
+    /**
+     * Values of the item's vary headers, in the configured order.
+     */
+    List<List<String>> varyValues;
+}
@@ -9,6 +9,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.cloud.gateway.filter.FilterDefinition;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -26,6 +27,10 @@ public class GatekeeperConfig {
         private List<AccessControlItem> acl;
         @JsonProperty("auth-challenge")
         private AuthenticationChallengeHandler.Config authChallenge;
+        /**
+         * Shares one upstream exchange between concurrent identical GET and HEAD requests that select the same ACL item.
+         */
+        private RequestCollapsing collapsing;
     }
 
     @Data
@@ -69,6 +74,45 @@ public class GatekeeperConfig {
         private String id;
         private TokenAuthorizationConfig authorization;
         private OutboundRequestConfig outbound;
+        /**
+         * Caches upstream responses for requests that select this item. Only allowed on public items.
+         */
+        private ResponseCaching cache;
+    }
+
+    @Data
+    public static class ResponseCaching {
+        /**
+         * Request headers whose values select different cached responses for the same path.
+         */
+        @JsonProperty("vary-headers")
+        private List<String> varyHeaders = new ArrayList<>();
+        /**
+         * How long a response stays fresh when upstream doesn't say.
+         */
+        @JsonProperty("default-max-age")
+        private Duration defaultMaxAge = Duration.ZERO;
+        /**
+         * How long a stale response may still be served while it is revalidated in the background, when upstream
+         * doesn't say.
+         */
+        @JsonProperty("stale-while-revalidate")
+        private Duration staleWhileRevalidate = Duration.ZERO;
+    }
+
+    @Data
+    public static class RequestCollapsing {
+        /**
+         * Request headers whose values must also match for requests to be collapsed.
+         */
+        @JsonProperty("vary-headers")
+        private List<String> varyHeaders = new ArrayList<>();
+        /**
+         * Requests only join an upstream exchange while less than this much of its body has been received. Joined
+         * requests that fall more than this much behind it are cut off.
+         */
+        @JsonProperty("max-buffer-bytes")
+        private long maxBufferBytes = 1024 * 1024;
     }
 
     @Data
@@ -0,0 +1,116 @@
+package com.dnastack.gatekeeper.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Creates instances from {@link JsonDefinedFactory} beans, and hands out the same instance for every config with the
+ * same bean name and args. Args are compared by their canonical JSON form, so key order doesn't matter.
+ * <p>
+ * Instances are only held weakly, so those of gateways that were reloaded away are dropped once no route uses them.
+ * <p>
+ * Everything created through a {@link JsonDefinedFactory} has to be safe to share between gateways: instances only
+ * depend on their config.
+ */
+@Slf4j
+@Component
+public class JsonDefinedRegistry {
+
+    @Value
+    private static class Key {
+        String beanName;
+        String canonicalArgs;
+    }
+
+    private final BeanFactory beanFactory;
+    private final ObjectMapper canonicalMapper;
+    private final ConcurrentMap<Key, InstanceReference> instances = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+
+    private static class InstanceReference extends WeakReference<Object> {
+        private final Key key;
+
+        private InstanceReference(Key key, Object instance, ReferenceQueue<Object> queue) {
+            super(instance, queue);
+            this.key = key;
+        }
+    }
+
+    @Autowired
+    public JsonDefinedRegistry(BeanFactory beanFactory, ObjectMapper objectMapper) {
+        this.beanFactory = beanFactory;
+        this.canonicalMapper = objectMapper.copy().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+    }
+
+    /**
+     * @param beanName The name of a {@link JsonDefinedFactory} bean.
+     * @param args The args section of the config. Null args are distinct from empty args.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getOrCreate(String beanName, Map<String, ?> args) {
+        final String canonicalArgs;
+        try {
+            canonicalArgs = canonicalMapper.writeValueAsString(args);
+        } catch (JsonProcessingException e) {
+            log.warn("Unable to canonicalize args of [{}], creating an unshared instance: {}", beanName, e.getMessage());
+            return JsonDefinedFactory.createFactoryInstance(beanFactory, beanName, args);
+        }
+
+        purgeCollected();
+        final Key key = new Key(beanName, canonicalArgs);
+        final InstanceReference existing = instances.get(key);
+        final Object existingInstance = existing == null ? null : existing.get();
+        if (existingInstance != null) {
+            log.debug("Reusing [{}] instance for args {}", beanName, canonicalArgs);
+            return (T) existingInstance;
+        }
+
+        // Held strongly until returned, since the reference alone could be cleared in between
+        final AtomicReference<Object> instance = new AtomicReference<>();
+        instances.compute(key, (k, reference) -> {
+            final Object current = reference == null ? null : reference.get();
+            if (current != null) {
+                instance.set(current);
+                return reference;
+            }
+            instance.set(JsonDefinedFactory.createFactoryInstance(beanFactory, beanName, args));
+            return new InstanceReference(k, instance.get(), collected);
+        });
+        return (T) instance.get();
+    }
+
+    private void purgeCollected() {
+        InstanceReference reference;
+        while ((reference = (InstanceReference) collected.poll()) != null) {
+            instances.remove(reference.key, reference);
+        }
+    }
+
+    /**
+     * @return True if {@code beanName} names a {@link JsonDefinedFactory} bean, without creating anything from it.
+     */
+    public boolean isDefined(String beanName) {
+        return beanName != null && beanFactory.containsBean(beanName) && beanFactory.isTypeMatch(beanName, JsonDefinedFactory.class);
+    }
+
+    /**
+     * The number of distinct instances still in use, as far as the garbage collector has noticed.
+     */
+    public int size() {
+        purgeCollected();
+        return instances.size();
+    }
+}
@@ -1,9 +1,9 @@
 package com.dnastack.gatekeeper.config;
 
 import com.dnastack.gatekeeper.token.ConfiguredSigningKeyResolver;
+import com.dnastack.gatekeeper.token.TokenConfig;
 import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,24 +12,25 @@ import org.springframework.context.annotation.Configuration;
 public class JwtConfiguration {
 
     private final InboundConfiguration inboundConfiguration;
-    private final BeanFactory beanFactory;
+    private final JsonDefinedRegistry jsonDefinedRegistry;
 
     @Autowired
-    public JwtConfiguration(InboundConfiguration inboundConfiguration, BeanFactory beanFactory) {
+    public JwtConfiguration(InboundConfiguration inboundConfiguration, JsonDefinedRegistry jsonDefinedRegistry) {
         this.inboundConfiguration = inboundConfiguration;
-        this.beanFactory = beanFactory;
+        this.jsonDefinedRegistry = jsonDefinedRegistry;
     }
 
     @Bean
-    public JwtParser jwtParser(ConfiguredSigningKeyResolver resolver) {
+    public JwtParser jwtParser(ConfiguredSigningKeyResolver resolver, TokenConfig tokenConfig) {
         return Jwts.parserBuilder()
             .setSigningKeyResolver(resolver)
+            .setAllowedClockSkewSeconds(tokenConfig.getAllowedClockSkew().toSeconds())
             .build();
     }
 
     @Bean
     public ConfiguredSigningKeyResolver resolver() {
-        return new ConfiguredSigningKeyResolver(beanFactory, inboundConfiguration.getJwt());
+        return new ConfiguredSigningKeyResolver(jsonDefinedRegistry, inboundConfiguration.getJwt());
     }
 
 }
@@ -11,4 +11,9 @@ import java.util.Map;
 public class TokenAuthorizationConfig {
     private String method;
     private Map<String, ?> args;
+    /*
+     Runs the authorizer on a worker pool rather than the server thread. Defaults to what the authorizer declares, so
+     this is only needed for authorizers that block without saying so.
+     */
+    private Boolean blocking;
 }
@@ -9,7 +9,6 @@ import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
 import org.springframework.cloud.gateway.support.ConfigurationService;
 import org.springframework.core.Ordered;
-import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
@@ -18,6 +17,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import static java.lang.String.format;
+
 @Component
 @Slf4j
 public class FilterDefinitionLoader {
@@ -30,6 +31,19 @@ public class FilterDefinitionLoader {
         gatewayFilterFactories.forEach(factory -> this.gatewayFilterFactories.put(factory.name(), factory));
     }
 
+    /**
+     * Checks that every filter definition names a known {@link GatewayFilterFactory}, without creating any filter.
+     *
+     * @throws IllegalArgumentException when a {@link GatewayFilterFactory} cannot be resolved from a filter definition.
+     */
+    public void validate(String id, List<FilterDefinition> filterDefinitions) throws IllegalArgumentException {
+        for (FilterDefinition definition : filterDefinitions) {
+            if (!gatewayFilterFactories.containsKey(definition.getName())) {
+                throw new IllegalArgumentException(format("Unable to find GatewayFilterFactory with name %s in gateway [%s]", definition.getName(), id));
+            }
+        }
+    }
+
     /**
      * Copied from {@link org.springframework.cloud.gateway.route.RouteDefinitionRouteLocator}. Converts
      * a list of filter definitions (as used in spring cloud gateway config dsl) into gateway filters.
@@ -41,7 +55,6 @@ public class FilterDefinitionLoader {
      */
     @SuppressWarnings("unchecked")
     public List<GatewayFilter> loadFilters(String id, List<FilterDefinition> filterDefinitions) throws IllegalArgumentException {
-        final SpelExpressionParser parser = new SpelExpressionParser();
         List<GatewayFilter> filters = filterDefinitions.stream()
                                                        .map(definition -> {
                                                            GatewayFilterFactory factory = this.gatewayFilterFactories.get(definition.getName());
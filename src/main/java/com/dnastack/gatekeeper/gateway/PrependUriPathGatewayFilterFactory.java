@@ -1,5 +1,6 @@
 package com.dnastack.gatekeeper.gateway;
 
+import com.dnastack.gatekeeper.util.PathTemplate;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
@@ -12,6 +13,7 @@ import org.springframework.stereotype.Component;
 import java.net.URI;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 @Component
 public class PrependUriPathGatewayFilterFactory extends AbstractGatewayFilterFactory<PrependUriPathGatewayFilterFactory.Config> {
@@ -32,10 +34,11 @@ public class PrependUriPathGatewayFilterFactory extends AbstractGatewayFilterFac
 
 	@Override
 	public GatewayFilter apply(Config config) {
+		final PathTemplate basePath = PathTemplate.parse(config.getUri().getRawPath());
 		return (exchange, chain) ->  {
 			final ServerHttpRequest request = exchange.getRequest();
 			final String path = request.getURI().getRawPath();
-			final String newPath = config.getUri().getRawPath() + path;
+			final String newPath = basePath.render(Map.of(), path);
 			ServerHttpRequest newRequest = request.mutate()
 												  .path(newPath)
 												  .build();
@@ -0,0 +1,100 @@
+package com.dnastack.gatekeeper.gateway;
+
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.UnaryOperator;
+
+/**
+ * Lets filters that run after {@link NettyWriteResponseFilter} see the upstream response body as it is written.
+ * <p>
+ * The write response filter writes the upstream body to the response of the exchange it was given, once the rest of
+ * the chain has completed, so decorating the response later in the chain has no effect on what it writes. This filter
+ * runs before it and hands it a response whose writes can still be intercepted through {@link #intercept}.
+ */
+public class UpstreamResponseFilter implements GatewayFilter, Ordered {
+
+    public static final int ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+
+    private static final String INTERCEPTABLE_RESPONSE_ATTR = UpstreamResponseFilter.class.getName() + ".response";
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        final InterceptableResponse response = new InterceptableResponse(exchange.getResponse());
+        exchange.getAttributes().put(INTERCEPTABLE_RESPONSE_ATTR, response);
+        return chain.filter(exchange.mutate().response(response).build())
+                    .doFinally(signal -> response.terminationCallbacks.forEach(Runnable::run));
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    /**
+     * Decorates whatever is written to the response of the exchange from here on, including the upstream body.
+     * Decorators apply in the order they were added: the last one added sees writes first.
+     *
+     * @throws IllegalStateException if the exchange didn't go through this filter.
+     */
+    public static void intercept(ServerWebExchange exchange, UnaryOperator<ServerHttpResponse> decorator) {
+        interceptableResponse(exchange).intercept(decorator);
+    }
+
+    /**
+     * Runs the callback once the exchange is done: the upstream body was written, or the exchange failed or was
+     * cancelled.
+     *
+     * @throws IllegalStateException if the exchange didn't go through this filter.
+     */
+    public static void onTermination(ServerWebExchange exchange, Runnable callback) {
+        interceptableResponse(exchange).terminationCallbacks.add(callback);
+    }
+
+    private static InterceptableResponse interceptableResponse(ServerWebExchange exchange) {
+        final InterceptableResponse response = exchange.getAttribute(INTERCEPTABLE_RESPONSE_ATTR);
+        if (response == null) {
+            throw new IllegalStateException("Response of " + exchange.getRequest().getPath() + " can't be intercepted without " + UpstreamResponseFilter.class.getSimpleName());
+        }
+        return response;
+    }
+
+    private static class InterceptableResponse extends ServerHttpResponseDecorator {
+        private final List<Runnable> terminationCallbacks = new CopyOnWriteArrayList<>();
+        private volatile ServerHttpResponse writer;
+
+        private InterceptableResponse(ServerHttpResponse delegate) {
+            super(delegate);
+            this.writer = delegate;
+        }
+
+        private synchronized void intercept(UnaryOperator<ServerHttpResponse> decorator) {
+            writer = decorator.apply(writer);
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            return writer.writeWith(body);
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return writer.writeAndFlushWith(body);
+        }
+
+        @Override
+        public Mono<Void> setComplete() {
+            return writer.setComplete();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.dnastack.gatekeeper.policy;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "gatekeeper.policy")
+@Data
+public class PolicyConfig {
+
+    private DecisionCache decisionCache = new DecisionCache();
+    private TokenActions tokenActions = new TokenActions();
+    private EvaluationQueue evaluationQueue = new EvaluationQueue();
+
+    @Data
+    public static class DecisionCache {
+        private boolean enabled = true;
+        private long maxEntries = 10_000;
+        /*
+         Upper bound on how long a granted decision is reused, regardless of the token's expiry. Limits how long a
+         policy change in the wallet takes to reach this gatekeeper.
+         */
+        private Duration maxTtl = Duration.ofSeconds(60);
+    }
+
+    @Data
+    public static class TokenActions {
+        private boolean enabled = false;
+    }
+
+    @Data
+    public static class EvaluationQueue {
+        private boolean enabled = false;
+        // Upper bound on concurrent wallet requests made for policy evaluations
+        private int maxConcurrentEvaluations = 4;
+        // Evaluations waiting for a wallet request beyond this many are failed rather than queued
+        private int maxQueuedEvaluations = 1024;
+    }
+}
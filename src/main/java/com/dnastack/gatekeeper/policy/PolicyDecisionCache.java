@@ -0,0 +1,82 @@
+package com.dnastack.gatekeeper.policy;
+
+import com.dnastack.gatekeeper.token.TokenFingerprint;
+import com.dnastack.gatekeeper.util.BoundedExpiringCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Remembers which tokens the wallet granted a given resource, set of actions and scopes, so that repeat requests do not
+ * wait on a policy evaluation. Only grants are remembered, since the wallet client reports denials and transient
+ * failures alike. An entry never outlives the token it was granted to.
+ */
+@Component
+public class PolicyDecisionCache implements MeterBinder {
+
+    @Value
+    public static class Key {
+        TokenFingerprint token;
+        String resource;
+        Set<String> actions;
+        List<String> scopes;
+    }
+
+    private final BoundedExpiringCache<Key, Boolean> cache;
+    private final Clock clock;
+    private final long maxTtlMillis;
+
+    @Autowired
+    public PolicyDecisionCache(PolicyConfig policyConfig) {
+        this(policyConfig.getDecisionCache(), Clock.systemUTC());
+    }
+
+    PolicyDecisionCache(PolicyConfig.DecisionCache config, Clock clock) {
+        this.clock = clock;
+        this.maxTtlMillis = config.getMaxTtl().toMillis();
+        final long maxEntries = config.isEnabled() ? config.getMaxEntries() : 0;
+        this.cache = new BoundedExpiringCache<>(maxEntries, maxEntries, clock);
+    }
+
+    public boolean isEnabled() {
+        return cache.isEnabled();
+    }
+
+    public boolean isGranted(Key key) {
+        return cache.isEnabled() && cache.get(key) != null;
+    }
+
+    /**
+     * @param tokenExpiration The token's exp claim in epoch seconds, or null if it has none.
+     */
+    public void putGranted(Key key, Long tokenExpiration) {
+        final long now = clock.millis();
+        final long expiresAt = tokenExpiration == null
+            ? now + maxTtlMillis
+            : Math.min(tokenExpiration * 1000, now + maxTtlMillis);
+        if (expiresAt > now) {
+            cache.put(key, Boolean.TRUE, 1, expiresAt);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("gatekeeper.policy.decision.cache.hits", cache, BoundedExpiringCache::hitCount)
+                       .description("Policy decisions served from cache")
+                       .register(registry);
+        FunctionCounter.builder("gatekeeper.policy.decision.cache.misses", cache, BoundedExpiringCache::missCount)
+                       .description("Policy decisions that required a remote evaluation")
+                       .register(registry);
+        Gauge.builder("gatekeeper.policy.decision.cache.size", cache, BoundedExpiringCache::size)
+             .description("Policy decisions currently cached")
+             .register(registry);
+    }
+}
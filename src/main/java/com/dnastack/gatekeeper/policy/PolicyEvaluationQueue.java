@@ -0,0 +1,103 @@
+package com.dnastack.gatekeeper.policy;
+
+import com.dnastack.gatekeeper.authorizer.TokenAuthorizer.AuthorizationDecision;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Runs blocking policy evaluations with a bounded number in flight, so that a burst of requests holds a bounded number
+ * of wallet connections. Evaluations wait in a bounded queue for their turn, and fail immediately once it is full.
+ * Identical evaluations in flight at the same time share one result.
+ */
+@Slf4j
+@Component
+public class PolicyEvaluationQueue implements DisposableBean {
+
+    @Value
+    private static class PendingEvaluation {
+        Callable<AuthorizationDecision> evaluation;
+        Sinks.One<AuthorizationDecision> result;
+    }
+
+    private final PolicyConfig.EvaluationQueue config;
+    private final ConcurrentMap<Object, Mono<AuthorizationDecision>> inFlight = new ConcurrentHashMap<>();
+    private final Sinks.Many<PendingEvaluation> pending;
+    private final Disposable evaluations;
+
+    @Autowired
+    public PolicyEvaluationQueue(PolicyConfig policyConfig) {
+        this(policyConfig.getEvaluationQueue());
+    }
+
+    PolicyEvaluationQueue(PolicyConfig.EvaluationQueue config) {
+        this.config = config;
+        this.pending = Sinks.many().unicast().onBackpressureBuffer(Queues.<PendingEvaluation>get(config.getMaxQueuedEvaluations()).get());
+        this.evaluations = config.isEnabled()
+            ? pending.asFlux()
+                     .flatMap(pendingEvaluation -> Mono.fromRunnable(() -> evaluate(pendingEvaluation)).subscribeOn(Schedulers.boundedElastic()),
+                              config.getMaxConcurrentEvaluations())
+                     .subscribe()
+            : null;
+    }
+
+    /**
+     * @param key Identifies the evaluation, so that identical evaluations in flight are only run once. Null if the
+     *            evaluation should not be shared.
+     * @param evaluation Blocks on the wallet. Never run on the calling thread.
+     * @return The decision, or an {@link IllegalStateException} if too many evaluations are already waiting.
+     */
+    public Mono<AuthorizationDecision> submit(Object key, Callable<AuthorizationDecision> evaluation) {
+        if (!config.isEnabled()) {
+            return Mono.fromCallable(evaluation).subscribeOn(Schedulers.boundedElastic());
+        }
+        if (key == null) {
+            return enqueue(evaluation);
+        }
+        return inFlight.computeIfAbsent(key, k -> enqueue(evaluation).doFinally(signal -> inFlight.remove(k)).cache());
+    }
+
+    private Mono<AuthorizationDecision> enqueue(Callable<AuthorizationDecision> evaluation) {
+        return Mono.defer(() -> {
+            final Sinks.One<AuthorizationDecision> result = Sinks.one();
+            emit(new PendingEvaluation(evaluation, result));
+            return result.asMono();
+        });
+    }
+
+    private synchronized void emit(PendingEvaluation pendingEvaluation) {
+        final Sinks.EmitResult emitResult = pending.tryEmitNext(pendingEvaluation);
+        if (emitResult == Sinks.EmitResult.FAIL_OVERFLOW) {
+            log.warn("Rejecting policy evaluation: {} evaluations are already waiting on the wallet", config.getMaxQueuedEvaluations());
+            pendingEvaluation.getResult().tryEmitError(new IllegalStateException("Too many policy evaluations waiting on the wallet"));
+        } else if (emitResult.isFailure()) {
+            pendingEvaluation.getResult().tryEmitError(new IllegalStateException("Policy evaluations are not being accepted: " + emitResult));
+        }
+    }
+
+    private void evaluate(PendingEvaluation pendingEvaluation) {
+        try {
+            pendingEvaluation.getResult().tryEmitValue(pendingEvaluation.getEvaluation().call());
+        } catch (Exception e) {
+            pendingEvaluation.getResult().tryEmitError(e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (evaluations != null) {
+            evaluations.dispose();
+        }
+    }
+}
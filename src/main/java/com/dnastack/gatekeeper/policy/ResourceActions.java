@@ -0,0 +1,65 @@
+package com.dnastack.gatekeeper.policy;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Actions granted per resource URI, indexed for lookups by the resource a request needs. Matches resources the same way
+ * the wallet's token validator does: a grant on a URI ending in "/" covers everything under it, and a requirement on a
+ * URI ending in "/" is met by grants on anything under it.
+ */
+public final class ResourceActions {
+
+    private static final ResourceActions EMPTY = new ResourceActions(new TreeMap<>());
+
+    private final NavigableMap<String, Set<String>> actionsByResource;
+
+    private ResourceActions(NavigableMap<String, Set<String>> actionsByResource) {
+        this.actionsByResource = actionsByResource;
+    }
+
+    public static ResourceActions compile(Map<String, ? extends Collection<String>> grants) {
+        if (grants == null || grants.isEmpty()) {
+            return EMPTY;
+        }
+        final NavigableMap<String, Set<String>> actionsByResource = new TreeMap<>();
+        grants.forEach((resource, actions) -> {
+            if (resource != null && actions != null) {
+                actionsByResource.put(resource, Set.copyOf(actions));
+            }
+        });
+        return new ResourceActions(actionsByResource);
+    }
+
+    public boolean permits(String resource, Set<String> actions) {
+        return actionsFor(resource).containsAll(actions);
+    }
+
+    public Set<String> actionsFor(String resource) {
+        final Set<String> actions = new HashSet<>();
+        addAll(actions, actionsByResource.get(resource));
+        // Grants on parent "directories" of the resource, found by walking its separators instead of scanning all grants
+        for (int i = resource.indexOf('/'); i >= 0 && i < resource.length() - 1; i = resource.indexOf('/', i + 1)) {
+            addAll(actions, actionsByResource.get(resource.substring(0, i + 1)));
+        }
+        if (resource.endsWith("/")) {
+            for (Map.Entry<String, Set<String>> grant : actionsByResource.tailMap(resource, false).entrySet()) {
+                if (!grant.getKey().startsWith(resource)) {
+                    break;
+                }
+                addAll(actions, grant.getValue());
+            }
+        }
+        return actions;
+    }
+
+    private static void addAll(Set<String> actions, Set<String> granted) {
+        if (granted != null) {
+            actions.addAll(granted);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.dnastack.gatekeeper.policy;
+
+import com.dnastack.gatekeeper.token.ClaimProjection;
+import lombok.Value;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * What a wallet-issued token grants on its own: the space-separated "scope" claim and the "actions" claim, a map of
+ * resource URI to actions.
+ */
+@Value
+public class WalletGrants {
+
+    public static final ClaimProjection<WalletGrants> PROJECTION = ClaimProjection.of(Set.of("scope", "actions"), claims -> {
+        final Object scope = claims.get("scope");
+        final Set<String> scopes = scope instanceof String
+            ? Set.copyOf(Arrays.asList(((String) scope).split(" ")))
+            : null;
+        final Object actions = claims.get("actions");
+        if (!(actions instanceof Map)) {
+            return new WalletGrants(scopes, null);
+        }
+        final Map<String, List<String>> grants = new HashMap<>();
+        ((Map<?, ?>) actions).forEach((resource, granted) -> {
+            if (resource != null && granted instanceof Collection) {
+                grants.put(resource.toString(), ((Collection<?>) granted).stream().map(String::valueOf).collect(toList()));
+            }
+        });
+        return new WalletGrants(scopes, ResourceActions.compile(grants));
+    });
+
+    /**
+     * Null if the token has no "scope" claim.
+     */
+    Set<String> scopes;
+    /**
+     * Null if the token has no "actions" claim, in which case only the wallet knows what it grants.
+     */
+    ResourceActions actions;
+}
@@ -2,79 +2,290 @@ package com.dnastack.gatekeeper.routing;
 
 import com.dnastack.gatekeeper.acl.GatekeeperGatewayFilterFactory;
 import com.dnastack.gatekeeper.config.GatekeeperConfig;
+import com.dnastack.gatekeeper.config.JsonDefinedRegistry;
 import com.dnastack.gatekeeper.gateway.FilterDefinitionLoader;
 import com.dnastack.gatekeeper.gateway.PrependUriPathGatewayFilterFactory;
 import com.dnastack.gatekeeper.gateway.StripAuthHeaderGatewayFilterFactory;
+import com.dnastack.gatekeeper.gateway.UpstreamResponseFilter;
 import com.dnastack.gatekeeper.logging.LoggingGatewayFilterFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
-import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.route.Route;
 import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
-import static com.dnastack.gatekeeper.config.JsonDefinedFactory.createFactoryInstance;
+import static java.lang.String.format;
 
 @Slf4j
 @Configuration
 @RestController
-public class AclRouter {
+public class AclRouter implements SmartInitializingSingleton {
 
     private final GatekeeperConfig config;
+    private final RouteCompilationConfig compilationConfig;
+    private final GatewayReloadConfig reloadConfig;
     private final FilterDefinitionLoader filterDefinitionLoader;
-    private BeanFactory beanFactory;
+    private final JsonDefinedRegistry jsonDefinedRegistry;
+    private final RouteLocatorBuilder builder;
+    private final GatekeeperGatewayFilterFactory gatekeeperGatewayFilterFactory;
+    private final PrependUriPathGatewayFilterFactory prependUriPathGatewayFilterFactory;
+    private final StripAuthHeaderGatewayFilterFactory stripAuthHeaderGatewayFilterFactory;
+    private final LoggingGatewayFilterFactory loggingGatewayFilterFactory;
+    private final ConfigurableEnvironment environment;
+    private final Timer compilationTimer;
+    private final UpstreamResponseFilter upstreamResponseFilter = new UpstreamResponseFilter();
 
     @Autowired
-    public AclRouter(GatekeeperConfig config, FilterDefinitionLoader filterDefinitionLoader, BeanFactory beanFactory) {
+    public AclRouter(GatekeeperConfig config,
+                     RouteCompilationConfig compilationConfig,
+                     GatewayReloadConfig reloadConfig,
+                     FilterDefinitionLoader filterDefinitionLoader,
+                     JsonDefinedRegistry jsonDefinedRegistry,
+                     RouteLocatorBuilder builder,
+                     GatekeeperGatewayFilterFactory gatekeeperGatewayFilterFactory,
+                     PrependUriPathGatewayFilterFactory prependUriPathGatewayFilterFactory,
+                     StripAuthHeaderGatewayFilterFactory stripAuthHeaderGatewayFilterFactory,
+                     LoggingGatewayFilterFactory loggingGatewayFilterFactory,
+                     ConfigurableEnvironment environment,
+                     MeterRegistry meterRegistry) {
         this.config = config;
+        this.compilationConfig = compilationConfig;
+        this.reloadConfig = reloadConfig;
         this.filterDefinitionLoader = filterDefinitionLoader;
-        this.beanFactory = beanFactory;
+        this.jsonDefinedRegistry = jsonDefinedRegistry;
+        this.builder = builder;
+        this.gatekeeperGatewayFilterFactory = gatekeeperGatewayFilterFactory;
+        this.prependUriPathGatewayFilterFactory = prependUriPathGatewayFilterFactory;
+        this.stripAuthHeaderGatewayFilterFactory = stripAuthHeaderGatewayFilterFactory;
+        this.loggingGatewayFilterFactory = loggingGatewayFilterFactory;
+        this.environment = environment;
+        this.compilationTimer = Timer.builder("gatekeeper.gateway.compilation")
+                                     .description("Time spent creating the filters of a gateway")
+                                     .register(meterRegistry);
     }
 
+    /**
+     * Starts out without routes, see {@link #afterSingletonsInstantiated()}.
+     */
     @Bean
-    public RouteLocator aclRouteLocator(RouteLocatorBuilder builder,
-                                        GatekeeperGatewayFilterFactory gatekeeperGatewayFilterFactory,
-                                        PrependUriPathGatewayFilterFactory prependUriPathGatewayFilterFactory,
-                                        StripAuthHeaderGatewayFilterFactory stripAuthHeaderGatewayFilterFactory,
-                                        LoggingGatewayFilterFactory loggingGatewayFilterFactory) {
+    public GatewayRouteLocator aclRouteLocator() {
+        return new GatewayRouteLocator(List.of());
+    }
+
+    /**
+     * Compiles the configured gateways once every bean exists. Compiling them while creating the route locator bean
+     * would have compiler threads wait on the bean factory lock held by the thread creating the bean.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        aclRouteLocator().install(compileRoutes(initialGateways()));
+    }
+
+    /**
+     * The gateways of the reload file if it exists, so that a restart doesn't go back to the configured ones. An invalid
+     * file fails startup, like invalid configured gateways would.
+     */
+    private List<GatekeeperConfig.Gateway> initialGateways() {
+        final String file = reloadConfig.getFile();
+        if (file == null || file.isBlank() || !Files.exists(Path.of(file))) {
+            return config.getGateways();
+        }
+        log.info("Loading gateways from [{}]", file);
+        return GatewayReloader.readGateways(Path.of(file), environment);
+    }
+
+    /**
+     * Builds the route of every gateway. Nothing is installed, so this can be used to validate a new set of gateways
+     * before switching to it. With {@link RouteCompilationConfig#isLazy() lazy} compilation, gateways are validated,
+     * but their filters are only created on first use.
+     * <p>
+     * Gateways are compiled in parallel, and the routes are built in the order of the given gateways.
+     *
+     * @throws IllegalArgumentException listing every invalid gateway, with the first failure as its cause and the
+     * others suppressed.
+     */
+    public List<Route> compileRoutes(List<GatekeeperConfig.Gateway> gateways) {
         final GatewayFilter stripAuthHeaderFilter = stripAuthHeaderGatewayFilterFactory.apply(new Object());
         final GatewayFilter loggingFilter = loggingGatewayFilterFactory.apply();
 
         RouteLocatorBuilder.Builder routes = builder.routes();
 
-        for (GatekeeperConfig.Gateway gateway : config.getGateways()) {
-            final GatewayFilter prependUriFilter = prependUriPathGatewayFilterFactory.apply(gateway.getOutbound().getBaseUrl());
+        final Set<String> gatewayIds = new HashSet<>();
+        for (GatekeeperConfig.Gateway gateway : gateways) {
+            if (!gatewayIds.add(gateway.getId())) {
+                throw new IllegalArgumentException(format("Duplicate gateway [%s]", gateway.getId()));
+            }
+        }
 
-            final GatekeeperConfig.OutboundAuthentication outboundAuthentication = gateway.getOutbound().getAuthentication();
-            final String authenticatorName = Optional.ofNullable(outboundAuthentication)
-                                                     .map(GatekeeperConfig.OutboundAuthentication::getMethod)
-                                                     .orElse("noop-client-authenticator");
-            final Map<String, Object> args = Optional.ofNullable(outboundAuthentication)
-                                                     .map(GatekeeperConfig.OutboundAuthentication::getArgs)
-                                                     .orElseGet(Map::of);
-            final GatewayFilter outboundAuthFilter = createFactoryInstance(beanFactory, authenticatorName, args);
+        final List<List<GatewayFilter>> filtersByGateway = compileInParallel(gateways, gateway -> {
+            if (compilationConfig.isLazy()) {
+                validate(gateway);
+                return List.of(new LazyGatewayFilterChain(gateway.getId(),
+                                                          () -> compileFilters(gateway, stripAuthHeaderFilter, loggingFilter),
+                                                          compilationTimer));
+            }
+            return compilationTimer.record(() -> compileFilters(gateway, stripAuthHeaderFilter, loggingFilter));
+        });
 
-            final GatewayFilter gatekeeperFilter = gatekeeperGatewayFilterFactory.apply(gateway);
-            final List<GatewayFilter> customFilters = filterDefinitionLoader.loadFilters(gateway.getId(), gateway.getOutbound().getFilters());
+        for (int i = 0; i < gateways.size(); i++) {
+            final GatekeeperConfig.Gateway gateway = gateways.get(i);
+            final List<GatewayFilter> filters = filtersByGateway.get(i);
             routes = routes.route(gateway.getId(),
                                   r -> r.path(gateway.getInbound().getPath())
-                                        .filters(f -> f.filter(gatekeeperFilter)
-                                                       .filter(prependUriFilter)
-                                                       .filter(stripAuthHeaderFilter)
-                                                       .filter(outboundAuthFilter)
-                                                       .filters(customFilters)
-                                                       .filter(loggingFilter))
+                                        .filters(f -> {
+                                            if (interceptsUpstreamResponse(gateway)) {
+                                                // Added on its own since its order matters: lazily created filters all share one order
+                                                f.filter(upstreamResponseFilter);
+                                            }
+                                            filters.forEach(f::filter);
+                                            return f;
+                                        })
+                                        .metadata(RouteIndex.INBOUND_PATH_METADATA, gateway.getInbound().getPath())
                                         .uri(gateway.getOutbound().getBaseUrl()));
         }
 
-        return routes.build();
+        // Routes of a builder are only created once they are requested
+        return routes.build().getRoutes().collectList().block();
+    }
+
+    /**
+     * @return The result for each gateway, in the order of the given gateways.
+     */
+    <T> List<T> compileInParallel(List<GatekeeperConfig.Gateway> gateways, Function<GatekeeperConfig.Gateway, T> compiler) {
+        if (gateways.isEmpty()) {
+            return List.of();
+        }
+        final int parallelism = Math.max(1, Math.min(compilationConfig.getParallelism(), gateways.size()));
+        final ForkJoinPool pool = new ForkJoinPool(parallelism, AclRouter::newCompilerThread, null, false);
+        try {
+            final List<Future<T>> results = new ArrayList<>(gateways.size());
+            // Rather than submitting to the pool directly, whose tasks rethrow a copy of the compiler's exception
+            gateways.forEach(gateway -> results.add(CompletableFuture.supplyAsync(() -> compiler.apply(gateway), pool)));
+            return collectResults(gateways, results);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static <T> List<T> collectResults(List<GatekeeperConfig.Gateway> gateways, List<Future<T>> futures) {
+        final List<T> results = new ArrayList<>(futures.size());
+        final List<String> failures = new ArrayList<>();
+        final List<Throwable> causes = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (ExecutionException e) {
+                failures.add(format("[%s]: %s", gateways.get(i).getId(), e.getCause().getMessage()));
+                causes.add(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while compiling gateways", e);
+            }
+        }
+        if (!causes.isEmpty()) {
+            final IllegalArgumentException failure = new IllegalArgumentException(format("%d of %d gateways are invalid: %s",
+                                                                                         failures.size(),
+                                                                                         gateways.size(),
+                                                                                         String.join("; ", failures)),
+                                                                                  causes.get(0));
+            causes.subList(1, causes.size()).forEach(failure::addSuppressed);
+            throw failure;
+        }
+        return results;
+    }
+
+    private static ForkJoinWorkerThread newCompilerThread(ForkJoinPool pool) {
+        final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("gateway-compiler-" + thread.getPoolIndex());
+        // Factories may load classes or services through the context class loader, which differs in packaged apps
+        thread.setContextClassLoader(AclRouter.class.getClassLoader());
+        return thread;
+    }
+
+    /**
+     * Creates the filters of a gateway, in the order they apply.
+     */
+    private List<GatewayFilter> compileFilters(GatekeeperConfig.Gateway gateway, GatewayFilter stripAuthHeaderFilter, GatewayFilter loggingFilter) {
+        final GatewayFilter prependUriFilter = prependUriPathGatewayFilterFactory.apply(gateway.getOutbound().getBaseUrl());
+        final GatewayFilter outboundAuthFilter = jsonDefinedRegistry.getOrCreate(outboundAuthenticatorName(gateway), outboundAuthenticatorArgs(gateway));
+        final GatewayFilter gatekeeperFilter = gatekeeperGatewayFilterFactory.apply(gateway);
+        final List<GatewayFilter> customFilters = filterDefinitionLoader.loadFilters(gateway.getId(), gateway.getOutbound().getFilters());
+
+        final List<GatewayFilter> filters = new ArrayList<>(customFilters.size() + 5);
+        filters.add(ordered(gatekeeperFilter));
+        filters.add(ordered(prependUriFilter));
+        filters.add(ordered(stripAuthHeaderFilter));
+        filters.add(ordered(outboundAuthFilter));
+        customFilters.forEach(filter -> filters.add(ordered(filter)));
+        filters.add(ordered(loggingFilter));
+        return filters;
+    }
+
+    /**
+     * Same as the route builder does for filters without an order.
+     */
+    private static GatewayFilter ordered(GatewayFilter filter) {
+        return filter instanceof Ordered ? filter : new OrderedGatewayFilter(filter, 0);
+    }
+
+    private void validate(GatekeeperConfig.Gateway gateway) {
+        if (gateway.getInbound() == null || gateway.getInbound().getPath() == null) {
+            throw new IllegalArgumentException(format("Gateway [%s] is missing an inbound path", gateway.getId()));
+        }
+        if (gateway.getOutbound() == null || gateway.getOutbound().getBaseUrl() == null) {
+            throw new IllegalArgumentException(format("Gateway [%s] is missing an outbound base-url", gateway.getId()));
+        }
+        final String authenticatorName = outboundAuthenticatorName(gateway);
+        if (!jsonDefinedRegistry.isDefined(authenticatorName)) {
+            throw new IllegalArgumentException(format("Unknown outbound authentication method [%s] in gateway [%s]", authenticatorName, gateway.getId()));
+        }
+        gatekeeperGatewayFilterFactory.validate(gateway);
+        filterDefinitionLoader.validate(gateway.getId(), gateway.getOutbound().getFilters());
+    }
+
+    /**
+     * Response caching and request collapsing need to see the upstream body, which is written before the gatekeeper
+     * filter runs.
+     */
+    private static boolean interceptsUpstreamResponse(GatekeeperConfig.Gateway gateway) {
+        return gateway.getCollapsing() != null
+            || gateway.getAcl().stream().anyMatch(accessControlItem -> accessControlItem.getCache() != null);
+    }
+
+    private static String outboundAuthenticatorName(GatekeeperConfig.Gateway gateway) {
+        return Optional.ofNullable(gateway.getOutbound().getAuthentication())
+                       .map(GatekeeperConfig.OutboundAuthentication::getMethod)
+                       .orElse("noop-client-authenticator");
+    }
+
+    private static Map<String, Object> outboundAuthenticatorArgs(GatekeeperConfig.Gateway gateway) {
+        return Optional.ofNullable(gateway.getOutbound().getAuthentication())
+                       .map(GatekeeperConfig.OutboundAuthentication::getArgs)
+                       .orElseGet(Map::of);
     }
 
 }
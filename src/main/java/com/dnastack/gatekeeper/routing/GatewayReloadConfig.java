@@ -0,0 +1,22 @@
+package com.dnastack.gatekeeper.routing;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "gatekeeper.reload")
+@Data
+public class GatewayReloadConfig {
+    /**
+     * A YAML file with a {@code gatekeeper.gateways} list, replacing the configured gateways at startup if it exists,
+     * and whenever it changes. Not watched when unset.
+     */
+    private String file;
+    /**
+     * How often the file is checked for changes.
+     */
+    private Duration interval = Duration.ofSeconds(10);
+}
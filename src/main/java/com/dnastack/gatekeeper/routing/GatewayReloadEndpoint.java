@@ -0,0 +1,33 @@
+package com.dnastack.gatekeeper.routing;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reloads the gateways from gatekeeper.reload.file on demand. Expose it with
+ * management.endpoints.web.exposure.include=gateways.
+ */
+@Component
+@Endpoint(id = "gateways")
+public class GatewayReloadEndpoint {
+
+    private final GatewayReloader gatewayReloader;
+
+    @Autowired
+    public GatewayReloadEndpoint(GatewayReloader gatewayReloader) {
+        this.gatewayReloader = gatewayReloader;
+    }
+
+    @ReadOperation
+    public GatewayReloader.Status status() {
+        return gatewayReloader.getStatus();
+    }
+
+    @WriteOperation
+    public GatewayReloader.Status reload() {
+        return gatewayReloader.reload();
+    }
+}
@@ -0,0 +1,180 @@
+package com.dnastack.gatekeeper.routing;
+
+import com.dnastack.gatekeeper.config.GatekeeperConfig;
+import com.dnastack.gatekeeper.config.JsonDefinedFactory.ConfigException;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.PropertySourcesPlaceholdersResolver;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.cloud.gateway.event.RefreshRoutesEvent;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.PropertyPlaceholderHelper;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.lang.String.format;
+
+/**
+ * Replaces the gateways without a restart. The new gateways are compiled and validated in full before any of them is
+ * routed to; if anything is wrong, the current gateways stay in place. Caches of signing keys, verified tokens and
+ * policy decisions are not tied to gateways and stay warm, and authorizers whose config did not change are reused.
+ */
+@Slf4j
+@Component
+public class GatewayReloader implements DisposableBean {
+
+    @Value
+    public static class Status {
+        int generation;
+        int gateways;
+        Instant reloadedAt;
+        String lastError;
+    }
+
+    private final GatewayReloadConfig config;
+    private final AclRouter aclRouter;
+    private final GatewayRouteLocator routeLocator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ConfigurableEnvironment environment;
+    private final AtomicReference<Status> status;
+    private final Disposable scheduledCheck;
+
+    @Autowired
+    public GatewayReloader(GatewayReloadConfig config,
+                           AclRouter aclRouter,
+                           GatewayRouteLocator routeLocator,
+                           ApplicationEventPublisher eventPublisher,
+                           ConfigurableEnvironment environment) {
+        this.config = config;
+        this.aclRouter = aclRouter;
+        this.routeLocator = routeLocator;
+        this.eventPublisher = eventPublisher;
+        this.environment = environment;
+        this.status = new AtomicReference<>(new Status(0, 0, Instant.now(), null));
+        this.scheduledCheck = !hasFile() ? null : watch(Path.of(config.getFile()), config.getInterval());
+    }
+
+    public Status getStatus() {
+        final Status current = status.get();
+        return new Status(current.getGeneration(), routeLocator.size(), current.getReloadedAt(), current.getLastError());
+    }
+
+    /**
+     * Reads the gateways from the configured file and switches to them.
+     *
+     * @throws IllegalStateException if no file is configured.
+     * @throws RuntimeException if the gateways can't be read or compiled. The current gateways are kept.
+     */
+    public Status reload() {
+        if (!hasFile()) {
+            throw new IllegalStateException("No gateway file configured in gatekeeper.reload.file");
+        }
+        return reload(Path.of(config.getFile()));
+    }
+
+    private boolean hasFile() {
+        return config.getFile() != null && !config.getFile().isBlank();
+    }
+
+    private synchronized Status reload(Path file) {
+        final Status previous = status.get();
+        final List<Route> routes;
+        try {
+            routes = aclRouter.compileRoutes(readGateways(file, environment));
+        } catch (RuntimeException e) {
+            status.set(new Status(previous.getGeneration(), routeLocator.size(), previous.getReloadedAt(), e.getMessage()));
+            throw e;
+        }
+
+        routeLocator.install(routes);
+        eventPublisher.publishEvent(new RefreshRoutesEvent(this));
+        final Status reloaded = new Status(previous.getGeneration() + 1, routes.size(), Instant.now(), null);
+        status.set(reloaded);
+        log.info("Reloaded {} gateways from [{}]", routes.size(), file);
+        return reloaded;
+    }
+
+    /**
+     * Binds the file the same way as the application config, so it can use the same layout, relaxed names and
+     * placeholders. Placeholders are resolved against the file first, then the application's environment, and one that
+     * can't be resolved fails the binding rather than being routed as a literal.
+     */
+    static List<GatekeeperConfig.Gateway> readGateways(Path file, ConfigurableEnvironment environment) {
+        final List<PropertySource<?>> propertySources;
+        try {
+            propertySources = new YamlPropertySourceLoader().load(file.toString(), new FileSystemResource(file));
+        } catch (IOException e) {
+            throw new ConfigException(format("Unable to read gateways from [%s]", file), e);
+        }
+
+        final MutablePropertySources placeholderSources = new MutablePropertySources();
+        propertySources.forEach(placeholderSources::addLast);
+        environment.getPropertySources().forEach(placeholderSources::addLast);
+        final PropertySourcesPlaceholdersResolver placeholdersResolver =
+            new PropertySourcesPlaceholdersResolver(placeholderSources, new PropertyPlaceholderHelper("${", "}", ":", false));
+
+        final List<GatekeeperConfig.Gateway> gateways = new Binder(ConfigurationPropertySources.from(propertySources), placeholdersResolver)
+            .bind("gatekeeper", GatekeeperConfig.class)
+            .map(GatekeeperConfig::getGateways)
+            .orElse(null);
+        // An empty file is more likely a botched deployment than an intent to stop serving everything
+        if (gateways == null || gateways.isEmpty()) {
+            throw new IllegalArgumentException(format("No gatekeeper.gateways found in [%s]", file));
+        }
+        return gateways;
+    }
+
+    private Disposable watch(Path file, Duration interval) {
+        final AtomicReference<FileTime> lastModified = new AtomicReference<>(lastModified(file));
+        // Polling rather than a WatchService, since mounted config maps are typically swapped through symlinks
+        return Flux.interval(interval, Schedulers.boundedElastic())
+                   .subscribe(tick -> {
+                       final FileTime modified = lastModified(file);
+                       if (modified == null || Objects.equals(modified, lastModified.get())) {
+                           return;
+                       }
+                       lastModified.set(modified);
+                       try {
+                           reload(file);
+                       } catch (RuntimeException e) {
+                           log.warn("Unable to reload gateways from [{}]. Keeping current gateways.", file, e);
+                       }
+                   });
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduledCheck != null) {
+            scheduledCheck.dispose();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.dnastack.gatekeeper.routing;
+
+import com.dnastack.gatekeeper.acl.AclDecisionPlan;
+import com.dnastack.gatekeeper.acl.GatekeeperGatewayFilterFactory.GatekeeperFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import reactor.core.publisher.Flux;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Serves the compiled gateway routes, which can be replaced as a whole while requests are in flight. Requests that
+ * already selected a route keep using it; the gateway only picks up new routes after a
+ * {@link org.springframework.cloud.gateway.event.RefreshRoutesEvent}.
+ */
+public class GatewayRouteLocator implements RouteLocator {
+
+    private final AtomicReference<List<Route>> routes;
+
+    public GatewayRouteLocator(List<Route> routes) {
+        this.routes = new AtomicReference<>(List.copyOf(routes));
+    }
+
+    @Override
+    public Flux<Route> getRoutes() {
+        return Flux.fromIterable(routes.get());
+    }
+
+    /**
+     * Replaces all routes.
+     */
+    public void install(List<Route> routes) {
+        this.routes.set(List.copyOf(routes));
+    }
+
+    public int size() {
+        return routes.get().size();
+    }
+
+    /**
+     * The ACL plan of each gateway currently routed to, by gateway id. Gateways whose filters are created lazily are
+     * left out until their first request.
+     */
+    public Map<String, AclDecisionPlan> getPlans() {
+        final Map<String, AclDecisionPlan> plans = new LinkedHashMap<>();
+        for (Route route : routes.get()) {
+            collectPlans(route.getFilters(), plans);
+        }
+        return plans;
+    }
+
+    private static void collectPlans(List<GatewayFilter> filters, Map<String, AclDecisionPlan> plans) {
+        if (filters == null) {
+            return;
+        }
+        for (GatewayFilter filter : filters) {
+            final GatewayFilter delegate = filter instanceof OrderedGatewayFilter ? ((OrderedGatewayFilter) filter).getDelegate() : filter;
+            if (delegate instanceof GatekeeperFilter) {
+                final GatekeeperFilter gatekeeperFilter = (GatekeeperFilter) delegate;
+                plans.put(gatekeeperFilter.getGateway().getId(), gatekeeperFilter.getPlan());
+            } else if (delegate instanceof LazyGatewayFilterChain) {
+                collectPlans(((LazyGatewayFilterChain) delegate).getFilters(), plans);
+            }
+        }
+    }
+}
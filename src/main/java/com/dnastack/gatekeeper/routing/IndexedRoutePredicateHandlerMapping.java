@@ -0,0 +1,66 @@
+package com.dnastack.gatekeeper.routing;
+
+import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.event.RefreshRoutesResultEvent;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.handler.RoutePredicateHandlerMapping;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_PREDICATE_ROUTE_ATTR;
+
+/**
+ * Same route selection as {@link RoutePredicateHandlerMapping}, except that only the candidates from a {@link RouteIndex}
+ * have their predicates tested. The index is rebuilt whenever the routes are refreshed.
+ */
+public class IndexedRoutePredicateHandlerMapping extends RoutePredicateHandlerMapping implements ApplicationListener<RefreshRoutesResultEvent> {
+
+    private final RouteLocator routeLocator;
+    private volatile Mono<RouteIndex> routeIndex;
+
+    public IndexedRoutePredicateHandlerMapping(FilteringWebHandler webHandler,
+                                               RouteLocator routeLocator,
+                                               GlobalCorsProperties globalCorsProperties,
+                                               Environment environment) {
+        super(webHandler, routeLocator, globalCorsProperties, environment);
+        this.routeLocator = routeLocator;
+        this.routeIndex = buildRouteIndex();
+    }
+
+    private Mono<RouteIndex> buildRouteIndex() {
+        return routeLocator.getRoutes().collectList().map(RouteIndex::new).cache();
+    }
+
+    @Override
+    public void onApplicationEvent(RefreshRoutesResultEvent event) {
+        if (event.getThrowable() == null) {
+            routeIndex = buildRouteIndex();
+        }
+    }
+
+    @Override
+    protected Mono<Route> lookupRoute(ServerWebExchange exchange) {
+        final String path = exchange.getRequest().getPath().pathWithinApplication().value();
+        return routeIndex.flatMap(index -> Flux.fromIterable(index.candidates(path))
+            .concatMap(route -> Mono.just(route)
+                                    .filterWhen(r -> {
+                                        exchange.getAttributes().put(GATEWAY_PREDICATE_ROUTE_ATTR, r.getId());
+                                        return r.getPredicate().apply(exchange);
+                                    })
+                                    .doOnError(e -> logger.error("Error applying predicate for route: " + route.getId(), e))
+                                    .onErrorResume(e -> Mono.empty()))
+            .next()
+            .map(route -> {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Route matched: " + route.getId());
+                }
+                validateRoute(route, exchange);
+                return route;
+            }));
+    }
+}
@@ -0,0 +1,82 @@
+package com.dnastack.gatekeeper.routing;
+
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Stands in for all filters of a route, and creates them when the route is first used. Concurrent first requests wait
+ * for a single compilation, which runs on a worker thread. A failed compilation is retried by the next request.
+ * <p>
+ * The created filters run in their own order, at the position of this filter among the global filters. That is the
+ * same as for eagerly created route filters, as long as none of them orders itself around a global filter.
+ */
+@Slf4j
+public class LazyGatewayFilterChain implements GatewayFilter, Ordered {
+
+    private final String routeId;
+    private final Supplier<List<GatewayFilter>> compiler;
+    private final Timer compilationTimer;
+    private volatile List<GatewayFilter> filters;
+
+    public LazyGatewayFilterChain(String routeId, Supplier<List<GatewayFilter>> compiler, Timer compilationTimer) {
+        this.routeId = routeId;
+        this.compiler = compiler;
+        this.compilationTimer = compilationTimer;
+    }
+
+    @Override
+    public int getOrder() {
+        return 0;
+    }
+
+    /**
+     * @return The filters of the route, or null if they haven't been created yet.
+     */
+    public List<GatewayFilter> getFilters() {
+        return filters;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        final List<GatewayFilter> filters = this.filters;
+        if (filters != null) {
+            return filter(filters, 0, exchange, chain);
+        }
+        return Mono.fromCallable(this::compile)
+                   .subscribeOn(Schedulers.boundedElastic())
+                   .flatMap(compiled -> filter(compiled, 0, exchange, chain));
+    }
+
+    private static Mono<Void> filter(List<GatewayFilter> filters, int index, ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (index == filters.size()) {
+            return chain.filter(exchange);
+        }
+        return filters.get(index).filter(exchange, next -> filter(filters, index + 1, next, chain));
+    }
+
+    private synchronized List<GatewayFilter> compile() {
+        if (filters == null) {
+            final List<GatewayFilter> compiled = new ArrayList<>(compilationTimer.record(compiler));
+            AnnotationAwareOrderComparator.sort(compiled);
+            filters = List.copyOf(compiled);
+            log.debug("Created filters of route [{}]", routeId);
+        }
+        return filters;
+    }
+
+    @Override
+    public String toString() {
+        return "LazyGatewayFilterChain{routeId=" + routeId + ", compiled=" + (filters != null) + "}";
+    }
+}
@@ -0,0 +1,19 @@
+package com.dnastack.gatekeeper.routing;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "gatekeeper.route-compilation")
+@Data
+public class RouteCompilationConfig {
+    /**
+     * Validates every gateway at startup, but only creates its filters once a request is routed to it.
+     */
+    private boolean lazy = false;
+    /**
+     * How many gateways are compiled at the same time. Routes keep the configured order regardless.
+     */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+}
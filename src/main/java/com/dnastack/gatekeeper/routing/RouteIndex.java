@@ -0,0 +1,156 @@
+package com.dnastack.gatekeeper.routing;
+
+import org.springframework.cloud.gateway.route.Route;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Narrows down the routes a request path can match, using a segment trie over the inbound path of every gateway route.
+ * Routes carry their inbound path in {@link #INBOUND_PATH_METADATA}; routes without it are always candidates.
+ * <p>
+ * The trie is deliberately lenient: partial-segment variables, regex variables and wildcards match any segment, and a
+ * trailing slash is optional. Candidates are returned in route order, and the route predicates still have the final
+ * say, so the first matching route is the same as with a plain scan over all routes.
+ */
+public final class RouteIndex {
+
+    public static final String INBOUND_PATH_METADATA = "gatekeeper-inbound-path";
+
+    private static final class Node {
+        private final Map<String, Node> literals = new HashMap<>();
+        private Node variable;
+        /**
+         * Routes with a {@code {*name}} or {@code **} capture here, matching whatever remains of the path.
+         */
+        private int[] captures = new int[0];
+        /**
+         * Routes whose inbound path ends here.
+         */
+        private int[] terminals = new int[0];
+    }
+
+    private final List<Route> routes;
+    private final Node root = new Node();
+    private final int[] unindexed;
+
+    public RouteIndex(List<Route> routes) {
+        this.routes = Collections.unmodifiableList(new ArrayList<>(routes));
+        final List<Integer> unindexed = new ArrayList<>();
+        for (int i = 0; i < routes.size(); i++) {
+            final Object inboundPath = routes.get(i).getMetadata().get(INBOUND_PATH_METADATA);
+            if (inboundPath instanceof String && ((String) inboundPath).startsWith("/")) {
+                insert((String) inboundPath, i);
+            } else {
+                unindexed.add(i);
+            }
+        }
+        this.unindexed = unindexed.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private void insert(String inboundPath, int position) {
+        final String[] segments = inboundPath.substring(1).split("/", -1);
+        Node node = root;
+        for (int i = 0; i < segments.length; i++) {
+            final String segment = segments[i];
+            if (segment.equals("**") || segment.startsWith("{*")) {
+                node.captures = append(node.captures, position);
+                return;
+            }
+            if (segment.isEmpty() && i == segments.length - 1) {
+                break;
+            }
+            if (segment.indexOf('{') >= 0 || segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0) {
+                if (node.variable == null) {
+                    node.variable = new Node();
+                }
+                node = node.variable;
+            } else {
+                node = node.literals.computeIfAbsent(segment, s -> new Node());
+            }
+        }
+        node.terminals = append(node.terminals, position);
+    }
+
+    /**
+     * @param path The decoded path within the application, as matched by the path route predicate.
+     * @return The routes that may match the given path, in route order.
+     */
+    public List<Route> candidates(String path) {
+        // Leave encoded, parameterized or irregular paths to the predicates
+        if (!path.startsWith("/") || path.indexOf('%') >= 0 || path.indexOf(';') >= 0 || path.contains("//")) {
+            return routes;
+        }
+
+        final String[] segments = path.substring(1).split("/", -1);
+        final Matches matches = new Matches(unindexed);
+        match(root, segments, 0, matches);
+        return matches.toRoutes(routes);
+    }
+
+    private static void match(Node node, String[] segments, int index, Matches matches) {
+        matches.addAll(node.captures);
+        final boolean trailingSlash = index == segments.length - 1 && segments[index].isEmpty();
+        if (index == segments.length || trailingSlash) {
+            matches.addAll(node.terminals);
+            return;
+        }
+
+        final String segment = segments[index];
+        final Node literal = node.literals.get(segment);
+        if (literal != null) {
+            match(literal, segments, index + 1, matches);
+        }
+        if (node.variable != null && !segment.isEmpty()) {
+            match(node.variable, segments, index + 1, matches);
+        }
+    }
+
+    public int size() {
+        return routes.size();
+    }
+
+    private static int[] append(int[] values, int value) {
+        final int[] appended = Arrays.copyOf(values, values.length + 1);
+        appended[values.length] = value;
+        return appended;
+    }
+
+    private static final class Matches {
+        private int[] positions;
+        private int size;
+
+        private Matches(int[] unindexed) {
+            this.positions = Arrays.copyOf(unindexed, unindexed.length + 4);
+            this.size = unindexed.length;
+        }
+
+        private void addAll(int[] values) {
+            if (values.length == 0) {
+                return;
+            }
+            if (size + values.length > positions.length) {
+                positions = Arrays.copyOf(positions, Math.max(positions.length * 2, size + values.length));
+            }
+            System.arraycopy(values, 0, positions, size, values.length);
+            size += values.length;
+        }
+
+        private List<Route> toRoutes(List<Route> routes) {
+            Arrays.sort(positions, 0, size);
+            final List<Route> candidates = new ArrayList<>(size);
+            int previous = -1;
+            for (int i = 0; i < size; i++) {
+                if (positions[i] != previous) {
+                    candidates.add(routes.get(positions[i]));
+                    previous = positions[i];
+                }
+            }
+            return candidates;
+        }
+    }
+}
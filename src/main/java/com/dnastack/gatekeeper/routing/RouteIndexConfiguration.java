@@ -0,0 +1,26 @@
+package com.dnastack.gatekeeper.routing;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.handler.RoutePredicateHandlerMapping;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Replaces the default gateway route lookup, which tests every route predicate in order, with an indexed one.
+ */
+@Configuration
+@ConditionalOnProperty(value = "gatekeeper.route-index.enabled", matchIfMissing = true)
+public class RouteIndexConfiguration {
+
+    @Bean
+    public RoutePredicateHandlerMapping routePredicateHandlerMapping(FilteringWebHandler webHandler,
+                                                                     RouteLocator routeLocator,
+                                                                     GlobalCorsProperties globalCorsProperties,
+                                                                     Environment environment) {
+        return new IndexedRoutePredicateHandlerMapping(webHandler, routeLocator, globalCorsProperties, environment);
+    }
+}
@@ -0,0 +1,45 @@
+package com.dnastack.gatekeeper.token;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Decodes one claim shape from verified claims into the form authorizers work with. Implementations should be shared
+ * constants, since results are memoized per projection instance on each {@link VerifiedToken}.
+ *
+ * @param <T> The decoded form. Callers must not modify it, since it is shared by every request carrying the same token.
+ */
+public interface ClaimProjection<T> {
+
+    /**
+     * @return Names of the top-level claims this projection reads. See {@link RequiredClaims}.
+     */
+    Set<String> getClaimNames();
+
+    /**
+     * @return The decoded claim. Never null; use an empty value when the claim is absent.
+     */
+    T project(Claims claims);
+
+    static <T> ClaimProjection<T> of(Set<String> claimNames, Function<Claims, T> decoder) {
+        final Set<String> names = Set.copyOf(claimNames);
+        return new ClaimProjection<>() {
+            @Override
+            public Set<String> getClaimNames() {
+                return names;
+            }
+
+            @Override
+            public T project(Claims claims) {
+                return decoder.apply(claims);
+            }
+
+            @Override
+            public String toString() {
+                return "ClaimProjection" + names;
+            }
+        };
+    }
+}
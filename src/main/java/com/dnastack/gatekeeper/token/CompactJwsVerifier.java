@@ -0,0 +1,231 @@
+package com.dnastack.gatekeeper.token;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.PrematureJwtException;
+import io.jsonwebtoken.SigningKeyResolver;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.InvalidKeyException;
+import io.jsonwebtoken.security.SignatureException;
+import io.jsonwebtoken.security.WeakKeyException;
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.RSAKey;
+import java.security.spec.AlgorithmParameterSpec;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PSSParameterSpec;
+import java.time.Clock;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static java.lang.String.format;
+
+/**
+ * Verifies compact RSA-signed JWS tokens without building a complete claims map. The signature is checked against the
+ * encoded token directly, and only the claims in {@link RequiredClaims} are decoded up front; other claims are decoded
+ * only if something asks for them.
+ * <p>
+ * Failures are reported with the same exception types jjwt uses. Tokens this class does not handle (other algorithm
+ * families, compressed payloads, critical header parameters) are left to jjwt.
+ */
+@Component
+public class CompactJwsVerifier {
+
+    private static final int MIN_RSA_KEY_BITS = 2048;
+    private static final int CHUNK_SIZE = 4096;
+    private static final Map<String, SignatureAlgorithm> ALGORITHMS = Map.of(
+        "RS256", new SignatureAlgorithm("SHA256withRSA", null),
+        "RS384", new SignatureAlgorithm("SHA384withRSA", null),
+        "RS512", new SignatureAlgorithm("SHA512withRSA", null),
+        "PS256", new SignatureAlgorithm("RSASSA-PSS", new PSSParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256, 32, 1)),
+        "PS384", new SignatureAlgorithm("RSASSA-PSS", new PSSParameterSpec("SHA-384", "MGF1", MGF1ParameterSpec.SHA384, 48, 1)),
+        "PS512", new SignatureAlgorithm("RSASSA-PSS", new PSSParameterSpec("SHA-512", "MGF1", MGF1ParameterSpec.SHA512, 64, 1))
+    );
+    private static final ThreadLocal<byte[]> SIGNING_INPUT_CHUNK = ThreadLocal.withInitial(() -> new byte[CHUNK_SIZE]);
+
+    @Value
+    private static class SignatureAlgorithm {
+        String jcaName;
+        AlgorithmParameterSpec parameters;
+    }
+
+    private final boolean enabled;
+    private final ObjectMapper objectMapper;
+    private final JsonFactory jsonFactory;
+    private final SigningKeyResolver signingKeyResolver;
+    private final RequiredClaims requiredClaims;
+    private final Clock clock;
+    private final long allowedClockSkewMillis;
+
+    @Autowired
+    public CompactJwsVerifier(TokenConfig tokenConfig, ObjectMapper objectMapper, SigningKeyResolver signingKeyResolver, RequiredClaims requiredClaims) {
+        this(tokenConfig.getStreamingParser().isEnabled(), objectMapper, signingKeyResolver, requiredClaims, Clock.systemUTC(),
+             tokenConfig.getAllowedClockSkew().toSeconds() * 1000);
+    }
+
+    CompactJwsVerifier(boolean enabled,
+                       ObjectMapper objectMapper,
+                       SigningKeyResolver signingKeyResolver,
+                       RequiredClaims requiredClaims,
+                       Clock clock,
+                       long allowedClockSkewMillis) {
+        this.enabled = enabled;
+        this.objectMapper = objectMapper;
+        this.jsonFactory = objectMapper.getFactory();
+        this.signingKeyResolver = signingKeyResolver;
+        this.requiredClaims = requiredClaims;
+        this.clock = clock;
+        this.allowedClockSkewMillis = allowedClockSkewMillis;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param token A compact JWS. Never null.
+     * @return The verified token, or null if this verifier does not handle the token and it should be given to jjwt.
+     */
+    public Jws<Claims> verify(String token) throws JwtException {
+        final int headerEnd = token.indexOf('.');
+        final int payloadEnd = headerEnd < 0 ? -1 : token.indexOf('.', headerEnd + 1);
+        if (payloadEnd < 0 || token.indexOf('.', payloadEnd + 1) >= 0) {
+            throw new MalformedJwtException("JWT strings must contain exactly 2 period characters.");
+        }
+        if (payloadEnd == token.length() - 1) {
+            throw new UnsupportedJwtException("Unsigned Claims JWTs are not supported.");
+        }
+
+        final Map<String, Object> header = readHeader(token, headerEnd);
+        final SignatureAlgorithm algorithm = ALGORITHMS.get(String.valueOf(header.get("alg")));
+        if (algorithm == null || header.containsKey("zip") || header.containsKey("crit")) {
+            return null;
+        }
+
+        final byte[] payload = decode(token, headerEnd + 1, payloadEnd, "payload");
+        final Set<String> claimNames = requiredClaims.getNames();
+        final StreamedClaims claims = new StreamedClaims(readClaims(payload, claimNames), claimNames, () -> readClaims(payload, null));
+        final String signature = token.substring(payloadEnd + 1);
+        final StreamedJws jws = new StreamedJws(header, claims, signature);
+
+        final PublicKey publicKey = checkKey(signingKeyResolver.resolveSigningKey(jws.getHeader(), claims), header.get("alg"));
+        verifySignature(token, payloadEnd, decode(token, payloadEnd + 1, token.length(), "signature"), algorithm, publicKey);
+        checkTimestamps(jws, claims);
+
+        return jws;
+    }
+
+    private Map<String, Object> readHeader(String token, int headerEnd) {
+        try {
+            @SuppressWarnings("unchecked")
+            final Map<String, Object> header = objectMapper.readValue(decode(token, 0, headerEnd, "header"), Map.class);
+            if (header == null) {
+                throw new MalformedJwtException("JWT header is not a JSON object.");
+            }
+            return header;
+        } catch (IOException | ClassCastException e) {
+            throw new MalformedJwtException("Unable to read JWT header: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @param claimNames The claims to decode, or null for all of them.
+     */
+    private Map<String, Object> readClaims(byte[] payload, Set<String> claimNames) {
+        final Map<String, Object> claims = new HashMap<>(claimNames == null ? 16 : claimNames.size() * 2);
+        try (JsonParser parser = jsonFactory.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new MalformedJwtException("JWT payload is not a JSON object.");
+            }
+            for (String name = parser.nextFieldName(); name != null; name = parser.nextFieldName()) {
+                parser.nextToken();
+                if (claimNames == null || claimNames.contains(name)) {
+                    claims.put(name, parser.readValueAs(Object.class));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            throw new MalformedJwtException("Unable to read JWT payload: " + e.getMessage(), e);
+        }
+        return claims;
+    }
+
+    private static byte[] decode(String token, int start, int end, String part) {
+        try {
+            return Base64.getUrlDecoder().decode(token.substring(start, end));
+        } catch (IllegalArgumentException e) {
+            throw new MalformedJwtException(format("Unable to decode JWT %s: %s", part, e.getMessage()), e);
+        }
+    }
+
+    private static PublicKey checkKey(Key key, Object alg) {
+        if (!(key instanceof PublicKey) || !(key instanceof RSAKey)) {
+            throw new InvalidKeyException(format("%s signatures must be verified with an RSA public key.", alg));
+        }
+        final int bits = ((RSAKey) key).getModulus().bitLength();
+        if (bits < MIN_RSA_KEY_BITS) {
+            throw new WeakKeyException(format("The verification key's size is %d bits which is not secure enough for the %s algorithm. " +
+                                              "RSA keys must be >= %d bits.", bits, alg, MIN_RSA_KEY_BITS));
+        }
+        return (PublicKey) key;
+    }
+
+    private static void verifySignature(String token, int signingInputEnd, byte[] signature, SignatureAlgorithm algorithm, PublicKey publicKey) {
+        final boolean verified;
+        try {
+            final Signature verifier = Signature.getInstance(algorithm.getJcaName());
+            if (algorithm.getParameters() != null) {
+                verifier.setParameter(algorithm.getParameters());
+            }
+            verifier.initVerify(publicKey);
+            // The signing input is ASCII, so its bytes can be copied out of the token in chunks
+            final byte[] chunk = SIGNING_INPUT_CHUNK.get();
+            for (int offset = 0; offset < signingInputEnd; offset += chunk.length) {
+                final int length = Math.min(chunk.length, signingInputEnd - offset);
+                for (int i = 0; i < length; i++) {
+                    chunk[i] = (byte) token.charAt(offset + i);
+                }
+                verifier.update(chunk, 0, length);
+            }
+            verified = verifier.verify(signature);
+        } catch (GeneralSecurityException e) {
+            throw new SignatureException("Unable to verify RSA signature using configured PublicKey. " + e.getMessage(), e);
+        }
+        if (!verified) {
+            throw new SignatureException("JWT signature does not match locally computed signature. JWT validity cannot be asserted and should not be trusted.");
+        }
+    }
+
+    private void checkTimestamps(StreamedJws jws, StreamedClaims claims) {
+        final Date now = new Date(clock.millis());
+        final Date expiration = claims.getExpiration();
+        // Same comparisons as jjwt
+        if (expiration != null && new Date(now.getTime() - allowedClockSkewMillis).after(expiration)) {
+            throw new ExpiredJwtException(jws.getHeader(), claims, format("JWT expired at %s. Current time: %s, a difference of %d milliseconds.",
+                                                                          expiration.toInstant(), now.toInstant(), now.getTime() - expiration.getTime()));
+        }
+        final Date notBefore = claims.getNotBefore();
+        if (notBefore != null && new Date(now.getTime() + allowedClockSkewMillis).before(notBefore)) {
+            throw new PrematureJwtException(jws.getHeader(), claims, format("JWT must not be accepted before %s. Current time: %s, a difference of %d milliseconds.",
+                                                                            notBefore.toInstant(), now.toInstant(), notBefore.getTime() - now.getTime()));
+        }
+    }
+}
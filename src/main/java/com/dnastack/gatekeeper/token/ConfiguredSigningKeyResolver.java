@@ -3,12 +3,13 @@ package com.dnastack.gatekeeper.token;
 import com.dnastack.auth.keyresolver.IssuerPubKeyResolver;
 import com.dnastack.auth.model.IssuerKeyIdPair;
 import com.dnastack.gatekeeper.config.InboundConfiguration.IssuerConfig;
+import com.dnastack.gatekeeper.config.JsonDefinedRegistry;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwsHeader;
 import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.SigningKeyResolverAdapter;
 import lombok.Value;
-import org.springframework.beans.factory.BeanFactory;
+import lombok.extern.slf4j.Slf4j;
 
 import java.security.Key;
 import java.util.Collection;
@@ -16,9 +17,9 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
-import static com.dnastack.gatekeeper.config.JsonDefinedFactory.createFactoryInstance;
 import static java.lang.String.format;
 
+@Slf4j
 public class ConfiguredSigningKeyResolver extends SigningKeyResolverAdapter implements IssuerPubKeyResolver {
 
     @Value
@@ -30,17 +31,29 @@ public class ConfiguredSigningKeyResolver extends SigningKeyResolverAdapter impl
     @FunctionalInterface
     public interface KeyResolver {
         Key resolve(IssuerConfig issuerConfig, String keyId);
+
+        /**
+         * Called once at startup, so resolvers can start loading keys before the first token arrives.
+         */
+        default void prepare(IssuerConfig issuerConfig) {
+        }
+
+        /**
+         * Whether {@link #resolve} may wait on the network, for keys it hasn't loaded yet.
+         */
+        default boolean mayBlock() {
+            return false;
+        }
     }
 
     private final ConcurrentMap<String, RuntimeIssuerInfo> infoByIssuer;
-    private final BeanFactory beanFactory;
 
-    public ConfiguredSigningKeyResolver(BeanFactory beanFactory, Collection<IssuerConfig> issuerConfigs) {
-        this.beanFactory = beanFactory;
+    public ConfiguredSigningKeyResolver(JsonDefinedRegistry jsonDefinedRegistry, Collection<IssuerConfig> issuerConfigs) {
         this.infoByIssuer = issuerConfigs.stream()
                                          .map(issuerConfig -> new RuntimeIssuerInfo(issuerConfig,
-                                             createFactoryInstance(this.beanFactory, issuerConfig.getBean(), issuerConfig.getArgs())))
+                                             jsonDefinedRegistry.getOrCreate(issuerConfig.getBean(), issuerConfig.getArgs())))
                                          .collect(Collectors.toConcurrentMap(info -> info.getConfig().getIssuer(), Function.identity()));
+        this.infoByIssuer.values().forEach(info -> info.getResolver().prepare(info.getConfig()));
     }
 
     @Override
@@ -60,10 +73,33 @@ public class ConfiguredSigningKeyResolver extends SigningKeyResolverAdapter impl
         return loadedInfo.getResolver().resolve(loadedInfo.getConfig(), header.getKeyId());
     }
 
+    /**
+     * Whether resolving the key of any configured issuer may wait on the network.
+     */
+    public boolean mayBlock() {
+        return infoByIssuer.values().stream().anyMatch(info -> info.getResolver().mayBlock());
+    }
+
+    /**
+     * Loads keys for every configured issuer, as far as each resolver can without being given a key ID.
+     */
+    public void warmUp() {
+        for (RuntimeIssuerInfo info : infoByIssuer.values()) {
+            try {
+                info.getResolver().resolve(info.getConfig(), null);
+            } catch (JwtException e) {
+                // Expected for issuers with several keys, once those keys have been loaded
+                log.debug("Issuer [{}] has no key for tokens without a key ID: {}", info.getConfig().getIssuer(), e.getMessage());
+            }
+        }
+    }
+
     private RuntimeIssuerInfo getRuntimeIssuerInfo(String issuer) {
-        return infoByIssuer.computeIfAbsent(issuer, iss -> {
-            throw new JwtException(format("Unrecognized issuer [%s]", iss));
-        });
+        final RuntimeIssuerInfo info = issuer == null ? null : infoByIssuer.get(issuer);
+        if (info == null) {
+            throw new RejectedTokenException(format("Unrecognized issuer [%s]", issuer));
+        }
+        return info;
     }
 
 }
@@ -1,16 +1,48 @@
 package com.dnastack.gatekeeper.token;
 
 import com.dnastack.gatekeeper.acl.UnroutableRequestException;
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 import lombok.Value;
 import org.springframework.http.HttpCookie;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 
 @Value
 public class InboundTokens {
     private String accessToken;
     private String idToken;
+
+    /**
+     * Outcome of verifying each raw token, so that every authorizer in an ACL walk shares one signature check.
+     * An instance of this class only lives as long as the request it was extracted from.
+     */
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private Map<String, Verification> verifications = new HashMap<>(2);
+
+    /**
+     * Cheap check for whether {@link #extractAuthToken(ServerHttpRequest)} could find any token, without parsing the
+     * query string or cookies. May return true for requests without tokens, but never false for requests with them.
+     */
+    public static boolean mayCarryTokens(ServerHttpRequest request) {
+        final HttpHeaders headers = request.getHeaders();
+        if (headers.containsKey(HttpHeaders.AUTHORIZATION) || headers.containsKey(HttpHeaders.COOKIE)) {
+            return true;
+        }
+        final String query = request.getURI().getRawQuery();
+        // Parameter names may be percent-encoded
+        return query != null && (query.contains("_token") || query.indexOf('%') >= 0);
+    }
+
     public static Optional<InboundTokens> extractAuthToken(ServerHttpRequest request) throws UnroutableRequestException {
         final String authHeader = request.getHeaders().getFirst("authorization");
 
@@ -42,4 +74,34 @@ public class InboundTokens {
             }
         }
     }
+
+    /**
+     * Verifies the given raw token at most once for the lifetime of these inbound tokens. Later calls for the same raw
+     * token return the first result, or rethrow the exception the first verification failed with.
+     *
+     * @param rawToken One of the tokens carried by this instance. May be null, in which case the verifier decides how to fail.
+     * @param verifier Performs the actual signature and claims validation.
+     */
+    synchronized VerifiedToken verify(String rawToken, Function<String, VerifiedToken> verifier) {
+        Verification verification = verifications.get(rawToken);
+        if (verification == null) {
+            try {
+                verification = new Verification(verifier.apply(rawToken), null);
+            } catch (RuntimeException e) {
+                verification = new Verification(null, e);
+            }
+            verifications.put(rawToken, verification);
+        }
+
+        if (verification.getFailure() != null) {
+            throw verification.getFailure();
+        }
+        return verification.getToken();
+    }
+
+    @Value
+    private static class Verification {
+        VerifiedToken token;
+        RuntimeException failure;
+    }
 }
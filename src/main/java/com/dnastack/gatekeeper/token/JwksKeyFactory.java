@@ -1,36 +1,61 @@
 package com.dnastack.gatekeeper.token;
 
-import com.dnastack.auth.cache.CachingConcurrentHashMap;
 import com.dnastack.gatekeeper.config.InboundConfiguration;
 import com.dnastack.gatekeeper.config.JsonDefinedFactory;
 import com.dnastack.gatekeeper.config.RsaKeyHelper;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import feign.Feign;
-import feign.RequestLine;
-import feign.jackson.JacksonDecoder;
-import feign.jackson.JacksonEncoder;
 import io.jsonwebtoken.JwtException;
 import lombok.Data;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.LoopResources;
 
 import java.math.BigInteger;
 import java.net.URI;
+import java.nio.file.Path;
 import java.security.Key;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static java.lang.String.format;
 
 @Slf4j
 @Component("oidc-jwks")
-public class JwksKeyFactory extends JsonDefinedFactory<JwksKeyFactory.Config, ConfiguredSigningKeyResolver.KeyResolver> {
+public class JwksKeyFactory extends JsonDefinedFactory<JwksKeyFactory.Config, ConfiguredSigningKeyResolver.KeyResolver> implements DisposableBean {
+
+    /*
+     * Key fetches get their own event loop. Resolution is called synchronously from token parsing, which may itself be
+     * running on a server event loop, and must never wait on a response that the same loop would have to deliver.
+     */
+    private final LoopResources loopResources = LoopResources.create("gatekeeper-jwks", 1, true);
+    private final WebClient webClient = WebClient.builder()
+                                                 .clientConnector(new ReactorClientHttpConnector(HttpClient.create().runOn(loopResources)))
+                                                 .build();
+    private final Set<JwksKeyResolver> resolvers = ConcurrentHashMap.newKeySet();
 
     @Autowired
     public JwksKeyFactory(ObjectMapper objectMapper) {
@@ -44,69 +69,340 @@ public class JwksKeyFactory extends JsonDefinedFactory<JwksKeyFactory.Config, Co
 
     @Override
     protected ConfiguredSigningKeyResolver.KeyResolver create(Config config) {
-        return new JwksKeyResolver(objectMapper, config);
+        final JwksKeyResolver resolver = new JwksKeyResolver(config == null ? new Config() : config);
+        resolvers.add(resolver);
+        return resolver;
+    }
+
+    @Override
+    public void destroy() {
+        resolvers.forEach(JwksKeyResolver::close);
+        loopResources.dispose();
     }
 
     @Data
     public static class Config {
+        /**
+         * Milliseconds between background refreshes of an issuer's keys.
+         */
         private Long fetchjwksinterval;
+        /**
+         * Milliseconds to wait on the issuer when no usable key is cached yet.
+         */
+        private Long fetchtimeout;
+        /**
+         * Minimum milliseconds between fetches triggered by tokens with unknown key IDs.
+         */
+        private Long minrefetchinterval;
+        /**
+         * Directory for on-disk copies of each issuer's last good key set. No copies are kept if unset.
+         */
+        private String snapshotdir;
+        /**
+         * Milliseconds after which an on-disk key set is no longer trusted at startup.
+         */
+        private Long maxsnapshotstaleness;
+    }
+
+    /**
+     * @return The RSA public key described by the given JWK.
+     */
+    static Key toPublicKey(RsaJwk jwk) {
+        final Base64.Decoder decoder = Base64.getUrlDecoder();
+        final BigInteger modulus = new BigInteger(1, decoder.decode(jwk.getModulus()));
+        final BigInteger publicExponent = new BigInteger(1, decoder.decode(jwk.getExponent()));
+
+        return RsaKeyHelper.createPublicKey(modulus, publicExponent);
     }
 
-    private static class JwksKeyResolver implements ConfiguredSigningKeyResolver.KeyResolver {
+    /**
+     * Keeps the last good key set for each issuer and refreshes it in the background, so that token parsing only waits
+     * on the issuer when it has never seen a key set or is handed a key ID it does not know.
+     */
+    private class JwksKeyResolver implements ConfiguredSigningKeyResolver.KeyResolver {
 
         private final static long DEFAULT_FETCH_JWKS_INTERVAL = 30_000; // 30s
-        private final Map<CompoundKeyId, Key> keysByIssuer;
-        private final ObjectMapper objectMapper;
+        private final static long DEFAULT_FETCH_TIMEOUT = 5_000; // 5s
+        private final static long MIN_RETRY_INTERVAL = 1_000; // 1s
+        private final static long DEFAULT_MIN_REFETCH_INTERVAL = 5_000; // 5s
+        private final static int MAX_ABSENT_KEY_IDS = 1_000;
+        private final static long DEFAULT_MAX_SNAPSHOT_STALENESS = 86_400_000; // 1 day
+
+        private final Duration refreshInterval;
+        private final Duration retryInterval;
+        private final Duration fetchTimeout;
+        private final long minRefetchIntervalNanos;
+        private final JwksSnapshotStore snapshotStore;
+        private final ConcurrentMap<String, IssuerKeys> keysByIssuer = new ConcurrentHashMap<>();
+
+        private JwksKeyResolver(Config config) {
+            final long interval = config.getFetchjwksinterval() != null ? config.getFetchjwksinterval() : DEFAULT_FETCH_JWKS_INTERVAL;
+            this.refreshInterval = Duration.ofMillis(interval);
+            this.retryInterval = Duration.ofMillis(Math.max(MIN_RETRY_INTERVAL, interval / 4));
+            this.fetchTimeout = Duration.ofMillis(config.getFetchtimeout() != null ? config.getFetchtimeout() : DEFAULT_FETCH_TIMEOUT);
+            this.minRefetchIntervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getMinrefetchinterval() != null
+                                                                             ? config.getMinrefetchinterval()
+                                                                             : DEFAULT_MIN_REFETCH_INTERVAL);
+            this.snapshotStore = config.getSnapshotdir() == null ? null : new JwksSnapshotStore(
+                objectMapper,
+                Path.of(config.getSnapshotdir()),
+                Duration.ofMillis(config.getMaxsnapshotstaleness() != null ? config.getMaxsnapshotstaleness() : DEFAULT_MAX_SNAPSHOT_STALENESS),
+                Clock.systemUTC());
+        }
+
+        @Override
+        public void prepare(InboundConfiguration.IssuerConfig issuerConfig) {
+            final IssuerKeys issuerKeys = issuerKeys(issuerConfig.getIssuer());
+            if (snapshotStore != null) {
+                snapshotStore.load(issuerKeys.issuer).ifPresent(snapshot -> {
+                    issuerKeys.jwksUri = snapshot.getJwksUri();
+                    issuerKeys.current.compareAndSet(null, KeySet.of(snapshot.getJwks()));
+                    log.info("Loaded keys for issuer [{}] from snapshot", issuerKeys.issuer);
+                });
+            }
+            issuerKeys.refresh();
+        }
 
-        private JwksKeyResolver(ObjectMapper objectMapper, Config config) {
-            this.objectMapper = objectMapper;
-            long fetchJwksInterval = (config != null && config.getFetchjwksinterval() != null) ? config.getFetchjwksinterval() : DEFAULT_FETCH_JWKS_INTERVAL;
-            this.keysByIssuer = new CachingConcurrentHashMap<>(fetchJwksInterval, CachingConcurrentHashMap.DEFAULT_MAX_SIZE, null);
+        /**
+         * Resolution waits on the issuer when there are no keys yet, or the key ID is unknown.
+         */
+        @Override
+        public boolean mayBlock() {
+            return true;
         }
 
         @Override
         public Key resolve(InboundConfiguration.IssuerConfig issuerConfig, String givenKeyId) {
-            final String issuer = issuerConfig.getIssuer();
-            final OidcClient oidcClient = Feign.builder()
-                                               .encoder(new JacksonEncoder(objectMapper))
-                                               .decoder(new JacksonDecoder(objectMapper))
-                                               .target(OidcClient.class, issuer);
-            final CompoundKeyId compoundKeyId = new CompoundKeyId(issuerConfig.getIssuer(), givenKeyId);
-            return keysByIssuer.computeIfAbsent(compoundKeyId, key -> {
-                final OidcConfiguration oidcConfig = oidcClient.getConfiguration();
-                final String jwksUri = oidcConfig.getJwksUri();
-                final Jwks jwks = oidcClient.getJwks(URI.create(jwksUri));
-
-                final RsaJwk foundJwk;
-                if (givenKeyId != null) {
-                    foundJwk = jwks.getKeys()
-                                   .stream()
-                                   .filter(jwk -> Objects.equals(givenKeyId, jwk.getKeyId()))
-                                   .findFirst()
-                                   .orElseThrow(() -> new JwtException(format("No key from issuer [%s] found for key ID [%s]", issuer, givenKeyId)));
+            final IssuerKeys issuerKeys = issuerKeys(issuerConfig.getIssuer());
+
+            KeySet keySet = issuerKeys.current.get();
+            if (keySet == null) {
+                keySet = issuerKeys.await(issuerKeys.refresh());
+            } else if (givenKeyId != null && !keySet.getKeysById().containsKey(givenKeyId)
+                       && !issuerKeys.absentKeyIds.contains(givenKeyId)) {
+                // Possibly a key the issuer has rotated in since we last looked
+                final CompletableFuture<KeySet> refetch = issuerKeys.refetch();
+                if (refetch != null) {
+                    // A failed fetch is reported as such, rather than as a missing key, so that the token isn't
+                    // remembered as rejected
+                    keySet = issuerKeys.await(refetch);
+                    // Only a fetch that ran tells us the issuer doesn't have the key, not a rate-limited one
+                    if (!keySet.getKeysById().containsKey(givenKeyId) && issuerKeys.absentKeyIds.size() < MAX_ABSENT_KEY_IDS) {
+                        issuerKeys.absentKeyIds.add(givenKeyId);
+                    }
                 } else {
-                    // Not sure that we need this anymore? It's probably from a time before we did JWKS properly.
-                    if (jwks.getKeys().size() == 1) {
-                        foundJwk = jwks.getKeys().get(0);
-                    } else {
-                        throw new JwtException(format("ambiguous key: token from issuer [%s] has no kid and JWKS endpoint contains multiple keys", issuer));
+                    // Keys may have arrived since we last looked, through a refetch for another token
+                    keySet = issuerKeys.current.get();
+                    if (!keySet.getKeysById().containsKey(givenKeyId)) {
+                        // The key may well exist, so the token mustn't be remembered as rejected
+                        throw new KeyFetchException(format("Key ID [%s] is unknown and keys from issuer [%s] were refetched too recently to look for it",
+                                                           givenKeyId,
+                                                           issuerKeys.issuer));
                     }
                 }
+            }
 
-                final Base64.Decoder decoder = Base64.getUrlDecoder();
-                final BigInteger modulus = new BigInteger(1, decoder.decode(foundJwk.getModulus()));
-                final BigInteger publicExponent = new BigInteger(1, decoder.decode(foundJwk.getExponent()));
+            return keySet.find(issuerKeys.issuer, givenKeyId);
+        }
 
-                return RsaKeyHelper.createPublicKey(modulus, publicExponent);
-            });
+        private IssuerKeys issuerKeys(String issuer) {
+            return keysByIssuer.computeIfAbsent(issuer, IssuerKeys::new);
         }
 
+        private void close() {
+            keysByIssuer.values().forEach(issuerKeys -> issuerKeys.scheduledRefresh.dispose());
+        }
+
+        private class IssuerKeys {
+            private final String issuer;
+            private final AtomicReference<KeySet> current = new AtomicReference<>();
+            private final AtomicReference<CompletableFuture<KeySet>> inFlight = new AtomicReference<>();
+            /**
+             * When the last fetch for an unknown key ID started. Background refreshes don't count, so that a key
+             * rotated in right after one can still be looked for.
+             */
+            private long lastRefetchStartedNanos;
+            private CompletableFuture<KeySet> refetchInFlight;
+            /**
+             * Key IDs that were still missing after a fetch, forgotten whenever a new key set arrives.
+             */
+            private final Set<String> absentKeyIds = ConcurrentHashMap.newKeySet();
+            private final Disposable.Swap scheduledRefresh = Disposables.swap();
+            private volatile String jwksUri;
+
+            private IssuerKeys(String issuer) {
+                this.issuer = issuer;
+                this.lastRefetchStartedNanos = System.nanoTime() - minRefetchIntervalNanos;
+            }
+
+            /**
+             * Joins the refetch under way, or starts one if none has started within the minimum refetch interval. A
+             * background refresh under way may have started before the key was rotated in, so the refetch follows it
+             * rather than joining it.
+             *
+             * @return A future completed with the fetched keys, or null if a fetch is not allowed yet.
+             */
+            private synchronized CompletableFuture<KeySet> refetch() {
+                if (refetchInFlight != null) {
+                    return refetchInFlight;
+                }
+                final long now = System.nanoTime();
+                if (now - lastRefetchStartedNanos < minRefetchIntervalNanos) {
+                    return null;
+                }
+                lastRefetchStartedNanos = now;
+                final CompletableFuture<KeySet> backgroundRefresh = inFlight.get();
+                final CompletableFuture<KeySet> refetch = backgroundRefresh == null
+                    ? refresh()
+                    : backgroundRefresh.handle((keySet, error) -> null).thenCompose(ignored -> refresh());
+                refetchInFlight = refetch;
+                refetch.whenComplete((keySet, error) -> clearRefetch(refetch));
+                return refetch;
+            }
+
+            private synchronized void clearRefetch(CompletableFuture<KeySet> refetch) {
+                if (refetchInFlight == refetch) {
+                    refetchInFlight = null;
+                }
+            }
+
+            /**
+             * Starts fetching the issuer's keys unless a fetch is already under way.
+             *
+             * @return A future completed with the fetched keys.
+             */
+            private CompletableFuture<KeySet> refresh() {
+                while (true) {
+                    final CompletableFuture<KeySet> existing = inFlight.get();
+                    if (existing != null) {
+                        return existing;
+                    }
+                    final CompletableFuture<KeySet> created = new CompletableFuture<>();
+                    if (inFlight.compareAndSet(null, created)) {
+                        fetch().subscribe(keySet -> {
+                            current.set(keySet);
+                            absentKeyIds.clear();
+                            inFlight.set(null);
+                            created.complete(keySet);
+                            log.debug("Fetched {} keys from issuer [{}]", keySet.getKeysById().size(), issuer);
+                            schedule(refreshInterval);
+                        }, error -> {
+                            inFlight.set(null);
+                            created.completeExceptionally(error);
+                            if (current.get() != null) {
+                                log.warn("Unable to refresh keys from issuer [{}]. Keeping previously fetched keys.", issuer, error);
+                            } else {
+                                log.warn("Unable to fetch keys from issuer [{}]", issuer, error);
+                            }
+                            schedule(retryInterval);
+                        });
+                        return created;
+                    }
+                }
+            }
+
+            private void schedule(Duration delay) {
+                if (!scheduledRefresh.isDisposed()) {
+                    scheduledRefresh.update(Mono.delay(delay).subscribe(tick -> refresh()));
+                }
+            }
+
+            private KeySet await(CompletableFuture<KeySet> future) {
+                try {
+                    return future.get(fetchTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                } catch (ExecutionException e) {
+                    throw new KeyFetchException(format("Unable to fetch keys from issuer [%s]", issuer), e.getCause());
+                } catch (TimeoutException e) {
+                    throw new KeyFetchException(format("Timed out fetching keys from issuer [%s]", issuer));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new KeyFetchException(format("Interrupted fetching keys from issuer [%s]", issuer));
+                }
+            }
+
+            private Mono<KeySet> fetch() {
+                final String knownJwksUri = jwksUri;
+                final Mono<String> jwksUriMono = knownJwksUri != null
+                    ? Mono.just(knownJwksUri)
+                    : get(stripTrailingSlash(issuer) + "/.well-known/openid-configuration", OidcConfiguration.class)
+                        .flatMap(oidcConfig -> Mono.justOrEmpty(oidcConfig.getJwksUri()))
+                        .switchIfEmpty(Mono.error(() -> new JwtException(format("Issuer [%s] does not advertise a jwks_uri", issuer))))
+                        .doOnNext(discovered -> jwksUri = discovered);
+
+                return jwksUriMono.flatMap(uri -> get(uri, Jwks.class).map(jwks -> {
+                                      final KeySet keySet = KeySet.of(jwks);
+                                      saveSnapshot(uri, jwks);
+                                      return keySet;
+                                  }))
+                                  .timeout(fetchTimeout)
+                                  // Rediscover on the next attempt in case the JWKS location has moved
+                                  .doOnError(error -> jwksUri = null);
+            }
+
+            private void saveSnapshot(String uri, Jwks jwks) {
+                if (snapshotStore != null) {
+                    Schedulers.boundedElastic().schedule(() -> snapshotStore.save(issuer, uri, jwks));
+                }
+            }
+
+            private <T> Mono<T> get(String uri, Class<T> type) {
+                // Read raw bytes since some issuers serve JSON without a JSON content type
+                return webClient.get()
+                                .uri(URI.create(uri))
+                                .retrieve()
+                                .bodyToMono(byte[].class)
+                                .flatMap(body -> Mono.fromCallable(() -> objectMapper.readValue(body, type)));
+            }
+        }
     }
 
+    private static String stripTrailingSlash(String uri) {
+        return uri.endsWith("/") ? uri.substring(0, uri.length() - 1) : uri;
+    }
+
+    /**
+     * All usable keys from one JWKS document.
+     */
     @Value
-    private static class CompoundKeyId {
-        String issuer;
-        String kid;
+    static class KeySet {
+        Map<String, Key> keysById;
+        /**
+         * The only key in the document, if it holds exactly one.
+         */
+        Key soleKey;
+
+        static KeySet of(Jwks jwks) {
+            final List<RsaJwk> jwkList = jwks.getKeys() == null ? List.of() : jwks.getKeys();
+            final Map<String, Key> keysById = new HashMap<>();
+            Key lastKey = null;
+            int usableKeys = 0;
+            for (RsaJwk jwk : jwkList) {
+                if (jwk.getKeyType() != null && !"RSA".equals(jwk.getKeyType())) {
+                    continue;
+                }
+                lastKey = toPublicKey(jwk);
+                usableKeys++;
+                if (jwk.getKeyId() != null) {
+                    keysById.put(jwk.getKeyId(), lastKey);
+                }
+            }
+            return new KeySet(Map.copyOf(keysById), usableKeys == 1 ? lastKey : null);
+        }
+
+        Key find(String issuer, String givenKeyId) {
+            if (givenKeyId != null) {
+                final Key key = keysById.get(givenKeyId);
+                if (key == null) {
+                    throw new JwtException(format("No key from issuer [%s] found for key ID [%s]", issuer, givenKeyId));
+                }
+                return key;
+            }
+            // Not sure that we need this anymore? It's probably from a time before we did JWKS properly.
+            if (soleKey == null) {
+                throw new JwtException(format("ambiguous key: token from issuer [%s] has no kid and JWKS endpoint contains multiple keys", issuer));
+            }
+            return soleKey;
+        }
     }
 
     @Data
@@ -139,12 +435,4 @@ public class JwksKeyFactory extends JsonDefinedFactory<JwksKeyFactory.Config, Co
         @JsonProperty("n")
         private String modulus;
     }
-
-    public interface OidcClient {
-        @RequestLine("GET /.well-known/openid-configuration")
-        OidcConfiguration getConfiguration();
-
-        @RequestLine("GET {uri}")
-        Jwks getJwks(URI uri);
-    }
 }
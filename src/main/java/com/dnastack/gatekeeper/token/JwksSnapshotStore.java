@@ -0,0 +1,100 @@
+package com.dnastack.gatekeeper.token;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Keeps the last key set fetched from each issuer on disk, so that a restarted gatekeeper can validate tokens before
+ * (or without) reaching the issuer.
+ */
+@Slf4j
+class JwksSnapshotStore {
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Snapshot {
+        private String issuer;
+        private String jwksUri;
+        private long fetchedAtMillis;
+        private JwksKeyFactory.Jwks jwks;
+    }
+
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final Duration maxStaleness;
+    private final Clock clock;
+
+    JwksSnapshotStore(ObjectMapper objectMapper, Path directory, Duration maxStaleness, Clock clock) {
+        this.objectMapper = objectMapper;
+        this.directory = directory;
+        this.maxStaleness = maxStaleness;
+        this.clock = clock;
+    }
+
+    /**
+     * @return The issuer's last saved key set, unless it is missing, unreadable or older than the maximum staleness.
+     */
+    Optional<Snapshot> load(String issuer) {
+        final Path file = fileFor(issuer);
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try {
+            final Snapshot snapshot = objectMapper.readValue(file.toFile(), Snapshot.class);
+            if (!Objects.equals(issuer, snapshot.getIssuer()) || snapshot.getJwks() == null) {
+                log.warn("Ignoring JWKS snapshot [{}] that does not belong to issuer [{}]", file, issuer);
+                return Optional.empty();
+            }
+            final Duration age = Duration.ofMillis(clock.millis() - snapshot.getFetchedAtMillis());
+            if (age.compareTo(maxStaleness) > 0) {
+                log.info("Ignoring JWKS snapshot for issuer [{}] fetched {} ago", issuer, age);
+                return Optional.empty();
+            }
+            return Optional.of(snapshot);
+        } catch (IOException e) {
+            log.warn("Unable to read JWKS snapshot [{}]", file, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Replaces the issuer's snapshot. Readers see either the previous or the new file, never a partial one.
+     */
+    void save(String issuer, String jwksUri, JwksKeyFactory.Jwks jwks) {
+        final Path file = fileFor(issuer);
+        try {
+            Files.createDirectories(directory);
+            final Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try {
+                objectMapper.writeValue(temp.toFile(), new Snapshot(issuer, jwksUri, clock.millis(), jwks));
+                try {
+                    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            log.warn("Unable to write JWKS snapshot [{}]", file, e);
+        }
+    }
+
+    private Path fileFor(String issuer) {
+        return directory.resolve(issuer.replaceAll("[^A-Za-z0-9.-]", "_") + ".jwks.json");
+    }
+}
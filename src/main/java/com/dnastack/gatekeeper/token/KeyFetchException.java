@@ -0,0 +1,20 @@
+package com.dnastack.gatekeeper.token;
+
+import io.jsonwebtoken.JwtException;
+
+/**
+ * Thrown when the signing keys of an issuer could not be fetched. Says nothing about the token itself, so tokens
+ * failing this way are not remembered as rejected.
+ */
+public class KeyFetchException extends JwtException {
+
+    private static final long serialVersionUID = 1L;
+
+    public KeyFetchException(String message) {
+        super(message);
+    }
+
+    public KeyFetchException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
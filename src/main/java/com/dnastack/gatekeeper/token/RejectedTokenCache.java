@@ -0,0 +1,65 @@
+package com.dnastack.gatekeeper.token;
+
+import com.dnastack.gatekeeper.util.BoundedExpiringCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+
+/**
+ * Remembers tokens that recently failed validation, along with the failure, so that clients retrying the same bad token
+ * are turned away without parsing or verifying it again. Entries live for a short, fixed time, since some failures
+ * (such as a key that has not been published yet) can resolve themselves.
+ */
+@Component
+public class RejectedTokenCache implements MeterBinder {
+
+    private final BoundedExpiringCache<TokenFingerprint, RuntimeException> cache;
+    private final Clock clock;
+    private final long ttlMillis;
+
+    @Autowired
+    public RejectedTokenCache(TokenConfig tokenConfig) {
+        this(tokenConfig.getRejectedCache(), Clock.systemUTC());
+    }
+
+    RejectedTokenCache(TokenConfig.RejectedCache config, Clock clock) {
+        this.clock = clock;
+        this.ttlMillis = config.getTtl().toMillis();
+        final long maxEntries = config.isEnabled() ? config.getMaxEntries() : 0;
+        // Every entry counts as one unit, so the weight bound never applies before the entry bound
+        this.cache = new BoundedExpiringCache<>(maxEntries, maxEntries, clock);
+    }
+
+    public boolean isEnabled() {
+        return cache.isEnabled();
+    }
+
+    /**
+     * @return The exception the given token was last rejected with, or null.
+     */
+    public RuntimeException get(TokenFingerprint fingerprint) {
+        return cache.get(fingerprint);
+    }
+
+    public void put(TokenFingerprint fingerprint, RuntimeException rejection) {
+        cache.put(fingerprint, rejection, 1, clock.millis() + ttlMillis);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("gatekeeper.token.rejected.cache.hits", cache, BoundedExpiringCache::hitCount)
+                       .description("Previously rejected tokens turned away without verification")
+                       .register(registry);
+        FunctionCounter.builder("gatekeeper.token.rejected.cache.evictions", cache, BoundedExpiringCache::evictionCount)
+                       .description("Rejected tokens evicted to stay within size bounds")
+                       .register(registry);
+        Gauge.builder("gatekeeper.token.rejected.cache.size", cache, BoundedExpiringCache::size)
+             .description("Rejected tokens currently cached")
+             .register(registry);
+    }
+}
@@ -0,0 +1,21 @@
+package com.dnastack.gatekeeper.token;
+
+import io.jsonwebtoken.JwtException;
+
+/**
+ * Thrown when a token is turned away before any signature verification. Rejections like these are routine for
+ * misbehaving clients, so this exception does not capture a stack trace.
+ */
+public class RejectedTokenException extends JwtException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RejectedTokenException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,31 @@
+package com.dnastack.gatekeeper.token;
+
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The claims that configured authorizers read. Parsers that decode claims selectively decode at least these up front.
+ * Authorizers register the projections they use when they are created.
+ */
+@Component
+public class RequiredClaims {
+
+    // Registered claims gatekeeper itself relies on for issuer lookup, the audience check and cache lifetimes
+    private static final Set<String> STANDARD_CLAIMS = Set.of("iss", "sub", "aud", "exp", "nbf", "iat", "jti");
+
+    private volatile Set<String> names = STANDARD_CLAIMS;
+
+    public synchronized void require(ClaimProjection<?> projection) {
+        if (!names.containsAll(projection.getClaimNames())) {
+            final Set<String> updated = new HashSet<>(names);
+            updated.addAll(projection.getClaimNames());
+            names = Set.copyOf(updated);
+        }
+    }
+
+    public Set<String> getNames() {
+        return names;
+    }
+}
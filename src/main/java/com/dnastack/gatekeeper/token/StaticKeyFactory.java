@@ -1,18 +1,43 @@
 package com.dnastack.gatekeeper.token;
 
+import com.dnastack.gatekeeper.config.InboundConfiguration;
 import com.dnastack.gatekeeper.config.JsonDefinedFactory;
 import com.dnastack.gatekeeper.config.RsaKeyHelper;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.JwtException;
 import lombok.Data;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.Key;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.lang.String.format;
 
 @Slf4j
 @Component("static-key")
-public class StaticKeyFactory extends JsonDefinedFactory<StaticKeyFactory.Config, ConfiguredSigningKeyResolver.KeyResolver> {
+public class StaticKeyFactory extends JsonDefinedFactory<StaticKeyFactory.Config, ConfiguredSigningKeyResolver.KeyResolver> implements DisposableBean {
+
+    private final Set<Disposable> fileWatches = ConcurrentHashMap.newKeySet();
 
     @Autowired
     public StaticKeyFactory(ObjectMapper objectMapper) {
@@ -26,12 +51,143 @@ public class StaticKeyFactory extends JsonDefinedFactory<StaticKeyFactory.Config
 
     @Override
     protected ConfiguredSigningKeyResolver.KeyResolver create(Config config) {
-        return (issuerConfig, header) -> RsaKeyHelper.parsePublicKey(config.getPublicKey());
+        final StaticKeyResolver resolver = new StaticKeyResolver(config);
+        if (config.getFile() != null) {
+            fileWatches.add(resolver.watch(Path.of(config.getFile()), Duration.ofMillis(config.getReloadinterval())));
+        }
+        return resolver;
+    }
+
+    @Override
+    public void destroy() {
+        fileWatches.forEach(Disposable::dispose);
     }
 
     @Data
     public static class Config {
+        /**
+         * PEM-formatted key used for every token from the issuer, whatever its key ID.
+         */
         @JsonProperty("publickey")
         private String publicKey;
+        /**
+         * PEM-formatted keys by key ID.
+         */
+        @JsonProperty("publickeys")
+        private Map<String, String> publicKeys;
+        /**
+         * Path to a PEM key or JWKS document. Changes to the file are picked up without a restart.
+         */
+        private String file;
+        /**
+         * Milliseconds between checks of the key file for changes.
+         */
+        private long reloadinterval = 10_000;
+    }
+
+    @Value
+    private static class StaticKeys {
+        /**
+         * Used for tokens without a key ID, or with one that has no key of its own. May be null.
+         */
+        Key defaultKey;
+        Map<String, Key> keysById;
+
+        Key find(String issuer, String keyId) {
+            final Key key = keyId == null ? null : keysById.get(keyId);
+            if (key != null) {
+                return key;
+            }
+            if (defaultKey != null) {
+                return defaultKey;
+            }
+            if (keyId == null && keysById.size() == 1) {
+                return keysById.values().iterator().next();
+            }
+            throw new JwtException(format("No key from issuer [%s] found for key ID [%s]", issuer, keyId));
+        }
+    }
+
+    /**
+     * Holds parsed keys, so that nothing is decoded while checking signatures.
+     */
+    private class StaticKeyResolver implements ConfiguredSigningKeyResolver.KeyResolver {
+
+        private final StaticKeys configuredKeys;
+        private final AtomicReference<StaticKeys> keys;
+
+        private StaticKeyResolver(Config config) {
+            final Map<String, Key> keysById = new HashMap<>();
+            if (config.getPublicKeys() != null) {
+                config.getPublicKeys().forEach((keyId, pem) -> keysById.put(keyId, RsaKeyHelper.parsePublicKey(pem)));
+            }
+            final Key defaultKey = config.getPublicKey() == null ? null : RsaKeyHelper.parsePublicKey(config.getPublicKey());
+            this.configuredKeys = new StaticKeys(defaultKey, Map.copyOf(keysById));
+            this.keys = new AtomicReference<>(config.getFile() == null
+                                                  ? configuredKeys
+                                                  : merge(configuredKeys, readKeyFile(Path.of(config.getFile()))));
+        }
+
+        @Override
+        public Key resolve(InboundConfiguration.IssuerConfig issuerConfig, String keyId) {
+            return keys.get().find(issuerConfig.getIssuer(), keyId);
+        }
+
+        private Disposable watch(Path file, Duration interval) {
+            final AtomicReference<FileTime> lastModified = new AtomicReference<>(lastModified(file));
+            // Polling rather than a WatchService, since mounted secrets are typically swapped through symlinks
+            return Flux.interval(interval, Schedulers.boundedElastic())
+                       .subscribe(tick -> {
+                           final FileTime modified = lastModified(file);
+                           if (Objects.equals(modified, lastModified.get())) {
+                               return;
+                           }
+                           try {
+                               keys.set(merge(configuredKeys, readKeyFile(file)));
+                               lastModified.set(modified);
+                               log.info("Reloaded keys from [{}]", file);
+                           } catch (RuntimeException e) {
+                               log.warn("Unable to reload keys from [{}]. Keeping previously loaded keys.", file, e);
+                           }
+                       });
+        }
+
+        private StaticKeys readKeyFile(Path file) {
+            final String content;
+            try {
+                content = Files.readString(file, StandardCharsets.US_ASCII);
+            } catch (IOException e) {
+                throw new ConfigException(format("Unable to read keys from [%s]", file), e);
+            }
+            if (content.trim().startsWith("{")) {
+                final JwksKeyFactory.KeySet keySet;
+                try {
+                    keySet = JwksKeyFactory.KeySet.of(objectMapper.readValue(content, JwksKeyFactory.Jwks.class));
+                } catch (IOException e) {
+                    throw new ConfigException(format("Unable to parse JWKS from [%s]", file), e);
+                }
+                // A lone key without an ID applies to every token, like a PEM file
+                return new StaticKeys(keySet.getKeysById().isEmpty() ? keySet.getSoleKey() : null, keySet.getKeysById());
+            }
+            return new StaticKeys(RsaKeyHelper.parsePublicKey(content), Map.of());
+        }
+
+        private FileTime lastModified(Path file) {
+            try {
+                return Files.getLastModifiedTime(file);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * @return Keys from both sources, preferring those in {@code overrides}.
+     */
+    private static StaticKeys merge(StaticKeys base, StaticKeys overrides) {
+        final Map<String, Key> keysById = new HashMap<>(base.getKeysById());
+        keysById.putAll(overrides.getKeysById());
+        final Key defaultKey = overrides.getDefaultKey() != null ? overrides.getDefaultKey() : base.getDefaultKey();
+        return new StaticKeys(defaultKey, Map.copyOf(keysById));
     }
 }
@@ -0,0 +1,183 @@
+package com.dnastack.gatekeeper.token;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.RequiredTypeException;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Read-only claims decoded by {@link CompactJwsVerifier}. Holds only the claims that were asked for up front; looking
+ * up any other claim, or iterating over all of them, decodes the whole payload once.
+ */
+class StreamedClaims extends AbstractMap<String, Object> implements Claims {
+
+    private final Set<String> decodedNames;
+    private final Supplier<Map<String, Object>> fullDecoder;
+    private volatile Map<String, Object> claims;
+    private volatile boolean complete;
+
+    StreamedClaims(Map<String, Object> decodedClaims, Set<String> decodedNames, Supplier<Map<String, Object>> fullDecoder) {
+        this.claims = decodedClaims;
+        this.decodedNames = decodedNames;
+        this.fullDecoder = fullDecoder;
+    }
+
+    private Map<String, Object> claimsIncluding(Object name) {
+        if (complete || decodedNames.contains(name)) {
+            return claims;
+        }
+        return allClaims();
+    }
+
+    private Map<String, Object> allClaims() {
+        if (!complete) {
+            synchronized (this) {
+                if (!complete) {
+                    claims = fullDecoder.get();
+                    complete = true;
+                }
+            }
+        }
+        return claims;
+    }
+
+    @Override
+    public Object get(Object key) {
+        return claimsIncluding(key).get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return claimsIncluding(key).containsKey(key);
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return Collections.unmodifiableMap(allClaims()).entrySet();
+    }
+
+    @Override
+    public <T> T get(String claimName, Class<T> requiredType) {
+        final Object value = get(claimName);
+        if (value == null) {
+            return null;
+        }
+        if (Date.class.equals(requiredType)) {
+            return requiredType.cast(toDate(claimName, value));
+        }
+        if (requiredType.isInstance(value)) {
+            return requiredType.cast(value);
+        }
+        if (value instanceof Number && (Long.class.equals(requiredType) || Integer.class.equals(requiredType))) {
+            final long longValue = ((Number) value).longValue();
+            if (Long.class.equals(requiredType)) {
+                return requiredType.cast(longValue);
+            }
+            if (longValue >= Integer.MIN_VALUE && longValue <= Integer.MAX_VALUE) {
+                return requiredType.cast((int) longValue);
+            }
+        }
+        throw new RequiredTypeException(String.format("Expected value of claim [%s] to be of type [%s] but was [%s]",
+                                                      claimName, requiredType, value.getClass()));
+    }
+
+    private static Date toDate(String claimName, Object value) {
+        if (value instanceof Date) {
+            return (Date) value;
+        }
+        if (value instanceof Number) {
+            return new Date(((Number) value).longValue() * 1000);
+        }
+        if (value instanceof String) {
+            try {
+                return new Date(Long.parseLong((String) value) * 1000);
+            } catch (NumberFormatException e) {
+                throw new RequiredTypeException(String.format("Claim [%s] is not a numeric date", claimName));
+            }
+        }
+        throw new RequiredTypeException(String.format("Claim [%s] is not a date", claimName));
+    }
+
+    @Override
+    public String getIssuer() {
+        return get("iss", String.class);
+    }
+
+    @Override
+    public String getSubject() {
+        return get("sub", String.class);
+    }
+
+    @Override
+    public String getAudience() {
+        return get("aud", String.class);
+    }
+
+    @Override
+    public Date getExpiration() {
+        return get("exp", Date.class);
+    }
+
+    @Override
+    public Date getNotBefore() {
+        return get("nbf", Date.class);
+    }
+
+    @Override
+    public Date getIssuedAt() {
+        return get("iat", Date.class);
+    }
+
+    @Override
+    public String getId() {
+        return get("jti", String.class);
+    }
+
+    @Override
+    public Claims setIssuer(String iss) {
+        throw new UnsupportedOperationException("Verified claims are read-only");
+    }
+
+    @Override
+    public Claims setSubject(String sub) {
+        throw new UnsupportedOperationException("Verified claims are read-only");
+    }
+
+    @Override
+    public Claims setAudience(String aud) {
+        throw new UnsupportedOperationException("Verified claims are read-only");
+    }
+
+    @Override
+    public Claims setExpiration(Date exp) {
+        throw new UnsupportedOperationException("Verified claims are read-only");
+    }
+
+    @Override
+    public Claims setNotBefore(Date nbf) {
+        throw new UnsupportedOperationException("Verified claims are read-only");
+    }
+
+    @Override
+    public Claims setIssuedAt(Date iat) {
+        throw new UnsupportedOperationException("Verified claims are read-only");
+    }
+
+    @Override
+    public Claims setId(String jti) {
+        throw new UnsupportedOperationException("Verified claims are read-only");
+    }
+
+    /**
+     * Only shows claims decoded so far, so that logging a token does not force the rest of it to be decoded.
+     */
+    @Override
+    public String toString() {
+        return claims.toString();
+    }
+}
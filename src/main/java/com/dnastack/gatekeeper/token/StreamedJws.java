@@ -0,0 +1,119 @@
+package com.dnastack.gatekeeper.token;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwsHeader;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A token verified by {@link CompactJwsVerifier}, shaped like the ones jjwt returns.
+ */
+class StreamedJws implements Jws<Claims> {
+
+    private final Header header;
+    private final StreamedClaims body;
+    private final String signature;
+
+    StreamedJws(Map<String, Object> header, StreamedClaims body, String signature) {
+        this.header = new Header(header);
+        this.body = body;
+        this.signature = signature;
+    }
+
+    @Override
+    public JwsHeader<Header> getHeader() {
+        return header;
+    }
+
+    @Override
+    public Claims getBody() {
+        return body;
+    }
+
+    @Override
+    public String getSignature() {
+        return signature;
+    }
+
+    @Override
+    public String toString() {
+        return "header=" + header + ",body=" + body + ",signature=" + signature;
+    }
+
+    static class Header extends AbstractMap<String, Object> implements JwsHeader<Header> {
+        private final Map<String, Object> values;
+
+        Header(Map<String, Object> values) {
+            this.values = Collections.unmodifiableMap(values);
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return values.entrySet();
+        }
+
+        @Override
+        public Object get(Object key) {
+            return values.get(key);
+        }
+
+        private String getString(String name) {
+            final Object value = values.get(name);
+            return value == null ? null : value.toString();
+        }
+
+        @Override
+        public String getAlgorithm() {
+            return getString(JwsHeader.ALGORITHM);
+        }
+
+        @Override
+        public String getKeyId() {
+            return getString(JwsHeader.KEY_ID);
+        }
+
+        @Override
+        public String getType() {
+            return getString(TYPE);
+        }
+
+        @Override
+        public String getContentType() {
+            return getString(CONTENT_TYPE);
+        }
+
+        @Override
+        public String getCompressionAlgorithm() {
+            return getString(COMPRESSION_ALGORITHM);
+        }
+
+        @Override
+        public Header setAlgorithm(String alg) {
+            throw new UnsupportedOperationException("Verified headers are read-only");
+        }
+
+        @Override
+        public Header setKeyId(String kid) {
+            throw new UnsupportedOperationException("Verified headers are read-only");
+        }
+
+        @Override
+        public Header setType(String typ) {
+            throw new UnsupportedOperationException("Verified headers are read-only");
+        }
+
+        @Override
+        public Header setContentType(String cty) {
+            throw new UnsupportedOperationException("Verified headers are read-only");
+        }
+
+        @Override
+        public Header setCompressionAlgorithm(String zip) {
+            throw new UnsupportedOperationException("Verified headers are read-only");
+        }
+    }
+}
@@ -5,6 +5,7 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
 import javax.validation.constraints.NotEmpty;
+import java.time.Duration;
 import java.util.List;
 
 @Configuration
@@ -13,4 +14,43 @@ import java.util.List;
 public class TokenConfig {
     @NotEmpty
     private List<String> audiences;
+    // Leeway for exp and nbf checks, shared by every stage that checks them. Applied with second precision.
+    private Duration allowedClockSkew = Duration.ZERO;
+
+    private VerifiedCache verifiedCache = new VerifiedCache();
+    private RejectedCache rejectedCache = new RejectedCache();
+    private Precheck precheck = new Precheck();
+    private StreamingParser streamingParser = new StreamingParser();
+
+    @Data
+    public static class VerifiedCache {
+        private boolean enabled = true;
+        private long maxEntries = 10_000;
+        private long maxBytes = 64L * 1024 * 1024;
+        /*
+         Upper bound on how long a verified token is trusted without checking its signature again, regardless of its
+         expiry. Limits how long a token keeps working after its signing key is rotated out.
+         */
+        private Duration maxTtl = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class RejectedCache {
+        private boolean enabled = true;
+        private long maxEntries = 10_000;
+        private Duration ttl = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Precheck {
+        // Length of the encoded header. Real headers are well under a hundred characters.
+        private int maxHeaderLength = 1024;
+        private List<String> algorithms = List.of("RS256", "RS384", "RS512", "PS256", "PS384", "PS512", "ES256", "ES384", "ES512");
+    }
+
+    @Data
+    public static class StreamingParser {
+        // Verify RSA-signed tokens with CompactJwsVerifier instead of jjwt, decoding only the claims authorizers need
+        private boolean enabled = false;
+    }
 }
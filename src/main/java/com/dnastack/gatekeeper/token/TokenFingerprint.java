@@ -0,0 +1,44 @@
+package com.dnastack.gatekeeper.token;
+
+import lombok.EqualsAndHashCode;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * A compact identity for a raw token, suitable as a cache key. Uses SHA-256 rather than a cheaper hash, since a
+ * collision would let one token be served the verification result of another.
+ */
+@EqualsAndHashCode
+public final class TokenFingerprint {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final byte[] digest;
+
+    private TokenFingerprint(byte[] digest) {
+        this.digest = digest;
+    }
+
+    /**
+     * @param rawToken Never null.
+     */
+    public static TokenFingerprint of(String rawToken) {
+        // Compact JWS serialization is plain ASCII
+        return new TokenFingerprint(SHA_256.get().digest(rawToken.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Override
+    public String toString() {
+        // Enough to correlate log lines without being able to recover the token
+        return "TokenFingerprint(" + Arrays.toString(Arrays.copyOf(digest, 4)) + ")";
+    }
+}
@@ -21,16 +21,102 @@ public class TokenParser {
 
     private final JwtParser jwtParser;
     private final TokenConfig tokenConfig;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final RejectedTokenCache rejectedTokenCache;
+    private final TokenPrecheck tokenPrecheck;
+    private final CompactJwsVerifier compactJwsVerifier;
+    private final ConfiguredSigningKeyResolver signingKeyResolver;
 
     @Autowired
-    public TokenParser(JwtParser jwtParser, TokenConfig tokenConfig) {
+    public TokenParser(JwtParser jwtParser,
+                       TokenConfig tokenConfig,
+                       VerifiedTokenCache verifiedTokenCache,
+                       RejectedTokenCache rejectedTokenCache,
+                       TokenPrecheck tokenPrecheck,
+                       CompactJwsVerifier compactJwsVerifier,
+                       ConfiguredSigningKeyResolver signingKeyResolver) {
         this.jwtParser = jwtParser;
         this.tokenConfig = tokenConfig;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.rejectedTokenCache = rejectedTokenCache;
+        this.tokenPrecheck = tokenPrecheck;
+        this.compactJwsVerifier = compactJwsVerifier;
+        this.signingKeyResolver = signingKeyResolver;
     }
 
+    /**
+     * Whether parsing a token may wait on an issuer for its signing keys. Authorizers that parse tokens should be kept
+     * off the server thread when it does.
+     */
+    public boolean mayBlock() {
+        return signingKeyResolver.mayBlock();
+    }
+
+
+    /**
+     * Same as {@link #parseAndValidate(String)}, but the result is remembered on the given inbound tokens so that
+     * authorizers evaluated later for the same request do not verify the token again.
+     *
+     * @param tokens The tokens extracted from the current request.
+     * @param authToken One of the raw tokens carried by {@code tokens}.
+     */
+    public VerifiedToken parseAndValidate(InboundTokens tokens, String authToken) throws JwtException, IllegalArgumentException {
+        return tokens.verify(authToken, this::parseAndValidate);
+    }
+
+    public Jws<Claims> parseAndValidateJws(InboundTokens tokens, String authToken) throws JwtException, IllegalArgumentException {
+        return parseAndValidate(tokens, authToken).getJws();
+    }
 
     public Jws<Claims> parseAndValidateJws(String authToken) throws JwtException, IllegalArgumentException {
-        final Jws<Claims> jws = jwtParser.parseClaimsJws(authToken);
+        return parseAndValidate(authToken).getJws();
+    }
+
+    public VerifiedToken parseAndValidate(String authToken) throws JwtException, IllegalArgumentException {
+        if (authToken == null || authToken.isEmpty()) {
+            // Let the parser fail the same way it always has for missing tokens
+            return verify(authToken);
+        }
+        if (!verifiedTokenCache.isEnabled() && !rejectedTokenCache.isEnabled()) {
+            tokenPrecheck.check(authToken);
+            return verify(authToken);
+        }
+
+        final TokenFingerprint fingerprint = TokenFingerprint.of(authToken);
+        final VerifiedToken cachedToken = verifiedTokenCache.get(fingerprint);
+        if (cachedToken != null) {
+            log.debug("Using previously validated inbound token {}", fingerprint);
+            return cachedToken;
+        }
+        final RuntimeException cachedRejection = rejectedTokenCache.get(fingerprint);
+        if (cachedRejection != null) {
+            log.debug("Rejecting previously rejected inbound token {}", fingerprint);
+            throw cachedRejection;
+        }
+
+        final VerifiedToken token;
+        try {
+            tokenPrecheck.check(authToken);
+            token = verify(authToken);
+        } catch (JwtException | IllegalArgumentException e) {
+            // The same token may verify once the issuer's keys can be fetched
+            if (!(e instanceof KeyFetchException)) {
+                rejectedTokenCache.put(fingerprint, e);
+            }
+            throw e;
+        }
+        verifiedTokenCache.put(fingerprint, authToken, token);
+        return token;
+    }
+
+    private VerifiedToken verify(String authToken) throws JwtException, IllegalArgumentException {
+        Jws<Claims> jws = null;
+        if (compactJwsVerifier.isEnabled() && authToken != null && !authToken.isEmpty()) {
+            jws = compactJwsVerifier.verify(authToken);
+        }
+        if (jws == null) {
+            jws = jwtParser.parseClaimsJws(authToken);
+        }
 
         final Object rawTokenAudience = Optional.of(jws)
                 .map(Jws::getBody)
@@ -55,7 +141,7 @@ public class TokenParser {
 
 
         log.info("Validated signature of inbound token {}", jws);
-        return jws;
+        return new VerifiedToken(jws);
     }
 
     public boolean isValid(String authToken) {
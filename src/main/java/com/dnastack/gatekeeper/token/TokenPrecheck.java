@@ -0,0 +1,195 @@
+package com.dnastack.gatekeeper.token;
+
+import com.dnastack.gatekeeper.config.InboundConfiguration;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static java.lang.String.format;
+
+/**
+ * Rejects tokens that can never pass validation, using only the unverified header and payload. Everything checked here
+ * is also checked after signature verification, so this stage only makes failures cheaper.
+ */
+@Component
+public class TokenPrecheck {
+
+    private final JsonFactory jsonFactory;
+    private final Set<String> configuredIssuers;
+    private final Set<String> allowedAlgorithms;
+    private final int maxHeaderLength;
+    private final Clock clock;
+    private final long allowedClockSkewMillis;
+
+    @Autowired
+    public TokenPrecheck(ObjectMapper objectMapper, InboundConfiguration inboundConfiguration, TokenConfig tokenConfig) {
+        this(objectMapper, inboundConfiguration, tokenConfig.getPrecheck(), tokenConfig.getAllowedClockSkew(), Clock.systemUTC());
+    }
+
+    TokenPrecheck(ObjectMapper objectMapper,
+                  InboundConfiguration inboundConfiguration,
+                  TokenConfig.Precheck config,
+                  Duration allowedClockSkew,
+                  Clock clock) {
+        this.jsonFactory = objectMapper.getFactory();
+        this.configuredIssuers = inboundConfiguration.getJwt()
+                                                     .stream()
+                                                     .map(InboundConfiguration.IssuerConfig::getIssuer)
+                                                     .collect(Collectors.toUnmodifiableSet());
+        this.allowedAlgorithms = Set.copyOf(config.getAlgorithms());
+        this.maxHeaderLength = config.getMaxHeaderLength();
+        this.clock = clock;
+        // jjwt only takes whole seconds
+        this.allowedClockSkewMillis = allowedClockSkew.toSeconds() * 1000;
+    }
+
+    @Value
+    public static class UnverifiedToken {
+        String algorithm;
+        String keyId;
+        String issuer;
+        /**
+         * Epoch seconds, or null if absent or not numeric.
+         */
+        Long expiration;
+    }
+
+    /**
+     * @param rawToken A compact JWS. Never null.
+     * @return The claims gatekeeper relies on, as read from the unverified token.
+     * @throws RejectedTokenException if the token is not a well-formed JWS.
+     */
+    public UnverifiedToken inspect(String rawToken) throws RejectedTokenException {
+        final int headerEnd = rawToken.indexOf('.');
+        final int payloadEnd = headerEnd < 0 ? -1 : rawToken.indexOf('.', headerEnd + 1);
+        if (headerEnd <= 0 || payloadEnd <= headerEnd + 1 || payloadEnd == rawToken.length() - 1
+            || rawToken.indexOf('.', payloadEnd + 1) >= 0) {
+            throw new RejectedTokenException("Token is not a compact JWS with three non-empty parts");
+        }
+        if (headerEnd > maxHeaderLength) {
+            throw new RejectedTokenException(format("Token header exceeds %d characters", maxHeaderLength));
+        }
+
+        String algorithm = null, keyId = null, issuer = null;
+        Long expiration = null;
+        try (JsonParser header = jsonFactory.createParser(decode(rawToken, 0, headerEnd))) {
+            expectObject(header);
+            for (String name = header.nextFieldName(); name != null; name = header.nextFieldName()) {
+                final JsonToken value = header.nextToken();
+                if ("alg".equals(name) && value == JsonToken.VALUE_STRING) {
+                    algorithm = header.getText();
+                } else if ("kid".equals(name) && value == JsonToken.VALUE_STRING) {
+                    keyId = header.getText();
+                } else {
+                    header.skipChildren();
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            throw new RejectedTokenException("Token header is not valid base64url-encoded JSON");
+        }
+
+        try (JsonParser payload = jsonFactory.createParser(decode(rawToken, headerEnd + 1, payloadEnd))) {
+            expectObject(payload);
+            for (String name = payload.nextFieldName(); name != null; name = payload.nextFieldName()) {
+                final JsonToken value = payload.nextToken();
+                if ("iss".equals(name) && value == JsonToken.VALUE_STRING) {
+                    issuer = payload.getText();
+                } else if ("exp".equals(name)) {
+                    expiration = readEpochSeconds(payload, value);
+                } else {
+                    payload.skipChildren();
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            throw new RejectedTokenException("Token payload is not valid base64url-encoded JSON");
+        }
+
+        return new UnverifiedToken(algorithm, keyId, issuer, expiration);
+    }
+
+    /**
+     * @param rawToken A token about to be verified. Never null.
+     * @throws RejectedTokenException if the token is malformed, uses an unsupported algorithm, or names an unknown issuer.
+     * @throws ExpiredJwtException if the token claims to be expired.
+     */
+    public void check(String rawToken) throws RejectedTokenException, ExpiredJwtException {
+        final UnverifiedToken token = inspect(rawToken);
+        if (token.getAlgorithm() == null || !allowedAlgorithms.contains(token.getAlgorithm())) {
+            throw new RejectedTokenException(format("Unsupported signature algorithm [%s]", token.getAlgorithm()));
+        }
+        if (token.getIssuer() == null || !configuredIssuers.contains(token.getIssuer())) {
+            throw new RejectedTokenException(format("Unrecognized issuer [%s]", token.getIssuer()));
+        }
+        if (token.getExpiration() != null) {
+            // Same comparison as jjwt, so that no token is turned away here that jjwt would have accepted
+            final long now = clock.millis();
+            final long expiration = token.getExpiration() * 1000;
+            if (now - allowedClockSkewMillis > expiration) {
+                throw new ExpiredJwtException(header(token), claims(token), format("JWT expired at %s. Current time: %s, a difference of %d milliseconds.",
+                                                                                   Instant.ofEpochMilli(expiration), Instant.ofEpochMilli(now), now - expiration));
+            }
+        }
+    }
+
+    /**
+     * Only holds the fields read by {@link #inspect(String)}, which have not been verified.
+     */
+    private static JwsHeader<?> header(UnverifiedToken token) {
+        return Jwts.jwsHeader().setAlgorithm(token.getAlgorithm()).setKeyId(token.getKeyId());
+    }
+
+    /**
+     * Only holds the claims read by {@link #inspect(String)}, which have not been verified.
+     */
+    private static Claims claims(UnverifiedToken token) {
+        return Jwts.claims()
+                   .setIssuer(token.getIssuer())
+                   .setExpiration(token.getExpiration() == null ? null : new Date(token.getExpiration() * 1000));
+    }
+
+    private static byte[] decode(String rawToken, int start, int end) {
+        return Base64.getUrlDecoder().decode(rawToken.substring(start, end));
+    }
+
+    private static void expectObject(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+    }
+
+    private static Long readEpochSeconds(JsonParser parser, JsonToken value) throws IOException {
+        switch (value) {
+            case VALUE_NUMBER_INT:
+                return parser.getLongValue();
+            case VALUE_NUMBER_FLOAT:
+                return (long) parser.getDoubleValue();
+            case VALUE_STRING:
+                // Some issuers send numeric dates as strings, which jjwt also accepts
+                try {
+                    return Long.parseLong(parser.getText());
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            default:
+                parser.skipChildren();
+                return null;
+        }
+    }
+}
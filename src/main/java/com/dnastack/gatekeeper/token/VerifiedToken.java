@@ -0,0 +1,40 @@
+package com.dnastack.gatekeeper.token;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A token that passed validation, along with any claims decoded from it so far. Instances are shared by every request
+ * that carries the same token for as long as it stays in the {@link VerifiedTokenCache}.
+ */
+public class VerifiedToken {
+
+    @Getter
+    private final Jws<Claims> jws;
+    private final Map<ClaimProjection<?>, Object> projections = new ConcurrentHashMap<>(4);
+
+    public VerifiedToken(Jws<Claims> jws) {
+        this.jws = jws;
+    }
+
+    public Claims getClaims() {
+        return jws.getBody();
+    }
+
+    /**
+     * @return The given projection of this token's claims, decoded on first use.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T project(ClaimProjection<T> projection) {
+        return (T) projections.computeIfAbsent(projection, p -> p.project(getClaims()));
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(jws);
+    }
+}
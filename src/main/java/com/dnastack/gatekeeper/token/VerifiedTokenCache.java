@@ -0,0 +1,102 @@
+package com.dnastack.gatekeeper.token;
+
+import com.dnastack.gatekeeper.util.BoundedExpiringCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.Date;
+
+/**
+ * Remembers tokens that passed signature and audience validation across requests, so that clients sending the same
+ * token repeatedly do not pay for verification each time. An entry is never served past the token's expiry, before its
+ * not-before time, or after {@link TokenConfig.VerifiedCache#getMaxTtl()}.
+ */
+@Slf4j
+@Component
+public class VerifiedTokenCache implements MeterBinder {
+
+    // Rough per-entry overhead of the parsed claims map, headers and cache bookkeeping
+    private static final long ENTRY_OVERHEAD_BYTES = 512;
+
+    private final BoundedExpiringCache<TokenFingerprint, VerifiedToken> cache;
+    private final Clock clock;
+    private final long maxTtlMillis;
+
+    @Autowired
+    public VerifiedTokenCache(TokenConfig tokenConfig) {
+        this(tokenConfig.getVerifiedCache(), Clock.systemUTC());
+    }
+
+    VerifiedTokenCache(TokenConfig.VerifiedCache config, Clock clock) {
+        this.clock = clock;
+        this.maxTtlMillis = config.getMaxTtl().toMillis();
+        this.cache = config.isEnabled()
+            ? new BoundedExpiringCache<>(config.getMaxEntries(), config.getMaxBytes(), clock)
+            : new BoundedExpiringCache<>(0, 0, clock);
+    }
+
+    public boolean isEnabled() {
+        return cache.isEnabled();
+    }
+
+    /**
+     * @return A previously verified token, or null if there is none that is currently valid.
+     */
+    public VerifiedToken get(TokenFingerprint fingerprint) {
+        final VerifiedToken token = cache.get(fingerprint);
+        if (token == null) {
+            return null;
+        }
+
+        final Date notBefore = token.getClaims().getNotBefore();
+        if (notBefore != null && notBefore.getTime() > clock.millis()) {
+            // Only possible if the clock moved backwards since the token was verified
+            cache.invalidate(fingerprint);
+            return null;
+        }
+        return token;
+    }
+
+    /**
+     * @param rawToken The token that was verified. Only used for estimating memory use.
+     * @param token The result of successfully verifying the token.
+     */
+    public void put(TokenFingerprint fingerprint, String rawToken, VerifiedToken token) {
+        if (!cache.isEnabled()) {
+            return;
+        }
+
+        final long now = clock.millis();
+        final Date expiration = token.getClaims().getExpiration();
+        final long expiresAt = expiration == null ? now + maxTtlMillis : Math.min(expiration.getTime(), now + maxTtlMillis);
+        // Claims are held as decoded strings, so assume the parsed form is about twice the size of the encoded token
+        final long weight = 2L * rawToken.length() + ENTRY_OVERHEAD_BYTES;
+        cache.put(fingerprint, token, weight, expiresAt);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("gatekeeper.token.verified.cache.hits", cache, BoundedExpiringCache::hitCount)
+                       .description("Verified token lookups served from cache")
+                       .register(registry);
+        FunctionCounter.builder("gatekeeper.token.verified.cache.misses", cache, BoundedExpiringCache::missCount)
+                       .description("Verified token lookups that required full verification")
+                       .register(registry);
+        FunctionCounter.builder("gatekeeper.token.verified.cache.evictions", cache, BoundedExpiringCache::evictionCount)
+                       .description("Verified tokens evicted to stay within size bounds")
+                       .register(registry);
+        Gauge.builder("gatekeeper.token.verified.cache.size", cache, BoundedExpiringCache::size)
+             .description("Verified tokens currently cached")
+             .register(registry);
+        Gauge.builder("gatekeeper.token.verified.cache.bytes", cache, BoundedExpiringCache::weight)
+             .description("Estimated memory held by cached verified tokens")
+             .baseUnit("bytes")
+             .register(registry);
+    }
+}
@@ -0,0 +1,200 @@
+package com.dnastack.gatekeeper.util;
+
+import java.time.Clock;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A cache bounded by both entry count and total weight, where every entry carries its own expiry time. Expired
+ * entries are never returned and are dropped when encountered.
+ * <p>
+ * Eviction approximates least-recently-used with the CLOCK algorithm: entries sit in insertion order, a hit only
+ * marks its entry as referenced, and eviction gives referenced entries a second chance instead of reordering them.
+ * Lookups therefore take no lock, and puts only contend on the eviction queue.
+ *
+ * @param <K> The key type. Must have value semantics.
+ * @param <V> The value type.
+ */
+public class BoundedExpiringCache<K, V> {
+
+    /**
+     * Queue nodes of replaced or removed entries tolerated beyond the live ones before they are cleaned up.
+     */
+    private static final int STALE_QUEUE_SLACK = 16;
+
+    private final long maxEntries;
+    private final long maxWeight;
+    private final Clock clock;
+    private final ConcurrentHashMap<K, Entry<K, V>> entries = new ConcurrentHashMap<>();
+    /**
+     * Every entry put in the map, oldest first. Entries that were since replaced or removed are skipped when they
+     * come up.
+     */
+    private final Queue<Entry<K, V>> evictionQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger evictionQueueLength = new AtomicInteger();
+    private final AtomicLong totalWeight = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxEntries The maximum number of entries held at once. Zero or less disables the cache.
+     * @param maxWeight The maximum sum of weights of all entries held at once.
+     * @param clock Used for checking entry expiry.
+     */
+    public BoundedExpiringCache(long maxEntries, long maxWeight, Clock clock) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() {
+        return maxEntries > 0 && maxWeight > 0;
+    }
+
+    /**
+     * @return The value for the given key, or null if it is absent or has expired.
+     */
+    public V get(K key) {
+        final Entry<K, V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAtMillis <= clock.millis()) {
+            remove(entry);
+            misses.increment();
+            return null;
+        }
+
+        // Only written when it changes, so hot entries don't keep invalidating the cache line of other readers
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * Adds or replaces an entry, evicting entries that weren't used recently until the cache is within its bounds.
+     * Entries heavier than the whole cache or that are already expired are not added.
+     *
+     * @param weight An estimate of the memory retained by this entry, in the same unit as the max weight.
+     * @param expiresAtMillis Epoch millis after which this entry must no longer be served.
+     */
+    public void put(K key, V value, long weight, long expiresAtMillis) {
+        if (!isEnabled() || weight > maxWeight || expiresAtMillis <= clock.millis()) {
+            return;
+        }
+
+        final Entry<K, V> entry = new Entry<>(key, value, weight, expiresAtMillis);
+        final Entry<K, V> previous = entries.put(key, entry);
+        totalWeight.addAndGet(previous == null ? weight : weight - previous.weight);
+        evictionQueue.offer(entry);
+        evictionQueueLength.incrementAndGet();
+
+        evict();
+    }
+
+    public void invalidate(K key) {
+        final Entry<K, V> entry = entries.get(key);
+        if (entry != null) {
+            remove(entry);
+        }
+    }
+
+    public void invalidateAll() {
+        entries.values().forEach(this::remove);
+    }
+
+    /**
+     * Removes the given entry unless it was already replaced or removed, so its weight is only released once.
+     */
+    private boolean remove(Entry<K, V> entry) {
+        if (entries.remove(entry.key, entry)) {
+            totalWeight.addAndGet(-entry.weight);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Walks the eviction queue while the cache is over its bounds, or while the queue holds many more entries than
+     * the map. Referenced entries lose their mark and go back to the end of the queue, until every queued entry had
+     * that chance.
+     */
+    private void evict() {
+        int secondChances = evictionQueueLength.get();
+        while (true) {
+            final boolean overBounds = entries.size() > maxEntries || totalWeight.get() > maxWeight;
+            if (!overBounds && evictionQueueLength.get() <= 2 * entries.size() + STALE_QUEUE_SLACK) {
+                return;
+            }
+            final Entry<K, V> entry = evictionQueue.poll();
+            if (entry == null) {
+                return;
+            }
+            evictionQueueLength.decrementAndGet();
+
+            if (entries.get(entry.key) != entry) {
+                continue;
+            }
+            if (!overBounds) {
+                requeue(entry);
+                if (--secondChances < 0) {
+                    return;
+                }
+            } else if (entry.referenced && secondChances-- > 0) {
+                entry.referenced = false;
+                requeue(entry);
+            } else if (remove(entry)) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private void requeue(Entry<K, V> entry) {
+        evictionQueue.offer(entry);
+        evictionQueueLength.incrementAndGet();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long weight() {
+        return totalWeight.get();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private static class Entry<K, V> {
+        private final K key;
+        private final V value;
+        private final long weight;
+        private final long expiresAtMillis;
+        private volatile boolean referenced;
+
+        private Entry(K key, V value, long weight, long expiresAtMillis) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
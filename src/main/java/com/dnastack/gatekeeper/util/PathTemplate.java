@@ -0,0 +1,147 @@
+package com.dnastack.gatekeeper.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.lang.String.format;
+
+/**
+ * A path expression like {@code /foo/{bar}/{baz}}, parsed once into literal and variable segments so that rendering it
+ * is a single pass over the segments. Variable values are copied as they are; characters like {@code $} and
+ * {@code \} have no special meaning.
+ */
+public final class PathTemplate {
+
+    public static final Pattern VARIABLE_PATTERN = Pattern.compile("\\{([a-zA-Z]*)\\}");
+    /**
+     * Variables captured by a Spring {@code PathPattern}, including {@code {*name}} and {@code {name:regex}}.
+     */
+    private static final Pattern PATH_PATTERN_VARIABLE_PATTERN = Pattern.compile("\\{\\*?([^}:]+)(?::[^}]*)?\\}");
+
+    /**
+     * Literal text for even indexes, variable names for odd indexes. Always starts and ends with a literal, which may
+     * be empty.
+     */
+    private final String[] segments;
+    private final int literalLength;
+    private final Set<String> variableNames;
+
+    private PathTemplate(String[] segments) {
+        this.segments = segments;
+        int literalLength = 0;
+        final Set<String> variableNames = new LinkedHashSet<>();
+        for (int i = 0; i < segments.length; i++) {
+            if (i % 2 == 0) {
+                literalLength += segments[i].length();
+            } else {
+                variableNames.add(segments[i]);
+            }
+        }
+        this.literalLength = literalLength;
+        this.variableNames = Collections.unmodifiableSet(variableNames);
+    }
+
+    public static PathTemplate parse(String expression) {
+        final List<String> segments = new ArrayList<>();
+        final Matcher matcher = VARIABLE_PATTERN.matcher(expression);
+        int literalStart = 0;
+        while (matcher.find()) {
+            segments.add(expression.substring(literalStart, matcher.start()));
+            segments.add(matcher.group(1));
+            literalStart = matcher.end();
+        }
+        segments.add(expression.substring(literalStart));
+        return new PathTemplate(segments.toArray(String[]::new));
+    }
+
+    /**
+     * The names of the variables captured by a Spring path pattern, as exposed in the URI template variables of a
+     * matched exchange.
+     */
+    public static Set<String> pathPatternVariableNames(String pathPattern) {
+        final Set<String> names = new LinkedHashSet<>();
+        final Matcher matcher = PATH_PATTERN_VARIABLE_PATTERN.matcher(pathPattern);
+        while (matcher.find()) {
+            names.add(matcher.group(1));
+        }
+        return names;
+    }
+
+    public Set<String> getVariableNames() {
+        return variableNames;
+    }
+
+    public boolean isLiteral() {
+        return segments.length == 1;
+    }
+
+    /**
+     * Same as {@link #render(Map, String)}, except that the result always starts with a slash.
+     */
+    public String renderAbsolute(Map<String, String> variables) {
+        return render(variables, "", true);
+    }
+
+    /**
+     * @param variables Values for all variables of this template.
+     * @param suffix Appended as is after the rendered template.
+     * @throws IllegalArgumentException if a variable has no value.
+     */
+    public String render(Map<String, String> variables, String suffix) {
+        return render(variables, suffix, false);
+    }
+
+    private String render(Map<String, String> variables, String suffix, boolean absolute) {
+        if (isLiteral() && !absolute) {
+            return suffix.isEmpty() ? segments[0] : segments[0].concat(suffix);
+        }
+
+        final String[] values = new String[segments.length];
+        int length = literalLength + suffix.length();
+        char first = 0;
+        for (int i = 0; i < segments.length; i++) {
+            final String value;
+            if (i % 2 == 0) {
+                value = segments[i];
+            } else {
+                value = variables.get(segments[i]);
+                if (value == null) {
+                    throw new IllegalArgumentException(format("Missing variable [%s]", segments[i]));
+                }
+                length += value.length();
+            }
+            values[i] = value;
+            if (first == 0 && !value.isEmpty()) {
+                first = value.charAt(0);
+            }
+        }
+        if (first == 0 && !suffix.isEmpty()) {
+            first = suffix.charAt(0);
+        }
+
+        final boolean prependSlash = absolute && first != '/';
+        final StringBuilder sb = new StringBuilder(prependSlash ? length + 1 : length);
+        if (prependSlash) {
+            sb.append('/');
+        }
+        for (String value : values) {
+            sb.append(value);
+        }
+        return sb.append(suffix).toString();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < segments.length; i++) {
+            sb.append(i % 2 == 0 ? segments[i] : "{" + segments[i] + "}");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,48 @@
+package com.dnastack.gatekeeper.util;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpCookie;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.AbstractServerHttpRequest;
+import org.springframework.http.server.reactive.SslInfo;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import reactor.core.publisher.Flux;
+
+import java.net.URI;
+
+/**
+ * A bodiless request that never touched the network, for exercising filters outside of a real exchange.
+ */
+public class SyntheticServerHttpRequest extends AbstractServerHttpRequest {
+
+    public SyntheticServerHttpRequest(URI uri, HttpHeaders headers) {
+        super(uri, "", headers);
+    }
+
+    @Override
+    public String getMethodValue() {
+        return HttpMethod.GET.name();
+    }
+
+    @Override
+    public Flux<DataBuffer> getBody() {
+        return Flux.empty();
+    }
+
+    @Override
+    protected MultiValueMap<String, HttpCookie> initCookies() {
+        return new LinkedMultiValueMap<>();
+    }
+
+    @Override
+    protected SslInfo initSslInfo() {
+        return null;
+    }
+
+    @Override
+    public <T> T getNativeRequest() {
+        throw new UnsupportedOperationException("Synthetic requests have no native request");
+    }
+}
@@ -0,0 +1,46 @@
+package com.dnastack.gatekeeper.util;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.server.reactive.AbstractServerHttpResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * A response that discards whatever is written to it.
+ */
+public class SyntheticServerHttpResponse extends AbstractServerHttpResponse {
+
+    public SyntheticServerHttpResponse() {
+        super(DefaultDataBufferFactory.sharedInstance);
+    }
+
+    @Override
+    protected Mono<Void> writeWithInternal(Publisher<? extends DataBuffer> body) {
+        return Flux.from(body).doOnNext(DataBufferUtils::release).then();
+    }
+
+    @Override
+    protected Mono<Void> writeAndFlushWithInternal(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+        return Flux.from(body).concatMap(this::writeWithInternal).then();
+    }
+
+    @Override
+    protected void applyStatusCode() {
+    }
+
+    @Override
+    protected void applyHeaders() {
+    }
+
+    @Override
+    protected void applyCookies() {
+    }
+
+    @Override
+    public <T> T getNativeResponse() {
+        throw new UnsupportedOperationException("Synthetic responses have no native response");
+    }
+}
@@ -0,0 +1,191 @@
+package com.dnastack.gatekeeper.warmup;
+
+import com.dnastack.gatekeeper.acl.GatekeeperGatewayFilterFactory.GatekeeperFilter;
+import com.dnastack.gatekeeper.config.InboundConfiguration;
+import com.dnastack.gatekeeper.token.ConfiguredSigningKeyResolver;
+import com.dnastack.gatekeeper.util.SyntheticServerHttpRequest;
+import com.dnastack.gatekeeper.util.SyntheticServerHttpResponse;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.adapter.DefaultServerWebExchange;
+import org.springframework.web.server.i18n.AcceptHeaderLocaleContextResolver;
+import org.springframework.web.server.session.DefaultWebSessionManager;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.security.KeyPair;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Loads signing keys and runs synthetic requests through every gateway at startup, so that the first real requests do
+ * not pay for cold caches and unoptimized code. Runs as an {@link ApplicationRunner}, so the application only reports
+ * itself ready to accept traffic once it has finished.
+ * <p>
+ * Synthetic requests are sent with {@link #SYNTHETIC_REQUEST_MDC_KEY} set, and logback-spring.xml drops whatever they
+ * log, so they don't flood the logs. Logging of everything else is left alone.
+ */
+@Slf4j
+@Component
+public class GatekeeperWarmup implements ApplicationRunner {
+
+    static final String SYNTHETIC_REQUEST_MDC_KEY = "gatekeeper.warmup";
+
+    private static final String WARMUP_PATH_SEGMENT = "warmup";
+
+    enum State {
+        PENDING, RUNNING, COMPLETE
+    }
+
+    private final WarmupConfig config;
+    private final InboundConfiguration inboundConfiguration;
+    private final ConfiguredSigningKeyResolver signingKeyResolver;
+    private final RouteLocator routeLocator;
+    private final Timer warmupTimer;
+    private final ServerCodecConfigurer codecConfigurer = ServerCodecConfigurer.create();
+    private final AtomicReference<State> state = new AtomicReference<>(State.PENDING);
+
+    @Autowired
+    public GatekeeperWarmup(WarmupConfig config,
+                            InboundConfiguration inboundConfiguration,
+                            ConfiguredSigningKeyResolver signingKeyResolver,
+                            RouteLocator routeLocator,
+                            MeterRegistry meterRegistry) {
+        this.config = config;
+        this.inboundConfiguration = inboundConfiguration;
+        this.signingKeyResolver = signingKeyResolver;
+        this.routeLocator = routeLocator;
+        this.warmupTimer = Timer.builder("gatekeeper.warmup")
+                                .description("Time spent warming up before accepting traffic")
+                                .register(meterRegistry);
+    }
+
+    State getState() {
+        return state.get();
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!config.isEnabled()) {
+            state.set(State.COMPLETE);
+            return;
+        }
+        if (!state.compareAndSet(State.PENDING, State.RUNNING)) {
+            return;
+        }
+
+        final long start = System.nanoTime();
+        final long deadline = start + config.getTimeout().toNanos();
+        try {
+            signingKeyResolver.warmUp();
+            warmUpSignatureVerification(deadline);
+            final String untrustedToken = untrustedToken();
+            final List<Route> routes = Optional.ofNullable(routeLocator.getRoutes().collectList().block(config.getTimeout()))
+                                               .orElseGet(List::of);
+            for (Route route : routes) {
+                for (GatewayFilter filter : route.getFilters()) {
+                    final GatewayFilter delegate = filter instanceof OrderedGatewayFilter ? ((OrderedGatewayFilter) filter).getDelegate() : filter;
+                    if (delegate instanceof GatekeeperFilter) {
+                        warmUpGateway(route, (GatekeeperFilter) delegate, untrustedToken, deadline);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Warm-up failed. Continuing startup.", e);
+        } finally {
+            final Duration duration = Duration.ofNanos(System.nanoTime() - start);
+            warmupTimer.record(duration);
+            state.set(State.COMPLETE);
+            log.info("Warm-up finished in {} ms", duration.toMillis());
+        }
+    }
+
+    /**
+     * Exercises token parsing and signature checks with a throwaway key, since no valid token for a real issuer is
+     * available at startup.
+     */
+    private void warmUpSignatureVerification(long deadline) {
+        final KeyPair keyPair = Keys.keyPairFor(SignatureAlgorithm.RS256);
+        final JwtParser parser = Jwts.parserBuilder().setSigningKey(keyPair.getPublic()).build();
+        final String token = Jwts.builder()
+                                 .setIssuer("https://warmup.invalid")
+                                 .setAudience(WARMUP_PATH_SEGMENT)
+                                 .setSubject(WARMUP_PATH_SEGMENT)
+                                 .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                                 .signWith(keyPair.getPrivate())
+                                 .compact();
+        for (int i = 0; i < config.getIterations() && System.nanoTime() < deadline; i++) {
+            parser.parseClaimsJws(token);
+        }
+    }
+
+    /**
+     * Signed with a throwaway key, so that it is rejected by every gateway. The same token is sent in every synthetic
+     * request, so that warm-up leaves a single entry in the rejected token cache.
+     */
+    private String untrustedToken() {
+        final String issuer = Optional.ofNullable(inboundConfiguration.getJwt())
+                                      .flatMap(issuers -> issuers.stream().findFirst())
+                                      .map(InboundConfiguration.IssuerConfig::getIssuer)
+                                      .orElse("https://warmup.invalid");
+        return Jwts.builder()
+                   .setIssuer(issuer)
+                   .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                   .signWith(Keys.keyPairFor(SignatureAlgorithm.RS256).getPrivate())
+                   .compact();
+    }
+
+    private void warmUpGateway(Route route, GatekeeperFilter filter, String untrustedToken, long deadline) {
+        final String path = Optional.ofNullable(filter.getGateway().getInbound().getPath())
+                                    .map(pattern -> pattern.replaceAll("\\{[^}]*}", WARMUP_PATH_SEGMENT)
+                                                           .replace("**", WARMUP_PATH_SEGMENT)
+                                                           .replace("*", WARMUP_PATH_SEGMENT))
+                                    .orElse("/");
+
+        log.debug("Warming up gateway [{}] with path [{}]", filter.getGateway().getId(), path);
+        for (int i = 0; i < config.getIterations() && System.nanoTime() < deadline; i++) {
+            send(route, filter, path, null);
+            send(route, filter, path, "Bearer not-a-token");
+            send(route, filter, path, "Bearer " + untrustedToken);
+        }
+    }
+
+    private void send(Route route, GatekeeperFilter filter, String path, String authorization) {
+        final HttpHeaders headers = new HttpHeaders();
+        if (authorization != null) {
+            headers.set(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        final ServerWebExchange exchange = new DefaultServerWebExchange(new SyntheticServerHttpRequest(URI.create("http://localhost" + path), headers),
+                                                                        new SyntheticServerHttpResponse(),
+                                                                        new DefaultWebSessionManager(),
+                                                                        codecConfigurer,
+                                                                        new AcceptHeaderLocaleContextResolver());
+        try (MDC.MDCCloseable ignored = MDC.putCloseable(SYNTHETIC_REQUEST_MDC_KEY, "true")) {
+            // Binds path variables for the filter, the same way routing does
+            Mono.from(route.getPredicate().apply(exchange)).block(config.getTimeout());
+            filter.filter(exchange, unused -> Mono.empty()).block(config.getTimeout());
+        } catch (RuntimeException e) {
+            log.debug("Synthetic request to gateway [{}] failed", filter.getGateway().getId(), e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.dnastack.gatekeeper.warmup;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "gatekeeper.warmup")
+@Data
+public class WarmupConfig {
+    private boolean enabled = true;
+    /**
+     * Synthetic requests sent through each gateway, per kind of request.
+     */
+    private int iterations = 100;
+    /**
+     * Warm-up stops early once this much time has passed, and the gatekeeper reports ready regardless.
+     */
+    private Duration timeout = Duration.ofSeconds(60);
+}
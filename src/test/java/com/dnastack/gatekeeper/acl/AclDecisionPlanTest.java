@@ -0,0 +1,183 @@
+package com.dnastack.gatekeeper.acl;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.dnastack.gatekeeper.authorizer.PublicAuthorizer;
+import com.dnastack.gatekeeper.authorizer.TokenAuthorizer;
+import com.dnastack.gatekeeper.authorizer.TokenAuthorizer.AuthorizationDecision;
+import com.dnastack.gatekeeper.authorizer.TokenAuthorizer.StandardDecisions;
+import com.dnastack.gatekeeper.config.GatekeeperConfig;
+import com.dnastack.gatekeeper.config.TokenAuthorizationConfig;
+import com.dnastack.gatekeeper.token.InboundTokens;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.String.format;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AclDecisionPlanTest {
+
+    /**
+     * Room for the outcome, the Mono carrying it, and the decisions of items that share an authorizer. Constant ACLs
+     * allocate nothing.
+     */
+    private static final long ALLOCATION_BUDGET_BYTES = 96;
+    private static final InboundTokens TOKENS = new InboundTokens("access-token", null);
+    private static final AtomicInteger CALLS = new AtomicInteger();
+    private static final Map<String, TokenAuthorizer> AUTHORIZERS = Map.of(
+        "public", new PublicAuthorizer(),
+        "allow", tokens -> {
+            CALLS.incrementAndGet();
+            return AuthorizationDecision.builder().allowed(true).decisionInfo(StandardDecisions.ACCESS_GRANTED).build();
+        },
+        "deny", tokens -> {
+            CALLS.incrementAndGet();
+            return AuthorizationDecision.builder().allowed(false).decisionInfo(StandardDecisions.INSUFFICIENT_CREDENTIALS).build();
+        });
+
+    private static GatekeeperConfig.Gateway gateway(String... methods) {
+        final List<GatekeeperConfig.AccessControlItem> acl = new ArrayList<>();
+        for (int i = 0; i < methods.length; i++) {
+            final TokenAuthorizationConfig authorization = new TokenAuthorizationConfig();
+            authorization.setMethod(methods[i]);
+            final GatekeeperConfig.AccessControlItem item = new GatekeeperConfig.AccessControlItem();
+            item.setId(methods[i] + "-" + i);
+            item.setAuthorization(authorization);
+            acl.add(item);
+        }
+        final GatekeeperConfig.Gateway gateway = new GatekeeperConfig.Gateway();
+        gateway.setId("test");
+        gateway.setAcl(acl);
+        return gateway;
+    }
+
+    private static AclDecisionPlan compile(GatekeeperConfig.Gateway gateway) {
+        return AclDecisionPlan.compile(gateway, item -> new Gatekeeper(AUTHORIZERS.get(item.getAuthorization().getMethod())));
+    }
+
+    /**
+     * The ACL walk the plan replaces: keep the last allowed item, stop at the first denied one.
+     */
+    private static AclDecisionPlan.Outcome walk(GatekeeperConfig.Gateway gateway, InboundTokens tokens) {
+        GatekeeperConfig.AccessControlItem lastAllowed = null;
+        AuthorizationDecision lastAllowedDecision = null;
+        for (GatekeeperConfig.AccessControlItem item : gateway.getAcl()) {
+            final AuthorizationDecision decision = new Gatekeeper(AUTHORIZERS.get(item.getAuthorization().getMethod())).determineAccessGrant(tokens);
+            if (!decision.isAllowed()) {
+                return lastAllowed != null
+                    ? new AclDecisionPlan.Outcome(lastAllowed, lastAllowedDecision, DecisionHints.of(decision.getDecisionInfos()))
+                    : new AclDecisionPlan.Outcome(item, decision, DecisionHints.of(decision.getDecisionInfos()));
+            }
+            lastAllowed = item;
+            lastAllowedDecision = decision;
+        }
+        return new AclDecisionPlan.Outcome(lastAllowed, lastAllowedDecision, DecisionHints.of(lastAllowedDecision.getDecisionInfos()));
+    }
+
+    @Test
+    public void planMatchesOrderedWalk_forAllShortAcls() {
+        final String[] methods = {"public", "allow", "deny"};
+        for (int length = 1; length <= 4; length++) {
+            final int combinations = (int) Math.pow(methods.length, length);
+            for (int combination = 0; combination < combinations; combination++) {
+                final String[] acl = new String[length];
+                for (int i = 0, remainder = combination; i < length; i++, remainder /= methods.length) {
+                    acl[i] = methods[remainder % methods.length];
+                }
+                final GatekeeperConfig.Gateway gateway = gateway(acl);
+                final AclDecisionPlan plan = compile(gateway);
+                assertEquals(walk(gateway, TOKENS), plan.evaluate(TOKENS).block(Duration.ofSeconds(5)), String.join(",", acl));
+                assertEquals(walk(gateway, null), plan.evaluate(null).block(Duration.ofSeconds(5)), "anonymous " + String.join(",", acl));
+            }
+        }
+    }
+
+    @Test
+    public void constantAclIsResolvedAtCompileTime() {
+        final AclDecisionPlan plan = compile(gateway("public", "public"));
+        final int callsBefore = CALLS.get();
+
+        final AclDecisionPlan.Outcome outcome = plan.evaluate(TOKENS).block(Duration.ofSeconds(5));
+        assertEquals("public-1", outcome.getSelectedItem().getId());
+        assertEquals(callsBefore, CALLS.get());
+
+        final AclDecisionPlan.Description description = plan.describe();
+        assertNotNull(description.getConstantOutcome());
+        assertEquals(List.of("public-0"), description.getElidedItemIds());
+        assertEquals("CONSTANT", description.getSteps().get(0).getMode());
+    }
+
+    @Test
+    public void dynamicItemsAreEvaluatedOnEveryRequest() {
+        final AclDecisionPlan plan = compile(gateway("public", "deny"));
+        assertNull(plan.describe().getConstantOutcome());
+
+        final AclDecisionPlan.Outcome outcome = plan.evaluate(TOKENS).block(Duration.ofSeconds(5));
+        assertEquals("public-0", outcome.getSelectedItem().getId());
+        assertEquals(List.of(StandardDecisions.INSUFFICIENT_CREDENTIALS.getHeaderValue()), outcome.getHints().getHeaderValues());
+        assertEquals("SYNCHRONOUS", plan.describe().getSteps().get(1).getMode());
+    }
+
+    @Test
+    public void anonymousOutcomeIsResolvedAtCompileTime() {
+        final AclDecisionPlan plan = compile(gateway("public", "deny", "allow"));
+        final int callsBefore = CALLS.get();
+
+        final AclDecisionPlan.Outcome outcome = plan.evaluate(null).block(Duration.ofSeconds(5));
+        assertEquals(plan.getAnonymousOutcome(), outcome);
+        assertEquals("public-0", outcome.getSelectedItem().getId());
+        assertEquals(List.of(StandardDecisions.REQUIRES_CREDENTIALS.getHeaderValue()), outcome.getHints().getHeaderValues());
+        assertEquals(callsBefore, CALLS.get());
+    }
+
+    @Test
+    public void itemsSharingAnAuthorizerAreEvaluatedOncePerRequest() {
+        final AclDecisionPlan plan = compile(gateway("allow", "public", "allow"));
+        assertEquals("allow-0", plan.describe().getSteps().get(2).getReusesDecisionOf());
+        final int callsBefore = CALLS.get();
+
+        final AclDecisionPlan.Outcome outcome = plan.evaluate(TOKENS).block(Duration.ofSeconds(5));
+        assertEquals("allow-2", outcome.getSelectedItem().getId());
+        assertEquals(callsBefore + 1, CALLS.get());
+    }
+
+    @Test
+    public void evaluate_staysWithinAllocationBudget() {
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final TokenAuthorizer granted = tokens -> AuthorizationDecision.ACCESS_GRANTED;
+        // Claims are only logged at debug level, which production doesn't use
+        final Logger logger = (Logger) LoggerFactory.getLogger(Gatekeeper.class);
+        final Level level = logger.getLevel();
+        logger.setLevel(Level.INFO);
+        try {
+            for (String acl : List.of("public", "allow,public", "public,allow,allow,allow")) {
+                final AclDecisionPlan plan = AclDecisionPlan.compile(gateway(acl.split(",")),
+                                                                     item -> new Gatekeeper("allow".equals(item.getAuthorization().getMethod())
+                                                                                                ? granted
+                                                                                                : AUTHORIZERS.get(item.getAuthorization().getMethod())));
+                for (int i = 0; i < 1_000; i++) {
+                    plan.evaluate(TOKENS).block();
+                }
+                final long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+                for (int i = 0; i < 10_000; i++) {
+                    plan.evaluate(TOKENS).block();
+                }
+                final double bytesPerEvaluation = (threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before) / 10_000.0;
+                assertTrue(bytesPerEvaluation <= ALLOCATION_BUDGET_BYTES,
+                           format("ACL [%s] allocates %.0f bytes per evaluation, over the budget of %d", acl, bytesPerEvaluation, ALLOCATION_BUDGET_BYTES));
+            }
+        } finally {
+            logger.setLevel(level);
+        }
+    }
+}
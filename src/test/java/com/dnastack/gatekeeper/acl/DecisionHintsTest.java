@@ -0,0 +1,38 @@
+package com.dnastack.gatekeeper.acl;
+
+import com.dnastack.gatekeeper.authorizer.TokenAuthorizer.CustomDecisionInfo;
+import com.dnastack.gatekeeper.authorizer.TokenAuthorizer.StandardDecisions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DecisionHintsTest {
+
+    @Test
+    public void of_shouldShareHintsForSingleStandardDecisions() {
+        final DecisionHints hints = DecisionHints.of(List.of(StandardDecisions.EXPIRED_CREDENTIALS));
+
+        assertSame(hints, DecisionHints.of(List.of(StandardDecisions.EXPIRED_CREDENTIALS)));
+        assertTrue(hints.isInvalidCredential());
+        assertTrue(hints.isAuthenticationChallenge());
+        assertEquals(List.of("expired-credentials"), hints.getHeaderValues());
+    }
+
+    @Test
+    public void of_shouldCombineFlagsOfAllDecisions() {
+        final DecisionHints hints = DecisionHints.of(List.of(new CustomDecisionInfo("custom"), StandardDecisions.REQUIRES_CREDENTIALS));
+
+        assertFalse(hints.isInvalidCredential());
+        assertTrue(hints.isAuthenticationChallenge());
+        assertEquals(List.of("custom", "requires-credentials"), hints.getHeaderValues());
+
+        final DecisionHints granted = DecisionHints.of(List.of(StandardDecisions.ACCESS_GRANTED));
+        assertFalse(granted.isInvalidCredential());
+        assertFalse(granted.isAuthenticationChallenge());
+    }
+}
@@ -0,0 +1,74 @@
+package com.dnastack.gatekeeper.acl;
+
+import com.dnastack.gatekeeper.config.GatekeeperConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.dnastack.gatekeeper.acl.GatekeeperGatewayFilterFactory.compileOutboundTemplates;
+import static com.dnastack.gatekeeper.acl.GatekeeperGatewayFilterFactory.computeOutboundPath;
+import static com.dnastack.gatekeeper.acl.GatekeeperGatewayFilterFactory.computeStaticOutboundPath;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class GatekeeperGatewayFilterFactoryOutboundPathTest {
+
+    private static GatekeeperConfig.Gateway gateway() {
+        final GatekeeperConfig.Gateway config = new GatekeeperConfig.Gateway();
+        config.setId("gatewayId");
+        return config;
+    }
+
+    private static GatekeeperConfig.AccessControlItem accessControlItem(String outboundPath) {
+        final GatekeeperConfig.AccessControlItem accessControlItem = new GatekeeperConfig.AccessControlItem();
+        accessControlItem.setId("accessItemId");
+        accessControlItem.setOutbound(new GatekeeperConfig.OutboundRequestConfig());
+        accessControlItem.getOutbound().setPath(outboundPath);
+        return accessControlItem;
+    }
+
+    @Test
+    public void computeStaticPath_onlyResolvesPathsWithoutVariables() {
+        assertEquals("/beacon/query", computeStaticOutboundPath(gateway(), accessControlItem("beacon/query")));
+        assertNull(computeStaticOutboundPath(gateway(), accessControlItem("beacon/{path}")));
+    }
+
+    @Test
+    public void computeStaticPath_isNullWithoutOutboundPath() {
+        final GatekeeperConfig.AccessControlItem accessControlItem = accessControlItem(null);
+        accessControlItem.setOutbound(null);
+
+        assertNull(computeStaticOutboundPath(gateway(), accessControlItem));
+    }
+
+    @Test
+    public void computePath_keepsSpecialCharactersInVariableValues() {
+        final String path = computeOutboundPath(gateway(), accessControlItem("foo/{path}"), Map.of("path", "a$1\\b"));
+
+        assertEquals("/foo/a$1\\b", path);
+    }
+
+    @Test
+    public void compileTemplates_rejectsVariablesMissingFromInboundPath() {
+        final GatekeeperConfig.Gateway config = gateway();
+        config.setInbound(new GatekeeperConfig.InboundPredicate());
+        config.getInbound().setPath("/api/{*path}");
+        config.setAcl(List.of(accessControlItem("foo/{other}")));
+
+        assertThrows(IllegalArgumentException.class, () -> compileOutboundTemplates(config));
+    }
+
+    @Test
+    public void compileTemplates_acceptsVariablesOfInboundPath() {
+        final GatekeeperConfig.Gateway config = gateway();
+        config.setInbound(new GatekeeperConfig.InboundPredicate());
+        config.getInbound().setPath("/api/{version}/{*path}");
+        final GatekeeperConfig.AccessControlItem accessControlItem = accessControlItem("{version}/foo/{path}");
+        config.setAcl(List.of(accessControlItem));
+
+        assertEquals("/v2/foo/bar", compileOutboundTemplates(config).get(accessControlItem)
+                                                                    .renderAbsolute(Map.of("version", "v2", "path", "bar")));
+    }
+}
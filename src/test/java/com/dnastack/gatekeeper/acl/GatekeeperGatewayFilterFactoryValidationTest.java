@@ -0,0 +1,82 @@
+package com.dnastack.gatekeeper.acl;
+
+import com.dnastack.gatekeeper.config.GatekeeperConfig;
+import com.dnastack.gatekeeper.config.TokenAuthorizationConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.dnastack.gatekeeper.acl.GatekeeperGatewayFilterFactory.validateRequestCollapsing;
+import static com.dnastack.gatekeeper.acl.GatekeeperGatewayFilterFactory.validateResponseCaching;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class GatekeeperGatewayFilterFactoryValidationTest {
+
+    private static GatekeeperConfig.Gateway cachingGateway(String authorizationMethod) {
+        final GatekeeperConfig.Gateway config = new GatekeeperConfig.Gateway();
+        config.setId("gatewayId");
+        config.setOutbound(new GatekeeperConfig.BaseOutboundRequestConfig());
+
+        final GatekeeperConfig.AccessControlItem accessControlItem = new GatekeeperConfig.AccessControlItem();
+        accessControlItem.setId("accessItemId");
+        accessControlItem.setAuthorization(new TokenAuthorizationConfig());
+        accessControlItem.getAuthorization().setMethod(authorizationMethod);
+        accessControlItem.setCache(new GatekeeperConfig.ResponseCaching());
+        config.setAcl(List.of(accessControlItem));
+        return config;
+    }
+
+    private static GatekeeperConfig.Gateway collapsingGateway() {
+        final GatekeeperConfig.Gateway config = new GatekeeperConfig.Gateway();
+        config.setId("gatewayId");
+        config.setOutbound(new GatekeeperConfig.BaseOutboundRequestConfig());
+        config.setCollapsing(new GatekeeperConfig.RequestCollapsing());
+        return config;
+    }
+
+    private static void forwardUserCredentials(GatekeeperConfig.Gateway config) {
+        config.getOutbound().setAuthentication(new GatekeeperConfig.OutboundAuthentication());
+        config.getOutbound().getAuthentication().setMethod("preserve-authorization-client-authenticator");
+    }
+
+    @Test
+    public void validateResponseCaching_acceptsPublicItems() {
+        assertDoesNotThrow(() -> validateResponseCaching(cachingGateway("public-authorizer")));
+    }
+
+    @Test
+    public void validateResponseCaching_rejectsAuthorizedItems() {
+        assertThrows(IllegalArgumentException.class, () -> validateResponseCaching(cachingGateway("valid-token-authorizer")));
+    }
+
+    @Test
+    public void validateResponseCaching_rejectsForwardedUserCredentials() {
+        final GatekeeperConfig.Gateway config = cachingGateway("public-authorizer");
+        forwardUserCredentials(config);
+
+        assertThrows(IllegalArgumentException.class, () -> validateResponseCaching(config));
+    }
+
+    @Test
+    public void validateRequestCollapsing_acceptsGatewaysWithoutForwardedUserCredentials() {
+        assertDoesNotThrow(() -> validateRequestCollapsing(collapsingGateway()));
+    }
+
+    @Test
+    public void validateRequestCollapsing_rejectsForwardedUserCredentials() {
+        final GatekeeperConfig.Gateway config = collapsingGateway();
+        forwardUserCredentials(config);
+
+        assertThrows(IllegalArgumentException.class, () -> validateRequestCollapsing(config));
+    }
+
+    @Test
+    public void validateRequestCollapsing_ignoresForwardedUserCredentialsWithoutCollapsing() {
+        final GatekeeperConfig.Gateway config = collapsingGateway();
+        config.setCollapsing(null);
+        forwardUserCredentials(config);
+
+        assertDoesNotThrow(() -> validateRequestCollapsing(config));
+    }
+}
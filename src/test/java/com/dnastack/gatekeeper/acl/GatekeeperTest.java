@@ -0,0 +1,136 @@
+package com.dnastack.gatekeeper.acl;
+
+import brave.Tracing;
+import brave.propagation.CurrentTraceContext;
+import brave.propagation.TraceContext;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.dnastack.gatekeeper.authorizer.ReactiveTokenAuthorizer;
+import com.dnastack.gatekeeper.authorizer.TokenAuthorizer;
+import com.dnastack.gatekeeper.authorizer.TokenAuthorizer.AuthorizationDecision;
+import com.dnastack.gatekeeper.authorizer.TokenAuthorizer.StandardDecisions;
+import com.dnastack.gatekeeper.token.InboundTokens;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GatekeeperTest {
+
+    private static final InboundTokens TOKENS = new InboundTokens("access-token", null);
+    private static final AuthorizationDecision GRANTED = AuthorizationDecision.builder()
+                                                                              .allowed(true)
+                                                                              .decisionInfo(StandardDecisions.ACCESS_GRANTED)
+                                                                              .build();
+
+    @Test
+    public void synchronousAuthorizerRunsOnCallingThread() {
+        final AtomicReference<String> thread = new AtomicReference<>();
+        final TokenAuthorizer authorizer = tokens -> {
+            thread.set(Thread.currentThread().getName());
+            return GRANTED;
+        };
+
+        assertEquals(GRANTED, new Gatekeeper(authorizer).determineAccessGrantReactive(TOKENS).block(Duration.ofSeconds(5)));
+        assertEquals(Thread.currentThread().getName(), thread.get());
+    }
+
+    @Test
+    public void blockingAuthorizerRunsOnWorker() {
+        final AtomicReference<String> thread = new AtomicReference<>();
+        final TokenAuthorizer authorizer = tokens -> {
+            thread.set(Thread.currentThread().getName());
+            return GRANTED;
+        };
+
+        assertEquals(GRANTED, new Gatekeeper(authorizer, true).determineAccessGrantReactive(TOKENS).block(Duration.ofSeconds(5)));
+        assertTrue(thread.get().startsWith("boundedElastic"), thread.get());
+    }
+
+    @Test
+    public void reactiveAuthorizerErrorsAreMappedToDecisions() {
+        final ReactiveTokenAuthorizer authorizer = new ReactiveTokenAuthorizer() {
+            @Override
+            public Mono<AuthorizationDecision> handleTokensReactive(InboundTokens tokens) {
+                return Mono.error(new ExpiredJwtException(null, null, "expired"));
+            }
+
+            @Override
+            public AuthorizationDecision handleTokens(InboundTokens tokens) {
+                throw new AssertionError("Reactive authorizers should not be called synchronously");
+            }
+        };
+
+        final AuthorizationDecision decision = new Gatekeeper(authorizer, true).determineAccessGrantReactive(TOKENS).block(Duration.ofSeconds(5));
+        assertEquals(authorizer.handleExpiredToken(), decision);
+        assertEquals(authorizer.handleNoToken(), new Gatekeeper(authorizer).determineAccessGrantReactive(null).block(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    public void decisionsAreLoggedWithTheRequestTraceId() {
+        final ReactiveTokenAuthorizer authorizer = new ReactiveTokenAuthorizer() {
+            @Override
+            public Mono<AuthorizationDecision> handleTokensReactive(InboundTokens tokens) {
+                return Mono.error(new MalformedJwtException("reactive"));
+            }
+
+            @Override
+            public AuthorizationDecision handleTokens(InboundTokens tokens) {
+                throw new MalformedJwtException("synchronous");
+            }
+        };
+        final Gatekeeper gatekeeper = new Gatekeeper(authorizer, true);
+        final Gatekeeper blockingGatekeeper = new Gatekeeper(tokens -> {
+            throw new MalformedJwtException("blocking");
+        }, true);
+        final Logger logger = (Logger) LoggerFactory.getLogger(Gatekeeper.class);
+        final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+
+        // Brave keeps the first tracer built in this JVM as the current one, which may belong to another test
+        final Tracing tracing = Tracing.current() != null ? Tracing.current() : Tracing.newBuilder().build();
+        try {
+            final TraceContext context = TraceContext.newBuilder().traceId(0xabcL).spanId(1L).build();
+            final Mono<AuthorizationDecision> reactiveDecision;
+            final Mono<AuthorizationDecision> blockingDecision;
+            try (CurrentTraceContext.Scope scope = tracing.currentTraceContext().newScope(context)) {
+                assertEquals(authorizer.handleInvalidToken(), gatekeeper.determineAccessGrant(TOKENS));
+                reactiveDecision = gatekeeper.determineAccessGrantReactive(TOKENS);
+                blockingDecision = blockingGatekeeper.determineAccessGrantReactive(TOKENS);
+            }
+            // Decided outside the request's trace scope, the blocking one on a worker
+            assertEquals(authorizer.handleInvalidToken(), reactiveDecision.block(Duration.ofSeconds(5)));
+            assertEquals(authorizer.handleInvalidToken(), blockingDecision.block(Duration.ofSeconds(5)));
+            assertEquals(authorizer.handleInvalidToken(), gatekeeper.determineAccessGrant(TOKENS));
+        } finally {
+            logger.detachAppender(appender);
+        }
+
+        final List<String> messages = appender.list.stream()
+                                                   .map(ILoggingEvent::getFormattedMessage)
+                                                   .filter(message -> message.contains("Auth token"))
+                                                   .collect(Collectors.toList());
+        assertEquals(List.of("R/0000000000000abc: Auth token rejected: synchronous",
+                             "R/0000000000000abc: Auth token rejected: reactive",
+                             "R/0000000000000abc: Auth token rejected: blocking",
+                             "R/-: Auth token rejected: synchronous"),
+                     messages);
+        assertTrue(appender.list.stream()
+                                .map(ILoggingEvent::getFormattedMessage)
+                                .filter(message -> message.contains("Claims"))
+                                .limit(6)
+                                .allMatch(message -> message.startsWith("R/0000000000000abc: ")),
+                   "Claims should be logged with the request's trace id");
+    }
+}
@@ -0,0 +1,59 @@
+package com.dnastack.gatekeeper.authorizer;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ClaimProjectionsTest {
+
+    private static Claims claims(String name, Object value) {
+        return Jwts.claims(Map.of(name, value));
+    }
+
+    @Test
+    public void ga4ghGrantsAreDecoded() {
+        final Claims claims = claims("ga4gh", Map.of("ControlledAccessGrants", List.of(Map.of("value", "https://dataset.example",
+                                                                                              "source", "https://dac.example",
+                                                                                              "asserted", 1549632872,
+                                                                                              "expires", "1893456000"))));
+
+        final List<Ga4ghClaim> grants = ClaimProjections.GA4GH_CONTROLLED_ACCESS_GRANTS.project(claims);
+
+        assertEquals(1, grants.size());
+        assertEquals("https://dataset.example", grants.get(0).getValue());
+        assertEquals("https://dac.example", grants.get(0).getSource());
+        assertEquals(1549632872L, grants.get(0).getAsserted());
+        assertEquals(1893456000L, grants.get(0).getExpires());
+    }
+
+    @Test
+    public void absentGa4ghClaimHasNoGrants() {
+        assertEquals(List.of(), ClaimProjections.GA4GH_CONTROLLED_ACCESS_GRANTS.project(Jwts.claims()));
+        assertEquals(List.of(), ClaimProjections.GA4GH_CONTROLLED_ACCESS_GRANTS.project(claims("ga4gh", Map.of())));
+    }
+
+    @Test
+    public void malformedGa4ghClaimIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                     () -> ClaimProjections.GA4GH_CONTROLLED_ACCESS_GRANTS.project(claims("ga4gh", "grants")));
+        assertThrows(IllegalArgumentException.class,
+                     () -> ClaimProjections.GA4GH_CONTROLLED_ACCESS_GRANTS.project(claims("ga4gh", Map.of("ControlledAccessGrants", "grant"))));
+        assertThrows(IllegalArgumentException.class,
+                     () -> ClaimProjections.GA4GH_CONTROLLED_ACCESS_GRANTS.project(claims("ga4gh", Map.of("ControlledAccessGrants", List.of("grant")))));
+        assertThrows(IllegalArgumentException.class,
+                     () -> ClaimProjections.GA4GH_CONTROLLED_ACCESS_GRANTS.project(claims("ga4gh", Map.of("ControlledAccessGrants",
+                                                                                                          List.of(Map.of("expires", "tomorrow"))))));
+    }
+
+    @Test
+    public void malformedAccountsClaimIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ClaimProjections.ACCOUNTS.project(claims("accounts", "user@example.com")));
+        assertThrows(IllegalArgumentException.class, () -> ClaimProjections.ACCOUNTS.project(claims("accounts", List.of(Map.of("email", List.of())))));
+    }
+}
@@ -0,0 +1,160 @@
+package com.dnastack.gatekeeper.authorizer;
+
+import com.dnastack.auth.PermissionChecker;
+import com.dnastack.gatekeeper.authorizer.TokenAuthorizer.AuthorizationDecision;
+import com.dnastack.gatekeeper.config.InboundConfiguration;
+import com.dnastack.gatekeeper.config.JsonDefinedRegistry;
+import com.dnastack.gatekeeper.policy.PolicyConfig;
+import com.dnastack.gatekeeper.policy.PolicyDecisionCache;
+import com.dnastack.gatekeeper.policy.PolicyEvaluationQueue;
+import com.dnastack.gatekeeper.token.CompactJwsVerifier;
+import com.dnastack.gatekeeper.token.ConfiguredSigningKeyResolver;
+import com.dnastack.gatekeeper.token.InboundTokens;
+import com.dnastack.gatekeeper.token.RejectedTokenCache;
+import com.dnastack.gatekeeper.token.RequiredClaims;
+import com.dnastack.gatekeeper.token.TokenConfig;
+import com.dnastack.gatekeeper.token.TokenParser;
+import com.dnastack.gatekeeper.token.TokenPrecheck;
+import com.dnastack.gatekeeper.token.VerifiedTokenCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PolicyTokenAuthorizerTest {
+
+    private static final KeyPair KEY_PAIR = Keys.keyPairFor(SignatureAlgorithm.RS256);
+    private static final String ISSUER = "https://wallet.example";
+    private static final String AUDIENCE = "https://gatekeeper.example";
+    private static final String RESOURCE = "http://localhost:8082/controlled/";
+
+    private final AtomicInteger walletChecks = new AtomicInteger();
+    /**
+     * What the stand-in wallet throws on a permission check, or null if it grants.
+     */
+    private final AtomicReference<RuntimeException> walletRejection = new AtomicReference<>(new IllegalStateException("Wallet denies"));
+
+    private PolicyTokenAuthorizer authorizer(boolean tokenActionsEnabled) {
+        final PolicyConfig policyConfig = new PolicyConfig();
+        policyConfig.getTokenActions().setEnabled(tokenActionsEnabled);
+
+        final PermissionChecker wallet = new PermissionChecker(null, null, null, null, 0, 0) {
+            @Override
+            public void checkPermissions(String token, Collection<String> scopes, Map<String, Set<String>> actions) {
+                walletChecks.incrementAndGet();
+                final RuntimeException rejection = walletRejection.get();
+                if (rejection != null) {
+                    throw rejection;
+                }
+            }
+        };
+
+        final TokenConfig tokenConfig = new TokenConfig();
+        tokenConfig.setAudiences(List.of(AUDIENCE));
+        final InboundConfiguration inboundConfiguration = new InboundConfiguration();
+        final InboundConfiguration.IssuerConfig issuerConfig = new InboundConfiguration.IssuerConfig();
+        issuerConfig.setIssuer(ISSUER);
+        inboundConfiguration.setJwt(List.of(issuerConfig));
+        final ObjectMapper objectMapper = new ObjectMapper();
+        final TokenPrecheck tokenPrecheck = new TokenPrecheck(objectMapper, inboundConfiguration, tokenConfig);
+        final TokenParser tokenParser = new TokenParser(Jwts.parserBuilder().setSigningKey(KEY_PAIR.getPublic()).build(),
+                                                        tokenConfig,
+                                                        new VerifiedTokenCache(tokenConfig),
+                                                        new RejectedTokenCache(tokenConfig),
+                                                        tokenPrecheck,
+                                                        new CompactJwsVerifier(tokenConfig, objectMapper, new SigningKeyResolverAdapter(), new RequiredClaims()),
+                                                        new ConfiguredSigningKeyResolver(new JsonDefinedRegistry(null, objectMapper), List.of()));
+
+        final PolicyTokenAuthorizer.PolicyTokenAuthorizerFactory.Config config = new PolicyTokenAuthorizer.PolicyTokenAuthorizerFactory.Config();
+        config.setResource(RESOURCE);
+        config.setActions("data:read");
+        config.setScopes("read");
+        return new PolicyTokenAuthorizer(config,
+                                         wallet,
+                                         new PolicyDecisionCache(policyConfig),
+                                         tokenPrecheck,
+                                         policyConfig.getTokenActions(),
+                                         tokenParser,
+                                         new PolicyEvaluationQueue(policyConfig));
+    }
+
+    private static InboundTokens tokens(String scope, Map<String, List<String>> actions, long expiresInMillis) {
+        final String accessToken = Jwts.builder()
+                                       .setIssuer(ISSUER)
+                                       .setAudience(AUDIENCE)
+                                       .setExpiration(new Date(System.currentTimeMillis() + expiresInMillis))
+                                       .claim("scope", scope)
+                                       .claim("actions", actions)
+                                       .signWith(KEY_PAIR.getPrivate(), SignatureAlgorithm.RS256)
+                                       .compact();
+        return new InboundTokens(accessToken, null);
+    }
+
+    private AuthorizationDecision authorize(InboundTokens tokens) {
+        return authorize(authorizer(true), tokens);
+    }
+
+    private static AuthorizationDecision authorize(PolicyTokenAuthorizer authorizer, InboundTokens tokens) {
+        final AuthorizationDecision decision = authorizer.handleTokens(tokens);
+        assertEquals(decision, authorizer.handleTokensReactive(tokens).block());
+        return decision;
+    }
+
+    @Test
+    public void tokenGrantingResource_grantedLocally() {
+        final AuthorizationDecision decision = authorize(tokens("openid read", Map.of(RESOURCE, List.of("data:read")), 60_000));
+
+        assertEquals(AuthorizationDecision.ACCESS_GRANTED, decision);
+        assertEquals(0, walletChecks.get());
+    }
+
+    @Test
+    public void tokenWithoutActionsOnResource_leftToWallet() {
+        walletRejection.set(null);
+        final AuthorizationDecision decision = authorize(tokens("read", Map.of("http://localhost:8082/other/", List.of("data:read")), 60_000));
+
+        // The wallet's policies may grant what the token doesn't carry
+        assertEquals(AuthorizationDecision.ACCESS_GRANTED, decision);
+        assertTrue(walletChecks.get() > 0);
+    }
+
+    @Test
+    public void tokenWithoutRequiredScope_leftToWallet() {
+        final AuthorizationDecision decision = authorize(tokens("openid", Map.of(RESOURCE, List.of("data:read")), 60_000));
+
+        assertEquals(AuthorizationDecision.INSUFFICIENT_CREDENTIALS, decision);
+        assertTrue(walletChecks.get() > 0);
+    }
+
+    @Test
+    public void expiredToken_leftToWallet() {
+        walletRejection.set(new ExpiredJwtException(null, null, "expired"));
+        final AuthorizationDecision decision = authorize(tokens("read", Map.of(RESOURCE, List.of("data:read")), -60_000));
+
+        assertEquals(AuthorizationDecision.EXPIRED_CREDENTIALS, decision);
+        assertTrue(walletChecks.get() > 0);
+    }
+
+    @Test
+    public void tokenActionsDisabled_leftToWallet() {
+        final AuthorizationDecision decision = authorize(authorizer(false), tokens("openid read", Map.of(RESOURCE, List.of("data:read")), 60_000));
+
+        assertEquals(AuthorizationDecision.INSUFFICIENT_CREDENTIALS, decision);
+        assertTrue(walletChecks.get() > 0);
+    }
+}
@@ -0,0 +1,107 @@
+package com.dnastack.gatekeeper.benchmark;
+
+import com.dnastack.gatekeeper.acl.AclDecisionPlan;
+import com.dnastack.gatekeeper.acl.Gatekeeper;
+import com.dnastack.gatekeeper.authorizer.PublicAuthorizer;
+import com.dnastack.gatekeeper.authorizer.TokenAuthorizer;
+import com.dnastack.gatekeeper.authorizer.TokenAuthorizer.AuthorizationDecision;
+import com.dnastack.gatekeeper.config.GatekeeperConfig;
+import com.dnastack.gatekeeper.config.TokenAuthorizationConfig;
+import com.dnastack.gatekeeper.token.InboundTokens;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a compiled {@link AclDecisionPlan} with the per-request ACL walk it replaced, along with what each allocates
+ * per request. The allocation budget of a plan is enforced by {@code AclDecisionPlanTest}.
+ * Run with {@code mvn -Pbenchmark test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.dnastack.gatekeeper.benchmark.AclDecisionPlanBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AclDecisionPlanBenchmark {
+
+    /**
+     * Comma separated authorization methods, one per ACL item.
+     */
+    @Param({"public", "public,scope", "public,scope,scope,scope"})
+    public String acl;
+
+    private final InboundTokens tokens = new InboundTokens("access-token", null);
+    private final ConcurrentMap<String, TokenAuthorizer> authorizersByItemId = new ConcurrentHashMap<>();
+    private GatekeeperConfig.Gateway gateway;
+    private AclDecisionPlan plan;
+
+    @Setup
+    public void setUp() {
+        // As in production, rather than logging the claims of every request
+        LoggingSystem.get(getClass().getClassLoader()).setLogLevel("com.dnastack", LogLevel.INFO);
+        final TokenAuthorizer publicAuthorizer = new PublicAuthorizer();
+        final TokenAuthorizer scopeAuthorizer = tokens -> AuthorizationDecision.ACCESS_GRANTED;
+
+        final List<GatekeeperConfig.AccessControlItem> items = new ArrayList<>();
+        final String[] methods = acl.split(",");
+        for (int i = 0; i < methods.length; i++) {
+            final TokenAuthorizationConfig authorization = new TokenAuthorizationConfig();
+            authorization.setMethod(methods[i]);
+            final GatekeeperConfig.AccessControlItem item = new GatekeeperConfig.AccessControlItem();
+            item.setId(methods[i] + "-" + i);
+            item.setAuthorization(authorization);
+            items.add(item);
+            authorizersByItemId.put(item.getId(), "public".equals(methods[i]) ? publicAuthorizer : scopeAuthorizer);
+        }
+        gateway = new GatekeeperConfig.Gateway();
+        gateway.setId("benchmark");
+        gateway.setAcl(items);
+        plan = AclDecisionPlan.compile(gateway, item -> new Gatekeeper(authorizersByItemId.get(item.getId())));
+    }
+
+    @Benchmark
+    public Object perRequestWalk() {
+        return Flux.fromIterable(gateway.getAcl())
+                   .concatMap(item -> new Gatekeeper(authorizersByItemId.get(item.getId()))
+                       .determineAccessGrantReactive(tokens)
+                       .map(decision -> Map.entry(item, decision)))
+                   .takeUntil(decision -> !decision.getValue().isAllowed())
+                   .collectList()
+                   .block();
+    }
+
+    @Benchmark
+    public Object compiledPlan() {
+        return plan.evaluate(tokens).block();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                       .include(AclDecisionPlanBenchmark.class.getSimpleName())
+                       .addProfiler(GCProfiler.class)
+                       .build()).run();
+    }
+}
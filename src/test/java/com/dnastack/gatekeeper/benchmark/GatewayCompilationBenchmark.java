@@ -0,0 +1,117 @@
+package com.dnastack.gatekeeper.benchmark;
+
+import com.dnastack.gatekeeper.GatekeeperApp;
+import com.dnastack.gatekeeper.config.GatekeeperConfig;
+import com.dnastack.gatekeeper.config.TokenAuthorizationConfig;
+import com.dnastack.gatekeeper.routing.AclRouter;
+import com.dnastack.gatekeeper.routing.RouteCompilationConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cloud.gateway.filter.FilterDefinition;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long compiling a large number of gateways takes at different levels of parallelism, as happens at
+ * startup. Every iteration compiles gateways with new authorizer args, so no authorizer is reused from an earlier one.
+ * Run with {@code mvn -Pbenchmark test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.dnastack.gatekeeper.benchmark.GatewayCompilationBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GatewayCompilationBenchmark {
+
+    @Param({"1000"})
+    public int gatewayCount;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private ConfigurableApplicationContext context;
+    private AclRouter aclRouter;
+    private List<GatekeeperConfig.Gateway> gateways;
+    private int iteration;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = new SpringApplicationBuilder(GatekeeperApp.class)
+            .properties("server.port=0", "gatekeeper.warmup.enabled=false")
+            .run();
+        context.getBean(RouteCompilationConfig.class).setParallelism(parallelism);
+        aclRouter = context.getBean(AclRouter.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void createGateways() {
+        iteration++;
+        gateways = new ArrayList<>(gatewayCount);
+        for (int i = 0; i < gatewayCount; i++) {
+            final String dataset = "dataset-" + i;
+            final GatekeeperConfig.Gateway gateway = new GatekeeperConfig.Gateway();
+            gateway.setId(dataset);
+            final GatekeeperConfig.InboundPredicate inbound = new GatekeeperConfig.InboundPredicate();
+            inbound.setPath("/" + dataset + "/{*path}");
+            gateway.setInbound(inbound);
+            gateway.setOutbound(GatekeeperConfig.BaseOutboundRequestConfig.builder()
+                                                                          .baseUrl("http://localhost:8088/" + dataset)
+                                                                          .filters(List.of(new FilterDefinition("AddRequestHeader=X-Dataset, " + dataset)))
+                                                                          .build());
+            gateway.setAcl(List.of(accessControlItem("public", "public-authorizer", Map.of(), "/public{path}"),
+                                   accessControlItem("controlled",
+                                                     "scope-authorizer",
+                                                     Map.of("scopes", "read:" + dataset + "-" + iteration),
+                                                     "/protected{path}")));
+            gateways.add(gateway);
+        }
+    }
+
+    private static GatekeeperConfig.AccessControlItem accessControlItem(String id, String method, Map<String, ?> args, String outboundPath) {
+        final TokenAuthorizationConfig authorization = new TokenAuthorizationConfig();
+        authorization.setMethod(method);
+        authorization.setArgs(args);
+        final GatekeeperConfig.AccessControlItem item = new GatekeeperConfig.AccessControlItem();
+        item.setId(id);
+        item.setAuthorization(authorization);
+        item.setOutbound(GatekeeperConfig.OutboundRequestConfig.builder().path(outboundPath).build());
+        return item;
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Route> compileRoutes() {
+        return aclRouter.compileRoutes(gateways);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                       .include(GatewayCompilationBenchmark.class.getSimpleName())
+                       .build()).run();
+    }
+}
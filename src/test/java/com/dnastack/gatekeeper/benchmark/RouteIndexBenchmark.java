@@ -0,0 +1,94 @@
+package com.dnastack.gatekeeper.benchmark;
+
+import com.dnastack.gatekeeper.routing.RouteIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares selecting a route with a {@link RouteIndex} against testing every route's path pattern in order, for a
+ * request that matches the last gateway.
+ * Run with {@code mvn -Pbenchmark test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.dnastack.gatekeeper.benchmark.RouteIndexBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteIndexBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int routeCount;
+
+    private final Map<String, PathPattern> patternsByRouteId = new HashMap<>();
+    private List<Route> routes;
+    private RouteIndex routeIndex;
+    private String path;
+    private PathContainer pathContainer;
+
+    @Setup
+    public void setUp() {
+        routes = new ArrayList<>(routeCount);
+        for (int i = 0; i < routeCount; i++) {
+            final String id = "dataset-" + i;
+            final String inboundPath = "/datasets/" + id + "/{*path}";
+            patternsByRouteId.put(id, PathPatternParser.defaultInstance.parse(inboundPath));
+            routes.add(Route.async()
+                            .id(id)
+                            .uri("http://localhost")
+                            .predicate(exchange -> true)
+                            .metadata(RouteIndex.INBOUND_PATH_METADATA, inboundPath)
+                            .build());
+        }
+        routeIndex = new RouteIndex(routes);
+        path = "/datasets/dataset-" + (routeCount - 1) + "/beacon/query";
+        pathContainer = PathContainer.parsePath(path);
+    }
+
+    private Route firstMatch(List<Route> candidates) {
+        for (Route route : candidates) {
+            if (patternsByRouteId.get(route.getId()).matches(pathContainer)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Route predicateScan() {
+        return firstMatch(routes);
+    }
+
+    @Benchmark
+    public Route routeIndex() {
+        return firstMatch(routeIndex.candidates(path));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                       .include(RouteIndexBenchmark.class.getSimpleName())
+                       .build()).run();
+    }
+}
@@ -0,0 +1,81 @@
+package com.dnastack.gatekeeper.cache;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs concurrent requests through real gateway routing, against a slow upstream server.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+                properties = "gatekeeper.warmup.enabled=false")
+public class RequestCollapserRoutingTest {
+
+    private static final AtomicInteger upstreamRequests = new AtomicInteger();
+    private static final DisposableServer upstream = HttpServer.create()
+                                                               .port(0)
+                                                               .handle((request, response) -> {
+                                                                   upstreamRequests.incrementAndGet();
+                                                                   // The head arrives well before the end of the body
+                                                                   return Mono.delay(Duration.ofMillis(300))
+                                                                              .then(response.sendString(Flux.just("{\"id\":")
+                                                                                                            .concatWith(Mono.delay(Duration.ofMillis(500))
+                                                                                                                            .thenReturn("\"beacon\"}")))
+                                                                                            .then());
+                                                               })
+                                                               .bindNow();
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void gateways(DynamicPropertyRegistry registry) {
+        registry.add("gatekeeper.gateways[0].id", () -> "beacon");
+        registry.add("gatekeeper.gateways[0].inbound.path", () -> "/beacon/{*path}");
+        registry.add("gatekeeper.gateways[0].outbound.base-url", () -> "http://localhost:" + upstream.port() + "/");
+        registry.add("gatekeeper.gateways[0].collapsing.max-buffer-bytes", () -> "1024");
+        registry.add("gatekeeper.gateways[0].acl[0].id", () -> "public");
+        registry.add("gatekeeper.gateways[0].acl[0].authorization.method", () -> "public-authorizer");
+        registry.add("gatekeeper.gateways[0].acl[0].outbound.path", () -> "upstream/{path}");
+    }
+
+    @AfterAll
+    static void stopUpstream() {
+        upstream.disposeNow();
+    }
+
+    @Test
+    public void concurrentIdenticalRequests_shareOneUpstreamExchange() {
+        final WebClient client = WebClient.create("http://localhost:" + port);
+
+        final List<ResponseEntity<String>> responses = Flux.range(0, 5)
+                                                           .flatMap(i -> client.get()
+                                                                               .uri("/beacon/info")
+                                                                               .retrieve()
+                                                                               .toEntity(String.class))
+                                                           .collectList()
+                                                           .block(Duration.ofSeconds(10));
+
+        assertEquals(1, upstreamRequests.get());
+        assertEquals(5, responses.size());
+        responses.forEach(response -> assertEquals("{\"id\":\"beacon\"}", response.getBody()));
+        assertEquals(4, responses.stream()
+                                 .filter(response -> "true".equals(response.getHeaders().getFirst(RequestCollapser.COLLAPSED_HEADER)))
+                                 .count());
+    }
+}
@@ -0,0 +1,272 @@
+package com.dnastack.gatekeeper.cache;
+
+import com.dnastack.gatekeeper.config.GatekeeperConfig;
+import com.dnastack.gatekeeper.gateway.UpstreamResponseFilter;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RequestCollapserTest {
+
+    private static final String UPSTREAM_BODY_ATTR = "upstreamBody";
+
+    /**
+     * Like NettyWriteResponseFilter, writes the upstream body once the rest of the chain has completed.
+     */
+    private static final GlobalFilter writeResponseFilter = (exchange, chain) -> chain.filter(exchange).then(Mono.defer(() -> {
+        final Flux<DataBuffer> body = exchange.getAttribute(UPSTREAM_BODY_ATTR);
+        return body == null ? Mono.empty() : exchange.getResponse().writeWith(body);
+    }));
+
+    private final RequestCollapser collapser = new RequestCollapser();
+    private final GatekeeperConfig.RequestCollapsing collapsing = new GatekeeperConfig.RequestCollapsing();
+    private final AtomicInteger upstreamRequests = new AtomicInteger();
+
+    private Mono<Void> route(ServerWebExchange exchange, String accessControlItemId, GatewayFilterChain upstream) {
+        return new UpstreamResponseFilter().filter(exchange, e -> writeResponseFilter.filter(e, inner -> collapser.filter(inner, upstream, "beacon", accessControlItemId, collapsing)));
+    }
+
+    private MockServerHttpResponse send(MockServerHttpRequest.BaseBuilder<?> request, String accessControlItemId, GatewayFilterChain upstream) {
+        final MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        route(exchange, accessControlItemId, upstream).subscribe();
+        return exchange.getResponse();
+    }
+
+    /**
+     * A client that reads the first chunk of the body, then stops reading.
+     */
+    private static class StalledClientResponse extends MockServerHttpResponse {
+        @Override
+        protected Mono<Void> writeWithInternal(Publisher<? extends DataBuffer> body) {
+            return Mono.create(sink -> body.subscribe(new BaseSubscriber<DataBuffer>() {
+                @Override
+                protected void hookOnSubscribe(Subscription subscription) {
+                    subscription.request(1);
+                }
+
+                @Override
+                protected void hookOnComplete() {
+                    sink.success();
+                }
+
+                @Override
+                protected void hookOnError(Throwable throwable) {
+                    sink.error(throwable);
+                }
+            }));
+        }
+    }
+
+    /**
+     * A response that only starts writing once allowed to, like one whose event loop is busy.
+     */
+    private static class DelayedResponse extends ServerHttpResponseDecorator {
+        private final MockServerHttpResponse client;
+        private final Sinks.Empty<Void> start = Sinks.empty();
+
+        private DelayedResponse(MockServerHttpResponse client) {
+            super(client);
+            this.client = client;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            return start.asMono().then(super.writeWith(body));
+        }
+    }
+
+    private MockServerHttpResponse send(GatewayFilterChain upstream) {
+        return send(MockServerHttpRequest.get("/beacon/info"), "public", upstream);
+    }
+
+    /**
+     * Like NettyRoutingFilter, completes once the response head is set and leaves the body to the write filter.
+     */
+    private GatewayFilterChain upstream(Flux<String> chunks, Consumer<HttpHeaders> headers) {
+        return exchange -> {
+            upstreamRequests.incrementAndGet();
+            final ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.OK);
+            headers.accept(response.getHeaders());
+            exchange.getAttributes().put(UPSTREAM_BODY_ATTR, chunks.map(chunk -> DefaultDataBufferFactory.sharedInstance.wrap(chunk.getBytes(StandardCharsets.UTF_8))));
+            return Mono.empty();
+        };
+    }
+
+    private GatewayFilterChain upstream(Flux<String> chunks) {
+        return upstream(chunks, headers -> headers.setContentType(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    public void concurrentIdenticalRequests_shareOneUpstreamExchange() {
+        final Sinks.Many<String> body = Sinks.many().unicast().onBackpressureBuffer();
+        final GatewayFilterChain upstream = upstream(body.asFlux());
+
+        final MockServerHttpResponse leader = send(upstream);
+        body.tryEmitNext("{\"id\":");
+        final MockServerHttpResponse follower = send(upstream);
+        body.tryEmitNext("\"beacon\"}");
+        body.tryEmitComplete();
+
+        assertEquals(1, upstreamRequests.get());
+        assertEquals("{\"id\":\"beacon\"}", leader.getBodyAsString().block());
+        assertEquals("{\"id\":\"beacon\"}", follower.getBodyAsString().block());
+        assertEquals(HttpStatus.OK, follower.getStatusCode());
+        assertEquals("application/json", follower.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE));
+        assertEquals("true", follower.getHeaders().getFirst(RequestCollapser.COLLAPSED_HEADER));
+        assertNull(leader.getHeaders().getFirst(RequestCollapser.COLLAPSED_HEADER));
+    }
+
+    @Test
+    public void differentTiersQueriesOrVaryHeaders_notCollapsed() {
+        collapsing.setVaryHeaders(List.of(HttpHeaders.ACCEPT));
+        final Sinks.Empty<Void> respond = Sinks.empty();
+        final GatewayFilterChain upstream = upstream(respond.asMono().thenMany(Flux.just("{}")));
+
+        send(MockServerHttpRequest.get("/beacon/info"), "public", upstream);
+        send(MockServerHttpRequest.get("/beacon/info"), "registered", upstream);
+        send(MockServerHttpRequest.get("/beacon/info?format=xml"), "public", upstream);
+        send(MockServerHttpRequest.get("/beacon/info").header(HttpHeaders.ACCEPT, "text/plain"), "public", upstream);
+        send(MockServerHttpRequest.get("/beacon/info").header(HttpHeaders.IF_NONE_MATCH, "\"v1\""), "public", upstream);
+        send(MockServerHttpRequest.head("/beacon/info"), "public", upstream);
+        respond.tryEmitEmpty();
+
+        assertEquals(6, upstreamRequests.get());
+    }
+
+    @Test
+    public void requestsAfterCompletion_goUpstreamAgain() {
+        final GatewayFilterChain upstream = upstream(Flux.just("{}"));
+
+        send(upstream);
+        send(upstream);
+
+        assertEquals(2, upstreamRequests.get());
+    }
+
+    @Test
+    public void bodyOverBufferSize_stopsTakingFollowersButServesJoinedOnes() {
+        collapsing.setMaxBufferBytes(4);
+        final Sinks.Many<String> body = Sinks.many().unicast().onBackpressureBuffer();
+        final GatewayFilterChain upstream = upstream(body.asFlux());
+
+        final MockServerHttpResponse leader = send(upstream);
+        final MockServerHttpResponse follower = send(upstream);
+        body.tryEmitNext("hello");
+        final MockServerHttpResponse late = send(upstream(Flux.just("hello world")));
+        body.tryEmitNext(" world");
+        body.tryEmitComplete();
+
+        assertEquals(2, upstreamRequests.get());
+        assertEquals("hello world", leader.getBodyAsString().block());
+        assertEquals("hello world", follower.getBodyAsString().block());
+        assertEquals("true", follower.getHeaders().getFirst(RequestCollapser.COLLAPSED_HEADER));
+        assertNull(late.getHeaders().getFirst(RequestCollapser.COLLAPSED_HEADER));
+    }
+
+    @Test
+    public void responsesWithCookies_notShared() {
+        final Sinks.Empty<Void> respond = Sinks.empty();
+        final GatewayFilterChain upstream = upstream(respond.asMono().thenMany(Flux.just("{}")),
+                                                     headers -> headers.add(HttpHeaders.SET_COOKIE, "session=1"));
+
+        send(upstream);
+        final MockServerHttpResponse follower = send(upstream);
+        respond.tryEmitEmpty();
+
+        assertEquals(2, upstreamRequests.get());
+        assertEquals("{}", follower.getBodyAsString().block());
+        assertNull(follower.getHeaders().getFirst(RequestCollapser.COLLAPSED_HEADER));
+    }
+
+    @Test
+    public void upstreamFailure_propagatedToFollowers() {
+        final Sinks.Many<String> body = Sinks.many().unicast().onBackpressureBuffer();
+        final GatewayFilterChain upstream = upstream(body.asFlux());
+        final AtomicInteger failures = new AtomicInteger();
+
+        route(MockServerWebExchange.from(MockServerHttpRequest.get("/beacon/info")), "public", upstream)
+            .subscribe(null, e -> failures.incrementAndGet());
+        body.tryEmitNext("{");
+        route(MockServerWebExchange.from(MockServerHttpRequest.get("/beacon/info")), "public", upstream)
+            .subscribe(null, e -> failures.incrementAndGet());
+        body.tryEmitError(new IllegalStateException("Connection reset"));
+
+        assertEquals(1, upstreamRequests.get());
+        assertEquals(2, failures.get());
+    }
+
+    @Test
+    public void followerTooFarBehindAfterCommit_cutOffWithoutHoldingBackOthers() {
+        collapsing.setMaxBufferBytes(8);
+        final Sinks.Many<String> body = Sinks.many().unicast().onBackpressureBuffer();
+        final GatewayFilterChain upstream = upstream(body.asFlux());
+        final AtomicInteger failures = new AtomicInteger();
+
+        final MockServerHttpResponse leader = send(upstream);
+        final StalledClientResponse stalled = new StalledClientResponse();
+        route(MockServerWebExchange.from(MockServerHttpRequest.get("/beacon/info")).mutate().response(stalled).build(), "public", upstream)
+            .subscribe(null, e -> failures.incrementAndGet());
+        final MockServerHttpResponse follower = send(upstream);
+        for (int i = 0; i < 4; i++) {
+            body.tryEmitNext("aaaa");
+        }
+        assertEquals(1, failures.get());
+        body.tryEmitNext("bbbb");
+        body.tryEmitComplete();
+
+        assertEquals(1, upstreamRequests.get());
+        assertTrue(stalled.isCommitted());
+        assertEquals("aaaaaaaaaaaaaaaabbbb", leader.getBodyAsString().block());
+        assertEquals("aaaaaaaaaaaaaaaabbbb", follower.getBodyAsString().block());
+    }
+
+    @Test
+    public void followerTooFarBehindBeforeCommit_goesUpstreamOnItsOwn() {
+        collapsing.setMaxBufferBytes(8);
+        final Sinks.Many<String> body = Sinks.many().unicast().onBackpressureBuffer();
+        final GatewayFilterChain upstream = upstream(Flux.defer(() -> upstreamRequests.get() == 1 ? body.asFlux() : Flux.just("aaaaaaaaaaaa")));
+
+        final MockServerHttpResponse leader = send(upstream);
+        final DelayedResponse delayed = new DelayedResponse(new MockServerHttpResponse());
+        route(MockServerWebExchange.from(MockServerHttpRequest.get("/beacon/info")).mutate().response(delayed).build(), "public", upstream)
+            .subscribe();
+        for (int i = 0; i < 3; i++) {
+            body.tryEmitNext("aaaa");
+        }
+        delayed.start.tryEmitEmpty();
+        body.tryEmitComplete();
+
+        assertEquals(2, upstreamRequests.get());
+        final MockServerHttpResponse follower = delayed.client;
+        assertEquals("aaaaaaaaaaaa", leader.getBodyAsString().block());
+        assertEquals("aaaaaaaaaaaa", follower.getBodyAsString().block());
+        assertNull(follower.getHeaders().getFirst(RequestCollapser.COLLAPSED_HEADER));
+    }
+}
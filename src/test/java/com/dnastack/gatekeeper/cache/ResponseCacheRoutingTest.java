@@ -0,0 +1,133 @@
+package com.dnastack.gatekeeper.cache;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs cached requests through real gateway routing, against an upstream server.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+                properties = "gatekeeper.warmup.enabled=false")
+public class ResponseCacheRoutingTest {
+
+    private static final Map<String, AtomicInteger> upstreamRequests = new ConcurrentHashMap<>();
+    private static final DisposableServer upstream = HttpServer.create()
+                                                               .port(0)
+                                                               .handle((request, response) -> {
+                                                                   final String path = request.fullPath();
+                                                                   final int count = upstreamRequests.computeIfAbsent(path, p -> new AtomicInteger())
+                                                                                                     .incrementAndGet();
+                                                                   if (path.endsWith("/fresh")) {
+                                                                       return response.header(HttpHeaders.CACHE_CONTROL, "max-age=60")
+                                                                                      .sendString(Mono.just("fresh"));
+                                                                   }
+                                                                   if (path.endsWith("/etag")) {
+                                                                       response.header(HttpHeaders.CACHE_CONTROL, "max-age=0")
+                                                                               .header(HttpHeaders.ETAG, "\"v1\"");
+                                                                       if ("\"v1\"".equals(request.requestHeaders().get(HttpHeaders.IF_NONE_MATCH))) {
+                                                                           return response.status(HttpStatus.NOT_MODIFIED.value()).send();
+                                                                       }
+                                                                       return response.sendString(Mono.just("etag-v1"));
+                                                                   }
+                                                                   if (path.endsWith("/stale")) {
+                                                                       return count == 1
+                                                                           ? response.header(HttpHeaders.CACHE_CONTROL, "max-age=0, stale-while-revalidate=60")
+                                                                                     .sendString(Mono.just("stale-v1"))
+                                                                           : response.header(HttpHeaders.CACHE_CONTROL, "max-age=60")
+                                                                                     .sendString(Mono.just("stale-v2"));
+                                                                   }
+                                                                   return response.status(HttpStatus.NOT_FOUND.value()).send();
+                                                               })
+                                                               .bindNow();
+
+    @Autowired
+    private WebTestClient client;
+
+    @DynamicPropertySource
+    static void gateways(DynamicPropertyRegistry registry) {
+        registry.add("gatekeeper.gateways[0].id", () -> "beacon");
+        registry.add("gatekeeper.gateways[0].inbound.path", () -> "/beacon/{*path}");
+        registry.add("gatekeeper.gateways[0].outbound.base-url", () -> "http://localhost:" + upstream.port() + "/");
+        registry.add("gatekeeper.gateways[0].acl[0].id", () -> "public");
+        registry.add("gatekeeper.gateways[0].acl[0].authorization.method", () -> "public-authorizer");
+        registry.add("gatekeeper.gateways[0].acl[0].outbound.path", () -> "upstream/{path}");
+        registry.add("gatekeeper.gateways[0].acl[0].cache.stale-while-revalidate", () -> "0s");
+    }
+
+    @AfterAll
+    static void stopUpstream() {
+        upstream.disposeNow();
+    }
+
+    private EntityExchangeResult<String> get(String path) {
+        return client.get().uri(path).exchange().expectBody(String.class).returnResult();
+    }
+
+    private static int upstreamRequests(String path) {
+        return upstreamRequests.getOrDefault(path, new AtomicInteger()).get();
+    }
+
+    @Test
+    public void freshResponse_servedFromCache() {
+        final EntityExchangeResult<String> miss = get("/beacon/fresh");
+        final EntityExchangeResult<String> hit = get("/beacon/fresh");
+
+        assertEquals(1, upstreamRequests("/upstream/fresh"));
+        assertEquals("MISS", miss.getResponseHeaders().getFirst(ResponseCache.CACHE_STATUS_HEADER));
+        assertEquals("fresh", miss.getResponseBody());
+        assertEquals("HIT", hit.getResponseHeaders().getFirst(ResponseCache.CACHE_STATUS_HEADER));
+        assertEquals("fresh", hit.getResponseBody());
+    }
+
+    @Test
+    public void staleResponse_revalidatedWithoutSendingNotModifiedToClient() {
+        get("/beacon/etag");
+        final EntityExchangeResult<String> revalidated = get("/beacon/etag");
+
+        assertEquals(2, upstreamRequests("/upstream/etag"));
+        assertEquals(HttpStatus.OK, revalidated.getStatus());
+        assertEquals("REVALIDATED", revalidated.getResponseHeaders().getFirst(ResponseCache.CACHE_STATUS_HEADER));
+        assertEquals("etag-v1", revalidated.getResponseBody());
+    }
+
+    @Test
+    public void staleWhileRevalidate_refreshesEntryInBackground() throws InterruptedException {
+        get("/beacon/stale");
+        final EntityExchangeResult<String> stale = get("/beacon/stale");
+        assertEquals("STALE", stale.getResponseHeaders().getFirst(ResponseCache.CACHE_STATUS_HEADER));
+        assertEquals("stale-v1", stale.getResponseBody());
+
+        // The background revalidation reads the whole upstream body before the new entry is stored
+        EntityExchangeResult<String> refreshed = get("/beacon/stale");
+        for (long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+             !"stale-v2".equals(refreshed.getResponseBody()) && System.nanoTime() < deadline; ) {
+            Thread.sleep(50);
+            refreshed = get("/beacon/stale");
+        }
+
+        assertEquals("stale-v2", refreshed.getResponseBody());
+        assertEquals("HIT", refreshed.getResponseHeaders().getFirst(ResponseCache.CACHE_STATUS_HEADER));
+        assertTrue(upstreamRequests("/upstream/stale") >= 2);
+        assertNull(refreshed.getResponseHeaders().getFirst(HttpHeaders.SET_COOKIE));
+    }
+}
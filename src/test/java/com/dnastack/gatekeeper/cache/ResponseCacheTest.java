@@ -0,0 +1,242 @@
+package com.dnastack.gatekeeper.cache;
+
+import com.dnastack.gatekeeper.config.GatekeeperConfig;
+import com.dnastack.gatekeeper.gateway.UpstreamResponseFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ResponseCacheTest {
+
+    private static final String UPSTREAM_BODY_ATTR = "upstreamBody";
+
+    /**
+     * Like NettyWriteResponseFilter, writes the upstream body once the rest of the chain has completed.
+     */
+    private static final GlobalFilter writeResponseFilter = (exchange, chain) -> chain.filter(exchange).then(Mono.defer(() -> {
+        final Flux<DataBuffer> body = exchange.getAttribute(UPSTREAM_BODY_ATTR);
+        return body == null ? Mono.empty() : exchange.getResponse().writeWith(body);
+    }));
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2020-01-01T00:00:00Z"));
+    private final ResponseCache responseCache = new ResponseCache(new ResponseCacheConfig(), writeResponseFilter, clock);
+    private final GatekeeperConfig.ResponseCaching caching = new GatekeeperConfig.ResponseCaching();
+    /**
+     * The requests that reached upstream.
+     */
+    private final List<HttpHeaders> upstreamRequests = new ArrayList<>();
+
+    private MockServerHttpResponse get(MockServerHttpRequest.BaseBuilder<?> request, GatewayFilterChain upstream) {
+        final MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        final GatekeeperConfig.AccessControlItem item = new GatekeeperConfig.AccessControlItem();
+        item.setId("public");
+        item.setCache(caching);
+        final ResponseCacheKey key = ResponseCache.keyOf("beacon", item, exchange.getRequest());
+        new UpstreamResponseFilter().filter(exchange, e -> writeResponseFilter.filter(e, inner -> responseCache.filter(inner, upstream, key, caching)))
+                                    .block();
+        return exchange.getResponse();
+    }
+
+    private MockServerHttpResponse get(GatewayFilterChain upstream) {
+        return get(MockServerHttpRequest.get("/beacon/info"), upstream);
+    }
+
+    /**
+     * Like NettyRoutingFilter, completes once the response head is set and leaves the body to the write filter.
+     */
+    private GatewayFilterChain upstream(Function<HttpHeaders, HttpStatus> respond, String body) {
+        return exchange -> {
+            upstreamRequests.add(exchange.getRequest().getHeaders());
+            final ServerHttpResponse response = exchange.getResponse();
+            final HttpStatus status = respond.apply(response.getHeaders());
+            response.setStatusCode(status);
+            exchange.getAttributes().put(UPSTREAM_BODY_ATTR, status == HttpStatus.NOT_MODIFIED
+                ? Flux.<DataBuffer>empty()
+                : Flux.defer(() -> Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(body.getBytes(StandardCharsets.UTF_8)))));
+            return Mono.empty();
+        };
+    }
+
+    private GatewayFilterChain upstream(String cacheControl, String body) {
+        return upstream(headers -> {
+            headers.setCacheControl(cacheControl);
+            return HttpStatus.OK;
+        }, body);
+    }
+
+    @Test
+    public void freshResponse_servedWithoutCallingUpstream() {
+        final GatewayFilterChain upstream = upstream("public, max-age=60", "hello");
+
+        final MockServerHttpResponse miss = get(upstream);
+        clock.advance(Duration.ofSeconds(30));
+        final MockServerHttpResponse hit = get(upstream);
+
+        assertEquals(1, upstreamRequests.size());
+        assertEquals("MISS", miss.getHeaders().getFirst(ResponseCache.CACHE_STATUS_HEADER));
+        assertEquals("hello", miss.getBodyAsString().block());
+        assertEquals("HIT", hit.getHeaders().getFirst(ResponseCache.CACHE_STATUS_HEADER));
+        assertEquals(HttpStatus.OK, hit.getStatusCode());
+        assertEquals("30", hit.getHeaders().getFirst(HttpHeaders.AGE));
+        assertEquals("hello", hit.getBodyAsString().block());
+    }
+
+    @Test
+    public void uncacheableResponses_alwaysForwarded() {
+        final GatewayFilterChain noStore = upstream("no-store", "hello");
+        final GatewayFilterChain privateResponse = upstream("private, max-age=60", "hello");
+        final GatewayFilterChain cookie = upstream(headers -> {
+            headers.setCacheControl("max-age=60");
+            headers.add(HttpHeaders.SET_COOKIE, "session=1");
+            return HttpStatus.OK;
+        }, "hello");
+        final GatewayFilterChain error = upstream(headers -> {
+            headers.setCacheControl("max-age=60");
+            return HttpStatus.BAD_GATEWAY;
+        }, "oops");
+
+        for (GatewayFilterChain upstream : List.of(noStore, privateResponse, cookie, error)) {
+            get(upstream);
+            get(upstream);
+        }
+
+        assertEquals(8, upstreamRequests.size());
+    }
+
+    @Test
+    public void staleResponseWithETag_revalidatedWithUpstream() {
+        get(upstream(headers -> {
+            headers.setCacheControl("max-age=10");
+            headers.setETag("\"v1\"");
+            return HttpStatus.OK;
+        }, "hello"));
+        clock.advance(Duration.ofSeconds(11));
+
+        final MockServerHttpResponse revalidated = get(upstream(headers -> {
+            headers.setCacheControl("max-age=10");
+            return HttpStatus.NOT_MODIFIED;
+        }, ""));
+        final MockServerHttpResponse hit = get(upstream("max-age=10", "changed"));
+
+        assertEquals(2, upstreamRequests.size());
+        assertEquals("\"v1\"", upstreamRequests.get(1).getFirst(HttpHeaders.IF_NONE_MATCH));
+        assertEquals(HttpStatus.OK, revalidated.getStatusCode());
+        assertEquals("REVALIDATED", revalidated.getHeaders().getFirst(ResponseCache.CACHE_STATUS_HEADER));
+        assertEquals("hello", revalidated.getBodyAsString().block());
+        assertEquals("HIT", hit.getHeaders().getFirst(ResponseCache.CACHE_STATUS_HEADER));
+        assertEquals("hello", hit.getBodyAsString().block());
+    }
+
+    @Test
+    public void clientValidators_answeredFromCacheAndNotForwarded() {
+        final GatewayFilterChain upstream = upstream(headers -> {
+            headers.setCacheControl("max-age=60");
+            headers.setETag("\"v1\"");
+            return HttpStatus.OK;
+        }, "hello");
+
+        get(MockServerHttpRequest.get("/beacon/info").header(HttpHeaders.IF_NONE_MATCH, "\"v0\""), upstream);
+        final MockServerHttpResponse notModified = get(MockServerHttpRequest.get("/beacon/info").header(HttpHeaders.IF_NONE_MATCH, "\"v1\""), upstream);
+
+        assertEquals(1, upstreamRequests.size());
+        assertNull(upstreamRequests.get(0).getFirst(HttpHeaders.IF_NONE_MATCH));
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+    }
+
+    @Test
+    public void staleWhileRevalidate_servesStaleAndRevalidatesOnce() {
+        get(upstream("max-age=10, stale-while-revalidate=30", "hello"));
+        clock.advance(Duration.ofSeconds(11));
+
+        final Sinks.Empty<Void> upstreamDelay = Sinks.empty();
+        final GatewayFilterChain slowUpstream = upstream("max-age=10", "world");
+        final GatewayFilterChain delayed = exchange -> upstreamDelay.asMono().then(slowUpstream.filter(exchange));
+        final MockServerHttpResponse firstStale = get(delayed);
+        final MockServerHttpResponse secondStale = get(delayed);
+        upstreamDelay.tryEmitEmpty();
+        final MockServerHttpResponse hit = get(delayed);
+
+        assertEquals(2, upstreamRequests.size());
+        assertEquals("STALE", firstStale.getHeaders().getFirst(ResponseCache.CACHE_STATUS_HEADER));
+        assertEquals("hello", firstStale.getBodyAsString().block());
+        assertEquals("STALE", secondStale.getHeaders().getFirst(ResponseCache.CACHE_STATUS_HEADER));
+        assertEquals("HIT", hit.getHeaders().getFirst(ResponseCache.CACHE_STATUS_HEADER));
+        assertEquals("world", hit.getBodyAsString().block());
+    }
+
+    @Test
+    public void varyHeaders_cachedSeparatelyWhenConfigured() {
+        caching.setVaryHeaders(List.of("Accept"));
+        final GatewayFilterChain upstream = upstream(headers -> {
+            headers.setCacheControl("max-age=60");
+            headers.setVary(List.of("Accept"));
+            return HttpStatus.OK;
+        }, "hello");
+
+        get(MockServerHttpRequest.get("/beacon/info").header(HttpHeaders.ACCEPT, "application/json"), upstream);
+        get(MockServerHttpRequest.get("/beacon/info").header(HttpHeaders.ACCEPT, "text/plain"), upstream);
+        final MockServerHttpResponse hit = get(MockServerHttpRequest.get("/beacon/info").header(HttpHeaders.ACCEPT, "application/json"), upstream);
+        assertEquals(2, upstreamRequests.size());
+        assertEquals("HIT", hit.getHeaders().getFirst(ResponseCache.CACHE_STATUS_HEADER));
+
+        final GatewayFilterChain unknownVary = upstream(headers -> {
+            headers.setCacheControl("max-age=60");
+            headers.setVary(List.of("Origin"));
+            return HttpStatus.OK;
+        }, "hello");
+        get(MockServerHttpRequest.get("/beacon/other"), unknownVary);
+        get(MockServerHttpRequest.get("/beacon/other"), unknownVary);
+        assertEquals(4, upstreamRequests.size());
+    }
+
+    static class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
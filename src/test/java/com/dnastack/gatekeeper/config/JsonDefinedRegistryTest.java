@@ -0,0 +1,102 @@
+package com.dnastack.gatekeeper.config;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class JsonDefinedRegistryTest {
+
+    @Slf4j
+    private static class EchoFactory extends JsonDefinedFactory<Object, Object> {
+        EchoFactory() {
+            super(new ObjectMapper(), log);
+        }
+
+        @Override
+        protected TypeReference<Object> getConfigType() {
+            return new TypeReference<>() { };
+        }
+
+        @Override
+        protected Object create(Object config) {
+            return new Object();
+        }
+    }
+
+    private static JsonDefinedRegistry registry() {
+        final StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("echo", new EchoFactory());
+        beanFactory.addBean("other-echo", new EchoFactory());
+        return new JsonDefinedRegistry(beanFactory, new ObjectMapper());
+    }
+
+    @Test
+    public void getOrCreate_shouldShareInstancesWithEqualArgsInAnyOrder() {
+        final JsonDefinedRegistry registry = registry();
+        final Map<String, Object> args = new LinkedHashMap<>();
+        args.put("scopes", List.of("read"));
+        args.put("resource", "beacon");
+        final Map<String, Object> reorderedArgs = new LinkedHashMap<>();
+        reorderedArgs.put("resource", "beacon");
+        reorderedArgs.put("scopes", List.of("read"));
+
+        assertSame(registry.getOrCreate("echo", args), registry.getOrCreate("echo", reorderedArgs));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void getOrCreate_shouldSeparateBeansAndArgs() {
+        final JsonDefinedRegistry registry = registry();
+        final Map<String, Object> args = Map.of("resource", "beacon");
+
+        final Object instance = registry.getOrCreate("echo", args);
+        assertNotSame(instance, registry.getOrCreate("other-echo", args));
+        assertNotSame(instance, registry.getOrCreate("echo", Map.of("resource", "other")));
+        assertNotSame(instance, registry.getOrCreate("echo", null));
+        assertEquals(4, registry.size());
+    }
+
+    /**
+     * Collects garbage until the registry is down to the expected size, since a single request for it may be ignored.
+     */
+    private static void awaitSize(JsonDefinedRegistry registry, int expected) throws InterruptedException {
+        for (int attempt = 0; attempt < 50 && registry.size() > expected; attempt++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(expected, registry.size());
+    }
+
+    private static List<Object> compile(JsonDefinedRegistry registry, String... resources) {
+        return List.of(resources)
+                   .stream()
+                   .map(resource -> registry.getOrCreate("echo", Map.of("resource", resource)))
+                   .collect(Collectors.toList());
+    }
+
+    @Test
+    public void getOrCreate_shouldDropInstancesNoLongerUsedAfterReloads() throws InterruptedException {
+        final JsonDefinedRegistry registry = registry();
+
+        List<Object> previousRoutes = compile(registry, "beacon", "wes");
+        List<Object> routes = compile(registry, "wes", "drs");
+        assertSame(previousRoutes.get(1), routes.get(0));
+        previousRoutes = null;
+        awaitSize(registry, 2);
+
+        routes = compile(registry, "drs");
+        awaitSize(registry, 1);
+        assertSame(routes.get(0), registry.getOrCreate("echo", Map.of("resource", "drs")));
+    }
+}
@@ -0,0 +1,115 @@
+package com.dnastack.gatekeeper.policy;
+
+import com.dnastack.gatekeeper.authorizer.TokenAuthorizer.AuthorizationDecision;
+import com.dnastack.gatekeeper.authorizer.TokenAuthorizer.StandardDecisions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PolicyEvaluationQueueTest {
+
+    private static final AuthorizationDecision GRANTED = AuthorizationDecision.builder()
+                                                                              .allowed(true)
+                                                                              .decisionInfo(StandardDecisions.ACCESS_GRANTED)
+                                                                              .build();
+
+    private static PolicyEvaluationQueue createQueue(int maxConcurrentEvaluations, int maxQueuedEvaluations) {
+        final PolicyConfig.EvaluationQueue config = new PolicyConfig.EvaluationQueue();
+        config.setEnabled(true);
+        config.setMaxConcurrentEvaluations(maxConcurrentEvaluations);
+        config.setMaxQueuedEvaluations(maxQueuedEvaluations);
+        return new PolicyEvaluationQueue(config);
+    }
+
+    @Test
+    public void identicalEvaluationsInFlightAreRunOnce() throws InterruptedException {
+        final PolicyEvaluationQueue queue = createQueue(2, 64);
+        final AtomicInteger evaluations = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final List<Mono<AuthorizationDecision>> decisions = List.of(
+            queue.submit("same-token", () -> {
+                evaluations.incrementAndGet();
+                release.await(5, TimeUnit.SECONDS);
+                return GRANTED;
+            }),
+            queue.submit("same-token", () -> {
+                evaluations.incrementAndGet();
+                return GRANTED;
+            }));
+        final Mono<List<AuthorizationDecision>> all = Flux.merge(decisions).collectList().cache();
+        all.subscribe();
+        Thread.sleep(50);
+        release.countDown();
+
+        assertEquals(List.of(GRANTED, GRANTED), all.block(Duration.ofSeconds(5)));
+        assertEquals(1, evaluations.get());
+        queue.destroy();
+    }
+
+    @Test
+    public void concurrentEvaluationsAreBounded() {
+        final PolicyEvaluationQueue queue = createQueue(2, 64);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+
+        final List<AuthorizationDecision> decisions = Flux.range(0, 32)
+                                                          .flatMap(i -> queue.submit("token-" + i, () -> {
+                                                              maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                                                              Thread.sleep(2);
+                                                              running.decrementAndGet();
+                                                              return GRANTED;
+                                                          }))
+                                                          .collectList()
+                                                          .block(Duration.ofSeconds(10));
+
+        assertEquals(32, decisions.size());
+        assertTrue(maxRunning.get() <= 2, "At most 2 evaluations should run at once, but saw " + maxRunning.get());
+        queue.destroy();
+    }
+
+    @Test
+    public void evaluationFailuresReachTheCaller() {
+        final PolicyEvaluationQueue queue = createQueue(1, 64);
+
+        assertThrows(IllegalStateException.class,
+                     () -> queue.submit(null, () -> {
+                         throw new IllegalStateException("wallet unavailable");
+                     }).block(Duration.ofSeconds(5)));
+        queue.destroy();
+    }
+
+    @Test
+    public void evaluationsBeyondTheQueueLimitFailImmediately() throws InterruptedException {
+        final PolicyEvaluationQueue queue = createQueue(1, 1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final Mono<AuthorizationDecision> running = queue.submit("running", () -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return GRANTED;
+        }).cache();
+        running.subscribe();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        final Mono<AuthorizationDecision> queued = queue.submit("queued", () -> GRANTED).cache();
+        queued.subscribe();
+
+        assertThrows(IllegalStateException.class, () -> queue.submit("rejected", () -> GRANTED).block(Duration.ofSeconds(1)));
+
+        release.countDown();
+        assertEquals(GRANTED, running.block(Duration.ofSeconds(5)));
+        assertEquals(GRANTED, queued.block(Duration.ofSeconds(5)));
+        queue.destroy();
+    }
+}
@@ -0,0 +1,75 @@
+package com.dnastack.gatekeeper.routing;
+
+import com.dnastack.gatekeeper.config.GatekeeperConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AclRouterTest {
+
+    private static AclRouter aclRouter(int parallelism) {
+        final RouteCompilationConfig compilationConfig = new RouteCompilationConfig();
+        compilationConfig.setParallelism(parallelism);
+        return new AclRouter(new GatekeeperConfig(), compilationConfig, new GatewayReloadConfig(),
+                             null, null, null, null, null, null, null, new StandardEnvironment(), new SimpleMeterRegistry());
+    }
+
+    private static List<GatekeeperConfig.Gateway> gateways(String... ids) {
+        return Arrays.stream(ids)
+                     .map(id -> {
+                         final GatekeeperConfig.Gateway gateway = new GatekeeperConfig.Gateway();
+                         gateway.setId(id);
+                         return gateway;
+                     })
+                     .collect(toList());
+    }
+
+    @Test
+    public void compileInParallel_keepsConfigurationOrder() {
+        final List<GatekeeperConfig.Gateway> gateways = gateways("first", "second", "third");
+        // The first gateway only finishes once the last one has, so results complete out of order
+        final CountDownLatch lastCompiled = new CountDownLatch(1);
+
+        final List<String> results = aclRouter(3).compileInParallel(gateways, gateway -> {
+            if (gateway.getId().equals("first")) {
+                try {
+                    lastCompiled.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            } else if (gateway.getId().equals("third")) {
+                lastCompiled.countDown();
+            }
+            return gateway.getId();
+        });
+
+        assertEquals(List.of("first", "second", "third"), results);
+    }
+
+    @Test
+    public void compileInParallel_reportsEveryInvalidGateway() {
+        final List<GatekeeperConfig.Gateway> gateways = gateways("beacon", "broken-one", "wes", "broken-two");
+
+        final IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> aclRouter(2).compileInParallel(gateways, gateway -> {
+            if (gateway.getId().startsWith("broken")) {
+                throw new IllegalStateException("Invalid gateway " + gateway.getId());
+            }
+            return gateway.getId();
+        }));
+
+        assertEquals("2 of 4 gateways are invalid: [broken-one]: Invalid gateway broken-one; [broken-two]: Invalid gateway broken-two",
+                     e.getMessage());
+        assertEquals("Invalid gateway broken-one", e.getCause().getMessage());
+        assertEquals(List.of("Invalid gateway broken-two"),
+                     Arrays.stream(e.getSuppressed()).map(Throwable::getMessage).collect(toList()));
+    }
+}
@@ -0,0 +1,187 @@
+package com.dnastack.gatekeeper.routing;
+
+import com.dnastack.gatekeeper.config.GatekeeperConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.BindException;
+import org.springframework.cloud.gateway.event.RefreshRoutesEvent;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class GatewayReloaderTest {
+
+    private final List<Object> publishedEvents = new ArrayList<>();
+    private final StandardEnvironment environment = new StandardEnvironment();
+    private final GatewayRouteLocator routeLocator = new GatewayRouteLocator(List.of(route("configured")));
+
+    /**
+     * Compiles every gateway to a bare route, and fails on gateways with "broken" in their id.
+     */
+    private final AclRouter aclRouter = new AclRouter(new GatekeeperConfig(), new RouteCompilationConfig(), new GatewayReloadConfig(),
+                                                      null, null, null, null, null, null, null, environment,
+                                                      new SimpleMeterRegistry()) {
+        @Override
+        public List<Route> compileRoutes(List<GatekeeperConfig.Gateway> gateways) {
+            return gateways.stream()
+                           .map(gateway -> {
+                               if (gateway.getId().contains("broken")) {
+                                   throw new IllegalArgumentException("Invalid gateway [" + gateway.getId() + "]");
+                               }
+                               return route(gateway.getId());
+                           })
+                           .collect(toList());
+        }
+    };
+
+    private static Route route(String id) {
+        return Route.async().id(id).uri("http://localhost:8088").predicate(exchange -> true).build();
+    }
+
+    private static String gatewaysFile(String... ids) {
+        final StringBuilder content = new StringBuilder("gatekeeper:\n  gateways:\n");
+        for (String id : ids) {
+            content.append("    - id: ").append(id).append("\n")
+                   .append("      inbound:\n        path: /").append(id).append("/{*path}\n")
+                   .append("      outbound:\n        base-url: http://localhost:8088\n");
+        }
+        return content.toString();
+    }
+
+    private GatewayReloader reloader(Path file) {
+        final GatewayReloadConfig config = new GatewayReloadConfig();
+        config.setFile(file.toString());
+        config.setInterval(Duration.ofHours(1));
+        return new GatewayReloader(config, aclRouter, routeLocator, publishedEvents::add, environment);
+    }
+
+    private List<String> routeIds() {
+        return routeLocator.getRoutes().map(Route::getId).collectList().block();
+    }
+
+    @Test
+    public void reload_installsCompiledRoutesAndRefreshesGateway() throws IOException {
+        final GatewayReloader reloader = reloader(writeTempFile(gatewaysFile("beacon", "wes")));
+        try {
+            final GatewayReloader.Status status = reloader.reload();
+
+            assertEquals(List.of("beacon", "wes"), routeIds());
+            assertEquals(1, status.getGeneration());
+            assertEquals(2, status.getGateways());
+            assertNull(status.getLastError());
+            assertEquals(1, publishedEvents.size());
+            assertInstanceOf(RefreshRoutesEvent.class, publishedEvents.get(0));
+        } finally {
+            reloader.destroy();
+        }
+    }
+
+    @Test
+    public void reload_keepsCurrentRoutesWhenCompilationFails() throws IOException {
+        final GatewayReloader reloader = reloader(writeTempFile(gatewaysFile("beacon", "broken")));
+        try {
+            assertThrows(IllegalArgumentException.class, reloader::reload);
+
+            assertEquals(List.of("configured"), routeIds());
+            final GatewayReloader.Status status = reloader.getStatus();
+            assertEquals(0, status.getGeneration());
+            assertNotNull(status.getLastError());
+            assertEquals(List.of(), publishedEvents);
+        } finally {
+            reloader.destroy();
+        }
+    }
+
+    private static Path writeTempFile(String content) throws IOException {
+        final Path file = Files.createTempFile("gateways", ".yml");
+        file.toFile().deleteOnExit();
+        return Files.writeString(file, content);
+    }
+
+    @Test
+    public void readGateways_bindsSameLayoutAsApplicationConfig() throws IOException {
+        final Path file = writeTempFile(String.join("\n",
+                                                    "gatekeeper:",
+                                                    "  gateways:",
+                                                    "    - id: beacon",
+                                                    "      inbound:",
+                                                    "        path: /beacon/{*path}",
+                                                    "      outbound:",
+                                                    "        base-url: http://localhost:8088",
+                                                    "        filters:",
+                                                    "          - AddRequestHeader=X-Request-Foo, Bar",
+                                                    "      acl:",
+                                                    "        - id: controlled",
+                                                    "          authorization:",
+                                                    "            method: scope-authorizer",
+                                                    "            args:",
+                                                    "              scopes:",
+                                                    "                - read:beacon",
+                                                    "          outbound:",
+                                                    "            path: /protected{path}",
+                                                    ""));
+
+        final List<GatekeeperConfig.Gateway> gateways = GatewayReloader.readGateways(file, environment);
+
+        assertEquals(1, gateways.size());
+        final GatekeeperConfig.Gateway gateway = gateways.get(0);
+        assertEquals("beacon", gateway.getId());
+        assertEquals("/beacon/{*path}", gateway.getInbound().getPath());
+        assertEquals("http://localhost:8088", gateway.getOutbound().getBaseUrl());
+        assertEquals("AddRequestHeader", gateway.getOutbound().getFilters().get(0).getName());
+        final GatekeeperConfig.AccessControlItem item = gateway.getAcl().get(0);
+        assertEquals("scope-authorizer", item.getAuthorization().getMethod());
+        assertEquals(Map.of("0", "read:beacon"), item.getAuthorization().getArgs().get("scopes"));
+        assertEquals("/protected{path}", item.getOutbound().getPath());
+    }
+
+    @Test
+    public void readGateways_rejectsFileWithoutGateways() throws IOException {
+        final Path file = writeTempFile("gatekeeper:\n  app:\n    url: http://localhost:8082\n");
+
+        assertThrows(IllegalArgumentException.class, () -> GatewayReloader.readGateways(file, environment));
+    }
+
+    @Test
+    public void readGateways_resolvesPlaceholdersFromFileAndEnvironment() throws IOException {
+        environment.getPropertySources()
+                   .addFirst(new MapPropertySource("test", Map.of("upstream.host", "beacon.internal")));
+        final Path file = writeTempFile(String.join("\n",
+                                                    "upstream:",
+                                                    "  port: 8443",
+                                                    "gatekeeper:",
+                                                    "  gateways:",
+                                                    "    - id: beacon",
+                                                    "      inbound:",
+                                                    "        path: /beacon/{*path}",
+                                                    "      outbound:",
+                                                    "        base-url: https://${upstream.host}:${upstream.port}/${upstream.prefix:v2}",
+                                                    ""));
+
+        final List<GatekeeperConfig.Gateway> gateways = GatewayReloader.readGateways(file, environment);
+
+        assertEquals("https://beacon.internal:8443/v2", gateways.get(0).getOutbound().getBaseUrl());
+    }
+
+    @Test
+    public void readGateways_rejectsUnresolvablePlaceholder() throws IOException {
+        final Path file = writeTempFile(gatewaysFile("beacon").replace("http://localhost:8088", "${upstream.missing}"));
+
+        assertThrows(BindException.class, () -> GatewayReloader.readGateways(file, environment));
+    }
+}
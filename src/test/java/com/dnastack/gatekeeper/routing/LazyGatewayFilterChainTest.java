@@ -0,0 +1,97 @@
+package com.dnastack.gatekeeper.routing;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LazyGatewayFilterChainTest {
+
+    private final Timer timer = Timer.builder("test.compilation").register(new SimpleMeterRegistry());
+    private final Queue<String> calls = new ConcurrentLinkedQueue<>();
+
+    private GatewayFilter recording(String name, int order) {
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            calls.add(name);
+            return chain.filter(exchange);
+        }, order);
+    }
+
+    private Mono<Void> run(LazyGatewayFilterChain lazyChain) {
+        final ServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/beacon/query"));
+        return lazyChain.filter(exchange, e -> Mono.fromRunnable(() -> calls.add("chain")));
+    }
+
+    @Test
+    public void filter_createsFiltersOnceAndRunsThemInOrder() {
+        final AtomicInteger compilations = new AtomicInteger();
+        final LazyGatewayFilterChain lazyChain = new LazyGatewayFilterChain("beacon", () -> {
+            compilations.incrementAndGet();
+            return List.of(recording("second", 2), recording("first", 1));
+        }, timer);
+        assertNull(lazyChain.getFilters());
+
+        run(lazyChain).block();
+        run(lazyChain).block();
+
+        assertEquals(1, compilations.get());
+        assertEquals(1, timer.count());
+        assertNotNull(lazyChain.getFilters());
+        assertEquals(List.of("first", "second", "chain", "first", "second", "chain"), List.copyOf(calls));
+    }
+
+    @Test
+    public void filter_concurrentFirstRequestsShareOneCompilation() {
+        final AtomicInteger compilations = new AtomicInteger();
+        final LazyGatewayFilterChain lazyChain = new LazyGatewayFilterChain("beacon", () -> {
+            compilations.incrementAndGet();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of(recording("filter", 1));
+        }, timer);
+
+        Flux.range(0, 16).flatMap(i -> run(lazyChain)).blockLast();
+
+        assertEquals(1, compilations.get());
+        assertEquals(16, calls.stream().filter("chain"::equals).count());
+    }
+
+    @Test
+    public void filter_retriesFailedCompilation() {
+        final AtomicInteger compilations = new AtomicInteger();
+        final Supplier<List<GatewayFilter>> compiler = () -> {
+            if (compilations.incrementAndGet() == 1) {
+                throw new IllegalStateException("Authorizer unavailable");
+            }
+            return List.of(recording("filter", 1));
+        };
+        final LazyGatewayFilterChain lazyChain = new LazyGatewayFilterChain("beacon", compiler, timer);
+
+        assertThrows(IllegalStateException.class, () -> run(lazyChain).block());
+        assertNull(lazyChain.getFilters());
+        run(lazyChain).block();
+
+        assertEquals(2, compilations.get());
+        assertEquals(List.of("filter", "chain"), List.copyOf(calls));
+    }
+}
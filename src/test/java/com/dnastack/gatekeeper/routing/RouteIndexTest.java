@@ -0,0 +1,80 @@
+package com.dnastack.gatekeeper.routing;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RouteIndexTest {
+
+    private static final List<String> INBOUND_PATHS = List.of(
+        "/beacon",
+        "/beacon/{*path}",
+        "/api/{*path}",
+        "/api/identity/login",
+        "/datasets/{id}/query",
+        "/datasets/v{version}/{*path}",
+        "/datasets/{id:[0-9]+}",
+        "/files/*.json",
+        "/",
+        "/trailing/");
+
+    private static final List<String> PATHS = List.of(
+        "/", "/beacon", "/beacon/", "/beacon/query", "/beaconx", "/api", "/api/identity/login", "/api/identity/login/",
+        "/datasets/1/query", "/datasets/1/query/", "/datasets/1", "/datasets/x", "/datasets/v2/a/b", "/datasets//query",
+        "/files/a.json", "/files/a.txt", "/trailing", "/trailing/", "/unknown", "/datasets/%31/query");
+
+    private final Map<String, PathPattern> patternsByRouteId = new HashMap<>();
+
+    private Route route(String id, String inboundPath) {
+        patternsByRouteId.put(id, PathPatternParser.defaultInstance.parse(inboundPath));
+        final Route.AsyncBuilder builder = Route.async().id(id).uri("http://localhost").predicate(exchange -> true);
+        return inboundPath.equals("/api/identity/login")
+            ? builder.build()
+            : builder.metadata(RouteIndex.INBOUND_PATH_METADATA, inboundPath).build();
+    }
+
+    private Optional<String> firstMatch(List<Route> routes, String path) {
+        return routes.stream()
+                     .map(Route::getId)
+                     .filter(id -> patternsByRouteId.get(id).matches(PathContainer.parsePath(path)))
+                     .findFirst();
+    }
+
+    @Test
+    public void candidates_shouldKeepFirstMatchOfFullScan() {
+        final List<Route> routes = new ArrayList<>();
+        for (int i = 0; i < INBOUND_PATHS.size(); i++) {
+            routes.add(route("route-" + i, INBOUND_PATHS.get(i)));
+        }
+        final RouteIndex index = new RouteIndex(routes);
+
+        for (String path : PATHS) {
+            assertEquals(firstMatch(routes, path), firstMatch(index.candidates(path), path), path);
+        }
+    }
+
+    @Test
+    public void candidates_shouldOnlyIncludeRoutesThatCanMatch() {
+        final List<Route> routes = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            routes.add(route("route-" + i, "/datasets/dataset-" + i + "/{*path}"));
+        }
+        final RouteIndex index = new RouteIndex(routes);
+
+        final List<Route> candidates = index.candidates("/datasets/dataset-500/query");
+        assertEquals(1, candidates.size());
+        assertEquals("route-500", candidates.get(0).getId());
+        assertTrue(index.candidates("/datasets/unknown").isEmpty());
+    }
+}
@@ -0,0 +1,92 @@
+package com.dnastack.gatekeeper.token;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.Test;
+
+import java.security.Key;
+import java.security.KeyPair;
+import java.time.Clock;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompactJwsVerifierTest {
+
+    static final KeyPair KEY_PAIR = Keys.keyPairFor(SignatureAlgorithm.RS256);
+
+    static CompactJwsVerifier verifier(Key verificationKey) {
+        final RequiredClaims requiredClaims = new RequiredClaims();
+        requiredClaims.require(ClaimProjection.of(Set.of("scope"), claims -> claims.get("scope")));
+        return new CompactJwsVerifier(true, new ObjectMapper(), new SigningKeyResolverAdapter() {
+            @Override
+            public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                return verificationKey;
+            }
+        }, requiredClaims, Clock.systemUTC(), 0);
+    }
+
+    static String token(Date expiration, SignatureAlgorithm algorithm, Key signingKey) {
+        return Jwts.builder()
+                   .setIssuer("https://issuer.example")
+                   .setAudience("https://gatekeeper.example")
+                   .setExpiration(expiration)
+                   .claim("scope", "read write")
+                   .claim("ga4gh", Map.of("ControlledAccessGrants", List.of(Map.of("value", "dataset-1", "source", "dac"))))
+                   .signWith(signingKey, algorithm)
+                   .compact();
+    }
+
+    @Test
+    public void verify_shouldMatchJjwt_forRequiredAndLazilyDecodedClaims() {
+        final String token = token(new Date(System.currentTimeMillis() + 60_000), SignatureAlgorithm.PS256, KEY_PAIR.getPrivate());
+
+        final Jws<Claims> streamed = verifier(KEY_PAIR.getPublic()).verify(token);
+        final Jws<Claims> parsed = Jwts.parserBuilder().setSigningKey(KEY_PAIR.getPublic()).build().parseClaimsJws(token);
+
+        assertEquals(parsed.getBody().getIssuer(), streamed.getBody().getIssuer());
+        assertEquals(parsed.getBody().getExpiration(), streamed.getBody().getExpiration());
+        assertEquals(parsed.getBody().get("scope"), streamed.getBody().get("scope"));
+        assertTrue(streamed.getBody().toString().contains("scope"));
+        assertFalse(streamed.getBody().toString().contains("ga4gh"), "Unregistered claims should not be decoded up front");
+        assertEquals(parsed.getBody().get("ga4gh"), streamed.getBody().get("ga4gh"));
+        assertEquals(parsed.getBody(), streamed.getBody());
+    }
+
+    @Test
+    public void verify_shouldFailLikeJjwt_forExpiredOrTamperedTokens() {
+        final CompactJwsVerifier verifier = verifier(KEY_PAIR.getPublic());
+
+        final String expired = token(new Date(System.currentTimeMillis() - 60_000), SignatureAlgorithm.RS256, KEY_PAIR.getPrivate());
+        assertThrows(ExpiredJwtException.class, () -> verifier.verify(expired));
+
+        final String valid = token(new Date(System.currentTimeMillis() + 60_000), SignatureAlgorithm.RS256, KEY_PAIR.getPrivate());
+        final String otherKeyToken = token(new Date(System.currentTimeMillis() + 60_000), SignatureAlgorithm.RS256,
+                                           Keys.keyPairFor(SignatureAlgorithm.RS256).getPrivate());
+        final String tampered = valid.substring(0, valid.lastIndexOf('.')) + otherKeyToken.substring(otherKeyToken.lastIndexOf('.'));
+        assertThrows(SignatureException.class, () -> verifier.verify(tampered));
+    }
+
+    @Test
+    public void verify_shouldLeaveOtherAlgorithmsToJjwt() {
+        final KeyPair ecKeyPair = Keys.keyPairFor(SignatureAlgorithm.ES256);
+        final String token = token(new Date(System.currentTimeMillis() + 60_000), SignatureAlgorithm.ES256, ecKeyPair.getPrivate());
+
+        assertNull(verifier(ecKeyPair.getPublic()).verify(token));
+    }
+}
@@ -0,0 +1,65 @@
+package com.dnastack.gatekeeper.token;
+
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpCookie;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InboundTokensTest {
+
+    @Test
+    public void verify_shouldOnlyRunVerifierOncePerRawToken() {
+        final InboundTokens tokens = new InboundTokens("access", "id");
+        final AtomicInteger verifications = new AtomicInteger();
+
+        tokens.verify("access", token -> {
+            verifications.incrementAndGet();
+            return null;
+        });
+        tokens.verify("access", token -> {
+            verifications.incrementAndGet();
+            return null;
+        });
+        tokens.verify("id", token -> {
+            verifications.incrementAndGet();
+            return null;
+        });
+
+        assertEquals(2, verifications.get(), "Each distinct raw token should be verified exactly once");
+    }
+
+    @Test
+    public void verify_shouldRethrowFirstFailure() {
+        final InboundTokens tokens = new InboundTokens("access", null);
+        final JwtException failure = new JwtException("bad signature");
+
+        final JwtException first = assertThrows(JwtException.class, () -> tokens.verify("access", token -> {
+            throw failure;
+        }));
+        final JwtException second = assertThrows(JwtException.class, () -> tokens.verify("access", token -> {
+            throw new AssertionError("Verifier should not be called again");
+        }));
+
+        assertSame(failure, first);
+        assertSame(failure, second);
+    }
+
+    @Test
+    public void mayCarryTokens_shouldOnlyBeFalseWithoutAnyCredentialSource() {
+        assertFalse(InboundTokens.mayCarryTokens(MockServerHttpRequest.get("/beacon/query").build()));
+        assertFalse(InboundTokens.mayCarryTokens(MockServerHttpRequest.get("/beacon/query?referenceName=1").build()));
+
+        assertTrue(InboundTokens.mayCarryTokens(MockServerHttpRequest.get("/beacon/query").header("Authorization", "Bearer token").build()));
+        assertTrue(InboundTokens.mayCarryTokens(MockServerHttpRequest.get("/beacon/query").cookie(new HttpCookie("access_token", "token")).build()));
+        assertTrue(InboundTokens.mayCarryTokens(MockServerHttpRequest.get("/beacon/query?access_token=token").build()));
+        assertTrue(InboundTokens.mayCarryTokens(MockServerHttpRequest.get("/beacon/query?id%5Ftoken=token").build()));
+    }
+}
@@ -5,17 +5,38 @@ import com.dnastack.gatekeeper.token.ConfiguredSigningKeyResolver.KeyResolver;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sun.net.httpserver.HttpServer;
+import io.jsonwebtoken.JwtException;
+import io.netty.util.concurrent.EventExecutor;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.netty.http.HttpResources;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.Key;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class JwksKeyFactoryTest {
     static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
@@ -72,6 +93,9 @@ public class JwksKeyFactoryTest {
     JwksKeyFactory jwksKeyFactory;
     KeyResolver keyResolver;
     HttpServer server;
+    AtomicInteger jwksRequests;
+    AtomicBoolean jwksFailing;
+    AtomicReference<String> jwks;
 
     @BeforeEach
     public void setup() throws IOException {
@@ -79,10 +103,20 @@ public class JwksKeyFactoryTest {
         keyResolver = jwksKeyFactory.create(new JwksKeyFactory.Config());
         int port = 8081;
         server = HttpServer.create(new InetSocketAddress(port), 0);
+        jwksRequests = new AtomicInteger();
+        jwksFailing = new AtomicBoolean();
+        jwks = new AtomicReference<>(TEST_JWKS);
         server.createContext("/oauth/jwks", exchange -> {
-            exchange.sendResponseHeaders(200, TEST_JWKS.length());
+            jwksRequests.incrementAndGet();
+            if (jwksFailing.get()) {
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+                return;
+            }
+            final byte[] body = jwks.get().getBytes();
+            exchange.sendResponseHeaders(200, body.length);
             OutputStream os = exchange.getResponseBody();
-            os.write(TEST_JWKS.getBytes());
+            os.write(body);
             os.close();
         });
         server.createContext("/.well-known/openid-configuration", exchange -> {
@@ -97,6 +131,7 @@ public class JwksKeyFactoryTest {
     @AfterEach
     public void cleanup() {
         server.stop(0);
+        jwksKeyFactory.destroy();
     }
 
     @Test
@@ -112,4 +147,170 @@ public class JwksKeyFactoryTest {
 
         assertNotEquals(key1, key2, "Keys with different IDs should not be the same");
     }
+
+    @Test
+    public void resolve_shouldFetchOnce_forConcurrentAndUnknownKeyIds() throws Exception {
+        final InboundConfiguration.IssuerConfig issuerConfig = new InboundConfiguration.IssuerConfig();
+        issuerConfig.setIssuer("http://localhost:8081");
+        issuerConfig.setBean("oidc-jwks");
+
+        keyResolver = jwksKeyFactory.create(Map.of("minrefetchinterval", 60_000));
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Key>> knownKeys = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                final String keyId = "test-key-" + (i % 2 + 1);
+                knownKeys.add(executor.submit(() -> keyResolver.resolve(issuerConfig, keyId)));
+            }
+            for (Future<Key> key : knownKeys) {
+                assertNotNull(key.get());
+            }
+            assertEquals(1, jwksRequests.get(), "Concurrent cold lookups should share one fetch");
+
+            final List<Future<Key>> unknownKeys = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                final String keyId = "unknown-key-" + (i % 4);
+                unknownKeys.add(executor.submit(() -> keyResolver.resolve(issuerConfig, keyId)));
+            }
+            for (Future<Key> key : unknownKeys) {
+                final ExecutionException e = assertThrows(ExecutionException.class, key::get);
+                assertInstanceOf(JwtException.class, e.getCause());
+            }
+            assertEquals(2, jwksRequests.get(), "Unknown key IDs should share one rate-limited refetch");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void resolve_shouldRememberAbsentKeyIds() {
+        final InboundConfiguration.IssuerConfig issuerConfig = new InboundConfiguration.IssuerConfig();
+        issuerConfig.setIssuer("http://localhost:8081");
+        issuerConfig.setBean("oidc-jwks");
+
+        keyResolver = jwksKeyFactory.create(Map.of("minrefetchinterval", 0));
+        keyResolver.resolve(issuerConfig, "test-key-1");
+        assertThrows(JwtException.class, () -> keyResolver.resolve(issuerConfig, "unknown-key"));
+        assertEquals(2, jwksRequests.get());
+
+        assertThrows(JwtException.class, () -> keyResolver.resolve(issuerConfig, "unknown-key"));
+        assertEquals(2, jwksRequests.get(), "A key ID missing from the latest fetch should not trigger another");
+    }
+
+    @Test
+    public void resolve_shouldNotRememberKeyIds_missedWhileRefetchWasRateLimited() throws InterruptedException {
+        final InboundConfiguration.IssuerConfig issuerConfig = new InboundConfiguration.IssuerConfig();
+        issuerConfig.setIssuer("http://localhost:8081");
+        issuerConfig.setBean("oidc-jwks");
+
+        keyResolver = jwksKeyFactory.create(Map.of("minrefetchinterval", 200));
+        keyResolver.resolve(issuerConfig, "test-key-1");
+        assertThrows(JwtException.class, () -> keyResolver.resolve(issuerConfig, "unknown-key"));
+        // Reported as a fetch failure, so that a token signed with a rotated key isn't remembered as rejected
+        assertThrows(KeyFetchException.class, () -> keyResolver.resolve(issuerConfig, "rotated-key"));
+        assertEquals(2, jwksRequests.get(), "Refetch should have been rate limited");
+
+        Thread.sleep(250);
+        final JwtException e = assertThrows(JwtException.class, () -> keyResolver.resolve(issuerConfig, "rotated-key"));
+        assertEquals(3, jwksRequests.get(), "A key ID that was never looked for should be refetched once allowed");
+        assertTrue(!(e instanceof KeyFetchException), "A key ID missing from a fetch that ran should be reported as missing");
+    }
+
+    @Test
+    public void resolve_shouldFindKeyRotatedInRightAfterBackgroundRefresh() throws Exception {
+        final InboundConfiguration.IssuerConfig issuerConfig = new InboundConfiguration.IssuerConfig();
+        issuerConfig.setIssuer("http://localhost:8081");
+        issuerConfig.setBean("oidc-jwks");
+
+        final Map<String, Object> fullJwks = OBJECT_MAPPER.readValue(TEST_JWKS, Map.class);
+        final List<?> keys = (List<?>) fullJwks.get("keys");
+        jwks.set(OBJECT_MAPPER.writeValueAsString(Map.of("keys", keys.subList(0, 1))));
+
+        keyResolver = jwksKeyFactory.create(Map.of("fetchjwksinterval", 100, "minrefetchinterval", 60_000));
+        keyResolver.resolve(issuerConfig, "test-key-1");
+        for (long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5); jwksRequests.get() < 2 && System.nanoTime() < deadline; ) {
+            Thread.sleep(10);
+        }
+        assertTrue(jwksRequests.get() >= 2, "Keys should have been refreshed in the background");
+
+        jwks.set(TEST_JWKS);
+        assertNotNull(keyResolver.resolve(issuerConfig, "test-key-2"));
+    }
+
+    @Test
+    public void resolve_shouldNotWaitOnServerEventLoops() throws Exception {
+        final InboundConfiguration.IssuerConfig issuerConfig = new InboundConfiguration.IssuerConfig();
+        issuerConfig.setIssuer("http://localhost:8081");
+        issuerConfig.setBean("oidc-jwks");
+
+        // Every server loop waits on the first fetch at once, so a fetch needing one of them could never complete
+        final List<Future<Key>> keys = new ArrayList<>();
+        for (EventExecutor loop : HttpResources.get().onServer(true)) {
+            keys.add(loop.submit(() -> keyResolver.resolve(issuerConfig, "test-key-1")));
+        }
+        for (Future<Key> key : keys) {
+            assertNotNull(key.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, jwksRequests.get());
+    }
+
+    @Test
+    public void resolve_shouldKeepPreviousKeys_whenBackgroundRefreshFails() throws InterruptedException {
+        final InboundConfiguration.IssuerConfig issuerConfig = new InboundConfiguration.IssuerConfig();
+        issuerConfig.setIssuer("http://localhost:8081");
+        issuerConfig.setBean("oidc-jwks");
+
+        keyResolver = jwksKeyFactory.create(Map.of("fetchjwksinterval", 100));
+        final Key key = keyResolver.resolve(issuerConfig, "test-key-1");
+        jwksFailing.set(true);
+        for (long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5); jwksRequests.get() < 3 && System.nanoTime() < deadline; ) {
+            Thread.sleep(20);
+        }
+
+        assertTrue(jwksRequests.get() >= 3, "Keys should be refreshed in the background");
+        assertEquals(key, keyResolver.resolve(issuerConfig, "test-key-1"));
+    }
+
+    @Test
+    public void resolve_shouldReportFetchFailure_whenNoKeysWereEverFetched() {
+        final InboundConfiguration.IssuerConfig issuerConfig = new InboundConfiguration.IssuerConfig();
+        issuerConfig.setIssuer("http://localhost:8081");
+        issuerConfig.setBean("oidc-jwks");
+
+        jwksFailing.set(true);
+        assertThrows(KeyFetchException.class, () -> keyResolver.resolve(issuerConfig, "test-key-1"));
+    }
+
+    @Test
+    public void prepare_shouldRestoreKeysFromSnapshot_whenIssuerIsUnreachable(@TempDir Path snapshotDir) throws InterruptedException {
+        final InboundConfiguration.IssuerConfig issuerConfig = new InboundConfiguration.IssuerConfig();
+        issuerConfig.setIssuer("http://localhost:8081");
+        issuerConfig.setBean("oidc-jwks");
+
+        keyResolver = jwksKeyFactory.create(Map.of("snapshotdir", snapshotDir.toString()));
+        final Key key = keyResolver.resolve(issuerConfig, "test-key-1");
+        // Snapshots are written in the background
+        for (long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5); !hasSnapshot(snapshotDir) && System.nanoTime() < deadline; ) {
+            Thread.sleep(20);
+        }
+        jwksFailing.set(true);
+
+        final JwksKeyFactory restartedFactory = new JwksKeyFactory(OBJECT_MAPPER);
+        try {
+            final KeyResolver restartedResolver = restartedFactory.create(Map.of("snapshotdir", snapshotDir.toString()));
+            restartedResolver.prepare(issuerConfig);
+
+            assertEquals(key, restartedResolver.resolve(issuerConfig, "test-key-1"));
+        } finally {
+            restartedFactory.destroy();
+        }
+    }
+
+    private static boolean hasSnapshot(Path directory) {
+        try (var files = Files.list(directory)) {
+            return files.anyMatch(file -> file.getFileName().toString().endsWith(".jwks.json"));
+        } catch (IOException e) {
+            return false;
+        }
+    }
 }
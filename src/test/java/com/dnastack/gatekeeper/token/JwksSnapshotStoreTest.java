@@ -0,0 +1,89 @@
+package com.dnastack.gatekeeper.token;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static com.dnastack.gatekeeper.token.JwksKeyFactoryTest.OBJECT_MAPPER;
+import static com.dnastack.gatekeeper.token.JwksKeyFactoryTest.TEST_JWKS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JwksSnapshotStoreTest {
+
+    private static final String ISSUER = "https://issuer.example";
+    private static final String JWKS_URI = "https://issuer.example/oauth/jwks";
+    private static final Instant SAVED_AT = Instant.parse("2026-01-01T00:00:00Z");
+    private static final Duration MAX_STALENESS = Duration.ofHours(1);
+
+    @TempDir
+    Path directory;
+    JwksKeyFactory.Jwks jwks;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        jwks = OBJECT_MAPPER.readValue(TEST_JWKS, JwksKeyFactory.Jwks.class);
+    }
+
+    private JwksSnapshotStore store(Instant now) {
+        return new JwksSnapshotStore(OBJECT_MAPPER, directory, MAX_STALENESS, Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    @Test
+    public void load_shouldRestoreSavedKeys() {
+        store(SAVED_AT).save(ISSUER, JWKS_URI, jwks);
+
+        final Optional<JwksSnapshotStore.Snapshot> snapshot = store(SAVED_AT.plus(MAX_STALENESS)).load(ISSUER);
+
+        assertTrue(snapshot.isPresent());
+        assertEquals(JWKS_URI, snapshot.get().getJwksUri());
+        assertEquals(jwks, snapshot.get().getJwks());
+    }
+
+    @Test
+    public void load_shouldIgnoreStaleSnapshots() {
+        store(SAVED_AT).save(ISSUER, JWKS_URI, jwks);
+
+        assertEquals(Optional.empty(), store(SAVED_AT.plus(MAX_STALENESS).plusSeconds(1)).load(ISSUER));
+    }
+
+    @Test
+    public void load_shouldIgnoreSnapshotsOfOtherIssuers() {
+        // Both issuers map to the same file name
+        store(SAVED_AT).save("https_//issuer.example", JWKS_URI, jwks);
+
+        assertEquals(Optional.empty(), store(SAVED_AT).load(ISSUER));
+    }
+
+    @Test
+    public void load_shouldIgnoreUnreadableSnapshots() throws IOException {
+        store(SAVED_AT).save(ISSUER, JWKS_URI, jwks);
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.writeString(file, "{\"issuer\": \"" + ISSUER + "\", \"jwks\": ");
+            }
+        }
+
+        assertEquals(Optional.empty(), store(SAVED_AT).load(ISSUER));
+    }
+
+    @Test
+    public void save_shouldReplacePreviousSnapshot() throws IOException {
+        store(SAVED_AT).save(ISSUER, JWKS_URI, jwks);
+        store(SAVED_AT.plusSeconds(60)).save(ISSUER, "https://issuer.example/oauth/jwks-v2", jwks);
+
+        assertEquals("https://issuer.example/oauth/jwks-v2", store(SAVED_AT.plusSeconds(60)).load(ISSUER).orElseThrow().getJwksUri());
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count(), "Temporary files should not be left behind");
+        }
+    }
+}
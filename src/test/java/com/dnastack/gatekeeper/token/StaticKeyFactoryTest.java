@@ -0,0 +1,137 @@
+package com.dnastack.gatekeeper.token;
+
+import com.dnastack.gatekeeper.config.InboundConfiguration;
+import com.dnastack.gatekeeper.token.ConfiguredSigningKeyResolver.KeyResolver;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.Key;
+import java.security.PublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.dnastack.gatekeeper.token.JwksKeyFactoryTest.OBJECT_MAPPER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class StaticKeyFactoryTest {
+
+    private static final PublicKey KEY_1 = Keys.keyPairFor(SignatureAlgorithm.RS256).getPublic();
+    private static final PublicKey KEY_2 = Keys.keyPairFor(SignatureAlgorithm.RS256).getPublic();
+
+    @TempDir
+    Path directory;
+    Path keyFile;
+    StaticKeyFactory staticKeyFactory;
+    InboundConfiguration.IssuerConfig issuerConfig;
+
+    @BeforeEach
+    public void setup() {
+        keyFile = directory.resolve("key.pem");
+        staticKeyFactory = new StaticKeyFactory(OBJECT_MAPPER);
+        issuerConfig = new InboundConfiguration.IssuerConfig();
+        issuerConfig.setIssuer("https://issuer.example");
+        issuerConfig.setBean("static-key");
+    }
+
+    @AfterEach
+    public void cleanup() {
+        staticKeyFactory.destroy();
+    }
+
+    private static String pem(PublicKey key) {
+        return "-----BEGIN PUBLIC KEY-----\n"
+               + Base64.getMimeEncoder().encodeToString(key.getEncoded())
+               + "\n-----END PUBLIC KEY-----\n";
+    }
+
+    private static String jwks(String keyId, PublicKey key) {
+        final RSAPublicKey rsaKey = (RSAPublicKey) key;
+        return "{\"keys\": [{\"kty\": \"RSA\", \"kid\": \"" + keyId + "\", \"n\": \"" + base64Url(rsaKey.getModulus())
+               + "\", \"e\": \"" + base64Url(rsaKey.getPublicExponent()) + "\"}]}";
+    }
+
+    private static String base64Url(BigInteger value) {
+        final byte[] bytes = value.toByteArray();
+        final int start = bytes[0] == 0 ? 1 : 0;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOfRange(bytes, start, bytes.length));
+    }
+
+    /**
+     * Replaces the key file with a new modification time, so that the change is seen whatever the file system's
+     * timestamp precision.
+     */
+    private void replaceKeyFile(String content, int generation) throws IOException {
+        Files.writeString(keyFile, content);
+        Files.setLastModifiedTime(keyFile, FileTime.from(Instant.now().plusSeconds(generation)));
+    }
+
+    private Key awaitKey(KeyResolver resolver, String keyId, Key expected) throws InterruptedException {
+        for (long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+             !expected.equals(resolve(resolver, keyId)) && System.nanoTime() < deadline; ) {
+            Thread.sleep(20);
+        }
+        return resolve(resolver, keyId);
+    }
+
+    private Key resolve(KeyResolver resolver, String keyId) {
+        try {
+            return resolver.resolve(issuerConfig, keyId);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    @Test
+    public void resolve_shouldUseKeyFile_andPickUpChanges() throws IOException, InterruptedException {
+        replaceKeyFile(pem(KEY_1), 0);
+        final KeyResolver resolver = staticKeyFactory.create(Map.of("file", keyFile.toString(), "reloadinterval", 20));
+        assertEquals(KEY_1, resolver.resolve(issuerConfig, null));
+
+        replaceKeyFile(pem(KEY_2), 1);
+
+        assertEquals(KEY_2, awaitKey(resolver, null, KEY_2));
+    }
+
+    @Test
+    public void resolve_shouldKeepPreviousKeys_whenKeyFileBecomesUnreadable() throws IOException, InterruptedException {
+        replaceKeyFile(pem(KEY_1), 0);
+        final KeyResolver resolver = staticKeyFactory.create(Map.of("file", keyFile.toString(), "reloadinterval", 20));
+
+        replaceKeyFile("not a key", 1);
+        Thread.sleep(200);
+        assertEquals(KEY_1, resolver.resolve(issuerConfig, null));
+
+        // Recovers once the file is fixed
+        replaceKeyFile(pem(KEY_2), 2);
+        assertEquals(KEY_2, awaitKey(resolver, null, KEY_2));
+    }
+
+    @Test
+    public void resolve_shouldPreferKeysFromJwksFile_overConfiguredKeys() throws IOException, InterruptedException {
+        replaceKeyFile(jwks("key-1", KEY_1), 0);
+        final KeyResolver resolver = staticKeyFactory.create(Map.of("file", keyFile.toString(),
+                                                                    "reloadinterval", 20,
+                                                                    "publickeys", Map.of("key-1", pem(KEY_2), "key-2", pem(KEY_2))));
+        assertEquals(KEY_1, resolver.resolve(issuerConfig, "key-1"));
+        assertEquals(KEY_2, resolver.resolve(issuerConfig, "key-2"));
+
+        // Rotated in by replacing the file
+        replaceKeyFile(jwks("key-3", KEY_1), 1);
+
+        assertEquals(KEY_1, awaitKey(resolver, "key-3", KEY_1));
+        assertEquals(KEY_2, resolver.resolve(issuerConfig, "key-1"), "Keys dropped from the file fall back to configured keys");
+    }
+}
@@ -0,0 +1,117 @@
+package com.dnastack.gatekeeper.token;
+
+import com.dnastack.gatekeeper.config.InboundConfiguration;
+import com.dnastack.gatekeeper.config.JsonDefinedRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.Key;
+import java.security.KeyPair;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TokenParserTest {
+
+    private static final KeyPair KEY_PAIR = Keys.keyPairFor(SignatureAlgorithm.RS256);
+    private static final String ISSUER = "https://issuer.example";
+    private static final String AUDIENCE = "https://gatekeeper.example";
+
+    private final AtomicInteger keyResolutions = new AtomicInteger();
+    private final AtomicBoolean keysUnavailable = new AtomicBoolean();
+    private TokenParser tokenParser;
+
+    @BeforeEach
+    public void setUp() {
+        final TokenConfig tokenConfig = new TokenConfig();
+        tokenConfig.setAudiences(List.of(AUDIENCE));
+        final InboundConfiguration inboundConfiguration = new InboundConfiguration();
+        final InboundConfiguration.IssuerConfig issuerConfig = new InboundConfiguration.IssuerConfig();
+        issuerConfig.setIssuer(ISSUER);
+        inboundConfiguration.setJwt(List.of(issuerConfig));
+        final ObjectMapper objectMapper = new ObjectMapper();
+        final SigningKeyResolverAdapter keyResolver = new SigningKeyResolverAdapter() {
+            @Override
+            public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                keyResolutions.incrementAndGet();
+                if (keysUnavailable.get()) {
+                    throw new KeyFetchException("Unable to fetch keys from issuer");
+                }
+                return KEY_PAIR.getPublic();
+            }
+        };
+        tokenParser = new TokenParser(Jwts.parserBuilder().setSigningKeyResolver(keyResolver).build(),
+                                      tokenConfig,
+                                      new VerifiedTokenCache(tokenConfig),
+                                      new RejectedTokenCache(tokenConfig),
+                                      new TokenPrecheck(objectMapper, inboundConfiguration, tokenConfig),
+                                      new CompactJwsVerifier(tokenConfig, objectMapper, keyResolver, new RequiredClaims()),
+                                      new ConfiguredSigningKeyResolver(new JsonDefinedRegistry(null, objectMapper), List.of()));
+    }
+
+    private static String token(Key signingKey) {
+        return Jwts.builder()
+                   .setIssuer(ISSUER)
+                   .setAudience(AUDIENCE)
+                   .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                   .signWith(signingKey, SignatureAlgorithm.RS256)
+                   .compact();
+    }
+
+    @Test
+    public void rejectedToken_notVerifiedAgain() {
+        final String token = token(Keys.keyPairFor(SignatureAlgorithm.RS256).getPrivate());
+
+        final SignatureException first = assertThrows(SignatureException.class, () -> tokenParser.parseAndValidate(token));
+        final SignatureException second = assertThrows(SignatureException.class, () -> tokenParser.parseAndValidate(token));
+
+        assertSame(first, second);
+        assertEquals(1, keyResolutions.get());
+    }
+
+    @Test
+    public void tokenFailingPrecheck_notVerifiedAgain() {
+        final String token = Jwts.builder()
+                                 .setIssuer("https://other.example")
+                                 .signWith(KEY_PAIR.getPrivate(), SignatureAlgorithm.RS256)
+                                 .compact();
+
+        assertThrows(RejectedTokenException.class, () -> tokenParser.parseAndValidate(token));
+        assertThrows(RejectedTokenException.class, () -> tokenParser.parseAndValidate(token));
+        assertEquals(0, keyResolutions.get());
+    }
+
+    @Test
+    public void keyFetchFailure_notRemembered() {
+        final String token = token(KEY_PAIR.getPrivate());
+
+        keysUnavailable.set(true);
+        assertThrows(KeyFetchException.class, () -> tokenParser.parseAndValidate(token));
+        keysUnavailable.set(false);
+
+        assertNotNull(tokenParser.parseAndValidate(token));
+        assertEquals(2, keyResolutions.get());
+    }
+
+    @Test
+    public void verifiedToken_notVerifiedAgain() {
+        final String token = token(KEY_PAIR.getPrivate());
+
+        assertSame(tokenParser.parseAndValidate(token), tokenParser.parseAndValidate(token));
+        assertEquals(1, keyResolutions.get());
+    }
+}
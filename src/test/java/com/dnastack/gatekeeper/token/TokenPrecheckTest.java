@@ -0,0 +1,96 @@
+package com.dnastack.gatekeeper.token;
+
+import com.dnastack.gatekeeper.config.InboundConfiguration;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TokenPrecheckTest {
+
+    private static final KeyPair KEY_PAIR = Keys.keyPairFor(SignatureAlgorithm.RS256);
+    private static final String ISSUER = "https://issuer.example";
+    private static final Instant EXPIRATION = Instant.parse("2026-01-01T00:00:00Z");
+
+    private static TokenPrecheck precheck(Instant now, Duration allowedClockSkew) {
+        final InboundConfiguration inboundConfiguration = new InboundConfiguration();
+        final InboundConfiguration.IssuerConfig issuerConfig = new InboundConfiguration.IssuerConfig();
+        issuerConfig.setIssuer(ISSUER);
+        inboundConfiguration.setJwt(List.of(issuerConfig));
+        return new TokenPrecheck(new ObjectMapper(),
+                                 inboundConfiguration,
+                                 new TokenConfig.Precheck(),
+                                 allowedClockSkew,
+                                 Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    private static String token(String issuer) {
+        return Jwts.builder()
+                   .setHeaderParam("kid", "key-1")
+                   .setIssuer(issuer)
+                   .setExpiration(Date.from(EXPIRATION))
+                   .signWith(KEY_PAIR.getPrivate(), SignatureAlgorithm.RS256)
+                   .compact();
+    }
+
+    @Test
+    public void tokenExpiringNow_accepted() {
+        // jjwt only rejects tokens once the current time is after their expiry
+        assertDoesNotThrow(() -> precheck(EXPIRATION, Duration.ZERO).check(token(ISSUER)));
+    }
+
+    @Test
+    public void expiredToken_rejectedWithUnverifiedHeaderAndClaims() {
+        final ExpiredJwtException e = assertThrows(ExpiredJwtException.class,
+                                                   () -> precheck(EXPIRATION.plusMillis(1), Duration.ZERO).check(token(ISSUER)));
+
+        assertEquals("RS256", e.getHeader().get("alg"));
+        assertEquals("key-1", e.getHeader().get("kid"));
+        assertEquals(ISSUER, e.getClaims().getIssuer());
+        assertEquals(Date.from(EXPIRATION), e.getClaims().getExpiration());
+    }
+
+    @Test
+    public void expiredTokenWithinClockSkew_accepted() {
+        assertDoesNotThrow(() -> precheck(EXPIRATION.plusSeconds(30), Duration.ofSeconds(30)).check(token(ISSUER)));
+        assertThrows(ExpiredJwtException.class, () -> precheck(EXPIRATION.plusSeconds(31), Duration.ofSeconds(30)).check(token(ISSUER)));
+    }
+
+    @Test
+    public void unknownIssuer_rejected() {
+        assertThrows(RejectedTokenException.class, () -> precheck(EXPIRATION, Duration.ZERO).check(token("https://other.example")));
+    }
+
+    @Test
+    public void unsupportedAlgorithm_rejected() {
+        final String token = Jwts.builder()
+                                 .setIssuer(ISSUER)
+                                 .signWith(Keys.secretKeyFor(SignatureAlgorithm.HS256))
+                                 .compact();
+
+        assertThrows(RejectedTokenException.class, () -> precheck(EXPIRATION, Duration.ZERO).check(token));
+    }
+
+    @Test
+    public void malformedToken_rejected() {
+        final TokenPrecheck precheck = precheck(EXPIRATION, Duration.ZERO);
+
+        assertThrows(RejectedTokenException.class, () -> precheck.check("not-a-token"));
+        assertThrows(RejectedTokenException.class, () -> precheck.check("a.b.c"));
+        assertThrows(RejectedTokenException.class, () -> precheck.check(token(ISSUER) + ".extra"));
+    }
+}
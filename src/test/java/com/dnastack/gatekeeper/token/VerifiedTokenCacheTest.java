@@ -0,0 +1,125 @@
+package com.dnastack.gatekeeper.token;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class VerifiedTokenCacheTest {
+
+    private static final Instant NOW = Instant.parse("2020-01-01T00:00:00Z");
+    private static final Duration MAX_TTL = Duration.ofMinutes(5);
+    private static final TokenFingerprint FINGERPRINT = TokenFingerprint.of("header.body.signature");
+
+    private static class MovableClock extends Clock {
+        private Instant now = NOW;
+
+        void set(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    private final MovableClock clock = new MovableClock();
+
+    private VerifiedTokenCache cache() {
+        final TokenConfig.VerifiedCache config = new TokenConfig.VerifiedCache();
+        config.setMaxTtl(MAX_TTL);
+        return new VerifiedTokenCache(config, clock);
+    }
+
+    private static VerifiedToken token(Instant notBefore, Instant expiration) {
+        final Claims claims = Jwts.claims()
+                                  .setNotBefore(notBefore == null ? null : Date.from(notBefore))
+                                  .setExpiration(expiration == null ? null : Date.from(expiration));
+        return new VerifiedToken(new Jws<>() {
+            @Override
+            public JwsHeader<?> getHeader() {
+                return Jwts.jwsHeader();
+            }
+
+            @Override
+            public Claims getBody() {
+                return claims;
+            }
+
+            @Override
+            public String getSignature() {
+                return "signature";
+            }
+        });
+    }
+
+    @Test
+    public void longLivedToken_servedForMaxTtl() {
+        final VerifiedTokenCache cache = cache();
+        final VerifiedToken token = token(null, NOW.plus(Duration.ofHours(1)));
+        cache.put(FINGERPRINT, "header.body.signature", token);
+
+        clock.set(NOW.plus(MAX_TTL).minusMillis(1));
+        assertSame(token, cache.get(FINGERPRINT));
+        clock.set(NOW.plus(MAX_TTL));
+        assertNull(cache.get(FINGERPRINT));
+    }
+
+    @Test
+    public void shortLivedToken_servedUntilExpiry() {
+        final VerifiedTokenCache cache = cache();
+        final Instant expiration = NOW.plusSeconds(30);
+        final VerifiedToken token = token(null, expiration);
+        cache.put(FINGERPRINT, "header.body.signature", token);
+
+        clock.set(expiration.minusMillis(1));
+        assertSame(token, cache.get(FINGERPRINT));
+        clock.set(expiration);
+        assertNull(cache.get(FINGERPRINT));
+    }
+
+    @Test
+    public void tokenWithoutExpiry_servedForMaxTtl() {
+        final VerifiedTokenCache cache = cache();
+        final VerifiedToken token = token(null, null);
+        cache.put(FINGERPRINT, "header.body.signature", token);
+
+        clock.set(NOW.plus(MAX_TTL).minusMillis(1));
+        assertSame(token, cache.get(FINGERPRINT));
+        clock.set(NOW.plus(MAX_TTL));
+        assertNull(cache.get(FINGERPRINT));
+    }
+
+    @Test
+    public void tokenNotYetValid_notServedAfterClockMovesBack() {
+        final VerifiedTokenCache cache = cache();
+        cache.put(FINGERPRINT, "header.body.signature", token(NOW, NOW.plusSeconds(30)));
+
+        clock.set(NOW.minusSeconds(1));
+        assertNull(cache.get(FINGERPRINT));
+        clock.set(NOW);
+        assertNull(cache.get(FINGERPRINT), "Tokens seen before their not-before time should be verified again");
+    }
+}
@@ -0,0 +1,154 @@
+package com.dnastack.gatekeeper.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BoundedExpiringCacheTest {
+
+    @Test
+    public void get_shouldNotReturnExpiredEntries() {
+        final Instant now = Instant.parse("2020-01-01T00:00:00Z");
+        final Clock clock = Clock.fixed(now, ZoneOffset.UTC);
+        final BoundedExpiringCache<String, String> cache = new BoundedExpiringCache<>(10, 100, clock);
+
+        cache.put("fresh", "value", 1, now.plusSeconds(1).toEpochMilli());
+        cache.put("stale", "value", 1, now.toEpochMilli());
+
+        assertEquals("value", cache.get("fresh"));
+        assertNull(cache.get("stale"));
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    public void put_shouldEvictLeastRecentlyUsedEntriesWhenOverWeight() {
+        final Clock clock = Clock.fixed(Instant.parse("2020-01-01T00:00:00Z"), ZoneOffset.UTC);
+        final long expiry = clock.millis() + 60_000;
+        final BoundedExpiringCache<String, String> cache = new BoundedExpiringCache<>(10, 10, clock);
+
+        cache.put("a", "a", 4, expiry);
+        cache.put("b", "b", 4, expiry);
+        cache.get("a");
+        cache.put("c", "c", 4, expiry);
+
+        assertEquals("a", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("c", cache.get("c"));
+        assertEquals(8, cache.weight());
+        assertEquals(1, cache.evictionCount());
+    }
+
+    @Test
+    public void get_shouldNotWaitForConcurrentPut() throws Exception {
+        final Instant now = Instant.parse("2020-01-01T00:00:00Z");
+        final CountDownLatch putStarted = new CountDownLatch(1);
+        final CountDownLatch releasePut = new CountDownLatch(1);
+        // Holds the writer inside put, where the cache used to hold its only lock
+        final Clock clock = new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Instant instant() {
+                if (Thread.currentThread().getName().equals("writer")) {
+                    putStarted.countDown();
+                    try {
+                        releasePut.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return now;
+            }
+        };
+        final BoundedExpiringCache<String, String> cache = new BoundedExpiringCache<>(10, 100, clock);
+        cache.put("a", "a", 1, now.plusSeconds(60).toEpochMilli());
+
+        final Thread writer = new Thread(() -> cache.put("b", "b", 1, now.plusSeconds(60).toEpochMilli()), "writer");
+        writer.start();
+        try {
+            assertTrue(putStarted.await(5, TimeUnit.SECONDS));
+            final String value = CompletableFuture.supplyAsync(() -> cache.get("a")).get(5, TimeUnit.SECONDS);
+            assertEquals("a", value);
+        } finally {
+            releasePut.countDown();
+            writer.join();
+        }
+        assertEquals("b", cache.get("b"));
+    }
+
+    @Test
+    public void concurrentUse_shouldStayWithinBoundsAndKeepWeightConsistent() throws Exception {
+        final Clock clock = Clock.fixed(Instant.parse("2020-01-01T00:00:00Z"), ZoneOffset.UTC);
+        final long expiry = clock.millis() + 60_000;
+        final int maxEntries = 64;
+        final long maxWeight = 256;
+        final BoundedExpiringCache<Integer, Integer> cache = new BoundedExpiringCache<>(maxEntries, maxWeight, clock);
+
+        final int threads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<CompletableFuture<Void>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                workers.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    final ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int n = 0; n < 20_000; n++) {
+                        final int key = random.nextInt(256);
+                        final Integer value = cache.get(key);
+                        if (value != null) {
+                            assertEquals(key, value);
+                        } else if (random.nextInt(16) == 0) {
+                            cache.invalidate(key);
+                        } else {
+                            cache.put(key, key, 1 + key % 8, expiry);
+                        }
+                    }
+                }, executor));
+            }
+            start.countDown();
+            CompletableFuture.allOf(workers.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(cache.size() <= maxEntries, "Size " + cache.size() + " is over the bound");
+        assertTrue(cache.weight() <= maxWeight, "Weight " + cache.weight() + " is over the bound");
+        long liveWeight = 0;
+        for (int key = 0; key < 256; key++) {
+            if (cache.get(key) != null) {
+                liveWeight += 1 + key % 8;
+            }
+        }
+        assertEquals(liveWeight, cache.weight());
+        assertTrue(cache.hitCount() > 0);
+    }
+}
@@ -0,0 +1,66 @@
+package com.dnastack.gatekeeper.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PathTemplateTest {
+
+    @Test
+    public void renderAbsolute_shouldReplaceVariablesAndAddLeadingSlash() {
+        final PathTemplate template = PathTemplate.parse("public/{path}/v{version}");
+
+        assertEquals(Set.of("path", "version"), template.getVariableNames());
+        assertEquals("/public/a/b/v2", template.renderAbsolute(Map.of("path", "a/b", "version", "2")));
+        assertEquals("/public//v", template.renderAbsolute(Map.of("path", "", "version", "")));
+    }
+
+    @Test
+    public void renderAbsolute_shouldOnlyAddSlashWhenMissing() {
+        assertEquals("/foo", PathTemplate.parse("{path}").renderAbsolute(Map.of("path", "/foo")));
+        assertEquals("/", PathTemplate.parse("{path}").renderAbsolute(Map.of("path", "")));
+        assertEquals("/", PathTemplate.parse("").renderAbsolute(Map.of()));
+        assertEquals("/noop/x", PathTemplate.parse("/noop/{path}").renderAbsolute(Map.of("path", "x")));
+    }
+
+    @Test
+    public void render_shouldCopyValuesLiterally() {
+        assertEquals("a$1\\b/rest", PathTemplate.parse("{path}").render(Map.of("path", "a$1\\b"), "/rest"));
+    }
+
+    @Test
+    public void render_shouldJoinLiteralWithSuffix() {
+        final PathTemplate basePath = PathTemplate.parse("/base");
+
+        assertTrue(basePath.isLiteral());
+        assertEquals("/base/beacon", basePath.render(Map.of(), "/beacon"));
+        assertEquals("/beacon", PathTemplate.parse("").render(Map.of(), "/beacon"));
+    }
+
+    @Test
+    public void isLiteral_shouldOnlyHoldForPathsWithoutVariables() {
+        final PathTemplate literal = PathTemplate.parse("beacon/query");
+
+        assertTrue(literal.isLiteral());
+        assertEquals("/beacon/query", literal.renderAbsolute(Map.of()));
+        assertFalse(PathTemplate.parse("beacon/{path}").isLiteral());
+    }
+
+    @Test
+    public void render_shouldRejectMissingVariables() {
+        assertThrows(IllegalArgumentException.class, () -> PathTemplate.parse("{path}").renderAbsolute(Map.of()));
+    }
+
+    @Test
+    public void pathPatternVariableNames_shouldIncludeCaptureAndRegexVariables() {
+        assertEquals(Set.of("path"), PathTemplate.pathPatternVariableNames("/api/{*path}"));
+        assertEquals(Set.of("id", "rest"), PathTemplate.pathPatternVariableNames("/v/{id:[0-9]+}/{rest}"));
+        assertEquals(Set.of(), PathTemplate.pathPatternVariableNames("/beacon"));
+    }
+}
@@ -0,0 +1,75 @@
+package com.dnastack.gatekeeper.warmup;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs warm-up through the default gateways at startup.
+ */
+@SpringBootTest(properties = "gatekeeper.warmup.iterations=20")
+public class GatekeeperWarmupTest {
+
+    @Autowired
+    private GatekeeperWarmup warmup;
+
+    @Autowired
+    private HealthIndicator readinessStateHealthIndicator;
+
+    @Autowired
+    private LoggingSystem loggingSystem;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void warmup_completesBeforeReportingReady() {
+        assertEquals(GatekeeperWarmup.State.COMPLETE, warmup.getState());
+        assertEquals(Status.UP, readinessStateHealthIndicator.health().getStatus());
+    }
+
+    @Test
+    public void warmup_reusesRejectedTokens() {
+        // One entry for the malformed token and one for the untrusted token, however many requests were sent
+        final double rejectedTokens = meterRegistry.get("gatekeeper.token.rejected.cache.size").gauge().value();
+        assertTrue(rejectedTokens <= 2, "Warm-up should leave at most 2 rejected tokens cached, but left " + rejectedTokens);
+    }
+
+    @Test
+    public void warmup_leavesLogLevelAlone() {
+        // As configured in application.yml
+        assertEquals(LogLevel.INFO, loggingSystem.getLoggerConfiguration("com.dnastack").getConfiguredLevel());
+    }
+
+    @Test
+    public void syntheticRequests_logNothing() {
+        final Logger logger = (Logger) LoggerFactory.getLogger(GatekeeperWarmupTest.class);
+        final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+        try {
+            try (MDC.MDCCloseable ignored = MDC.putCloseable(GatekeeperWarmup.SYNTHETIC_REQUEST_MDC_KEY, "true")) {
+                logger.warn("Logged by a synthetic request");
+            }
+            logger.warn("Logged by a real request");
+        } finally {
+            logger.detachAppender(appender);
+        }
+
+        assertEquals(1, appender.list.size());
+        assertEquals("Logged by a real request", appender.list.get(0).getMessage());
+    }
+}